@@ -25,7 +25,7 @@ import { renderTimeViewClock } from '@mui/x-date-pickers/timeViewRenderers';
 
 import LocationOnIcon from '@mui/icons-material/LocationOn';
 
-import { sensorApiUrl, SensorInfo, HistoryInfo } from '../utils/common';
+import { sensorApiUrl, fetchAllPages, SensorInfo, HistoryInfo } from '../utils/common';
 
 export default function TasksPage() {
   const [filters, setFilters] = React.useState({"sensor": null, "startDate": null, "endDate": null});
@@ -206,8 +206,7 @@ function renderForm(filters, setFilters) {
           var url = sensorApiUrl
             + (request.sensorId == null ? '' : `/${request.sensorId}`)
             + `/history?endDate=${request.endDate}&startDate=${request.startDate}`;
-          fetch(url, options)
-            .then((res) => res.json())
+          fetchAllPages<HistoryInfo>(url, options)
             .then((json) => callback(json));
         },
         400,
@@ -2,6 +2,18 @@
 export const locationApiUrl = "http://localhost:8080/api/lookup/locations";
 export const sensorApiUrl = "http://localhost:8080/api/sensors";
 
+// Fetch every page of a paged list, following the rel="next" link of each page until the last.
+export function fetchAllPages<T>(url: string, options: RequestInit, results: T[] = []): Promise<T[]> {
+  return fetch(url, options)
+    .then((res) => {
+      const next = res.headers.get('Link')?.match(/<([^>]+)>;\s*rel="next"/);
+      return res.json().then((json: T[]) => {
+        results.push(...json);
+        return next ? fetchAllPages(next[1], options, results) : results;
+      });
+    });
+}
+
 export interface LocationInfo {
   name: string;
   region: string
@@ -28,7 +28,11 @@ repositories {
 }
 
 dependencies {
+    implementation("com.github.ben-manes.caffeine:caffeine")
+    implementation("org.apache.arrow:arrow-format:15.0.2")
     implementation("org.apache.commons:commons-lang3")
+    implementation("org.apache.httpcomponents.client5:httpclient5")
+    implementation("org.springframework.boot:spring-boot-starter-actuator")
     implementation("org.springframework.boot:spring-boot-starter-data-jpa")
     implementation("org.springframework.boot:spring-boot-starter-web")
 
@@ -37,21 +41,50 @@ dependencies {
 
     runtimeOnly("com.h2database:h2")
 
+    testImplementation("org.apache.arrow:arrow-memory-unsafe:15.0.2")
+    testImplementation("org.apache.arrow:arrow-vector:15.0.2")
     testImplementation("org.springframework.boot:spring-boot-starter-test")
     testImplementation("org.springframework:spring-webflux")
     testImplementation("io.projectreactor:reactor-test")
+    testImplementation("org.openjdk.jmh:jmh-core:1.37")
 
+    testAnnotationProcessor("org.openjdk.jmh:jmh-generator-annprocess:1.37")
     testAnnotationProcessor("org.projectlombok:lombok")
     testCompileOnly("org.projectlombok:lombok")
 }
 
+tasks.withType<JavaCompile> {
+    options.compilerArgs.addAll(listOf("--add-modules", "jdk.incubator.vector"))
+}
+
 tasks.withType<Test> {
     useJUnitPlatform()
+    // the Arrow vectors, used by the tests to read back the Arrow exports, need access to the direct buffers
+    jvmArgs("--add-modules", "jdk.incubator.vector", "--add-opens=java.base/java.nio=ALL-UNNAMED")
+}
+
+tasks.bootRun {
+    jvmArgs("--add-modules", "jdk.incubator.vector")
 }
 
 tasks.test {
+    useJUnitPlatform {
+        excludeTags("benchmark")
+    }
     finalizedBy(tasks.jacocoTestReport)
 }
+
+tasks.register<Test>("benchmark") {
+    description = "Runs the benchmarks."
+    group = "verification"
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    useJUnitPlatform {
+        includeTags("benchmark")
+    }
+    maxHeapSize = "2g"
+    testLogging.showStandardStreams = true
+}
 tasks.jacocoTestReport {
     dependsOn(tasks.test)
     reports {
@@ -21,4 +21,122 @@ public class CustomProperties {
 
     private Integer weatherLookbackDays;
 
+    private Integer weatherBatchSize;
+
+    private Integer historyBatchSize;
+
+    private Integer historyPageSize;
+
+    private Integer historyMaxPageSize;
+
+    private Integer historyExportBatchSize;
+
+    private Ingest ingest = new Ingest();
+
+    private Backfill backfill = new Backfill();
+
+    private Export export = new Export();
+
+    private Http http = new Http();
+
+    private LocationCache locationCache = new LocationCache();
+
+    private Memory memory = new Memory();
+
+    /**
+     * Write-behind ingestion queue settings.
+     */
+    @Data
+    public static class Ingest {
+
+        private Boolean enabled;
+
+        private Integer queueCapacity;
+
+        private Long flushMillis;
+
+        private Long receiptTtlSeconds;
+
+    }
+
+    /**
+     * Background sensor history backfill settings.
+     */
+    @Data
+    public static class Backfill {
+
+        private Integer poolSize;
+
+        private Integer queueCapacity;
+
+        private Integer mergeGapDays;
+
+        private String cron;
+
+    }
+
+    /**
+     * Streamed history export settings.
+     */
+    @Data
+    public static class Export {
+
+        private Integer poolSize;
+
+        private Integer queueCapacity;
+
+        private Long timeoutMillis;
+
+    }
+
+    /**
+     * Client settings for the third-party lookups.
+     */
+    @Data
+    public static class Http {
+
+        private Integer maxConnections;
+
+        private Integer maxConnectionsPerRoute;
+
+        private Long connectTimeoutMillis;
+
+        private Long readTimeoutMillis;
+
+        private Long idleTimeoutMillis;
+
+        private Boolean compression;
+
+        private Boolean http2;
+
+    }
+
+    /**
+     * Location lookup cache settings.
+     */
+    @Data
+    public static class LocationCache {
+
+        private Long maxSize;
+
+        private Long ttlSeconds;
+
+        private String file;
+
+    }
+
+    /**
+     * In-memory sensor history index settings.
+     */
+    @Data
+    public static class Memory {
+
+        private Boolean enabled;
+
+        private Integer parallelism;
+
+        private Boolean vector;
+
+    }
+
 }
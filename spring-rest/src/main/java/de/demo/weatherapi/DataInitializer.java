@@ -2,6 +2,7 @@ package de.demo.weatherapi;
 
 import de.demo.weatherapi.dtos.LocationRequest;
 import de.demo.weatherapi.dtos.LocationResponse;
+import de.demo.weatherapi.services.BackfillService;
 import de.demo.weatherapi.services.LookupService;
 import de.demo.weatherapi.services.SensorService;
 import lombok.RequiredArgsConstructor;
@@ -15,6 +16,8 @@ import java.util.List;
 
 /**
  * Data Initializer - on start up will initialise the database with some initial data.
+ * <p>
+ * The history of the new sensors is loaded by a single backfill run, so it is fetched in one batched lookup.
  *
  * @author Dwight Egerton
  * @since 0.0.1
@@ -27,6 +30,7 @@ public class DataInitializer implements ApplicationRunner {
 
     final LookupService lookupService;
     final SensorService sensorService;
+    final BackfillService backfillService;
 
     private final List<String> sensors = List.of("Cork", "Dublin", "Galway", "Letterkenny");
 
@@ -36,10 +40,11 @@ public class DataInitializer implements ApplicationRunner {
             if (sensorService.findByName(name) == null) {
                 List<LocationResponse> locations = lookupService.getLocationInfo(new LocationRequest(name));
                 if (!locations.isEmpty()) {
-                    sensorService.create(locations.get(0).toSensorRequest());
+                    sensorService.create(locations.get(0).toSensorRequest(false));
                 }
             }
         }
+        backfillService.refresh();
         log.info("done data initialisation...");
     }
 
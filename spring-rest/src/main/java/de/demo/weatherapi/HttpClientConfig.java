@@ -0,0 +1,100 @@
+package de.demo.weatherapi;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import lombok.RequiredArgsConstructor;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * Http Client Config - the client used for all the third-party lookups.
+ * <p>
+ * By default requests go through a pool of keep-alive connections, bounded by {@code custom.http.maxConnections} and
+ * {@code custom.http.maxConnectionsPerRoute}, asking for compressed responses. With {@code custom.http.http2} the
+ * JDK client is used instead, which multiplexes the requests to a host over a single HTTP/2 connection but does not
+ * decompress responses. Request latency is recorded as {@code http.client.requests}, the pool usage as
+ * {@code httpcomponents.httpclient.pool.*}.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+@Configuration
+@RequiredArgsConstructor
+public class HttpClientConfig {
+
+    private static final String POOL_NAME = "upstream";
+
+    final CustomProperties customProperties;
+
+    @Bean
+    public RestTemplate restTemplate(RestTemplateBuilder builder, ClientHttpRequestFactory upstreamRequestFactory) {
+        return builder
+                .requestFactory(() -> upstreamRequestFactory)
+                .build();
+    }
+
+    @Bean
+    public ClientHttpRequestFactory upstreamRequestFactory(ObjectProvider<PoolingHttpClientConnectionManager> pool) {
+        CustomProperties.Http http = customProperties.getHttp();
+        PoolingHttpClientConnectionManager connectionManager = pool.getIfAvailable();
+        if (connectionManager == null) {
+            JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_2)
+                    .connectTimeout(Duration.ofMillis(http.getConnectTimeoutMillis()))
+                    .build());
+            factory.setReadTimeout(Duration.ofMillis(http.getReadTimeoutMillis()));
+            return factory;
+        }
+        HttpClientBuilder client = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(http.getConnectTimeoutMillis()))
+                        .setResponseTimeout(Timeout.ofMilliseconds(http.getReadTimeoutMillis()))
+                        .build())
+                .evictIdleConnections(TimeValue.ofMilliseconds(http.getIdleTimeoutMillis()));
+        if (!Boolean.TRUE.equals(http.getCompression())) {
+            client.disableContentCompression();
+        }
+        return new HttpComponentsClientHttpRequestFactory(client.build());
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "custom.http.http2", havingValue = "false", matchIfMissing = true)
+    public PoolingHttpClientConnectionManager upstreamConnectionManager() {
+        CustomProperties.Http http = customProperties.getHttp();
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(http.getMaxConnections())
+                .setMaxConnPerRoute(http.getMaxConnectionsPerRoute())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(http.getConnectTimeoutMillis()))
+                        .setSocketTimeout(Timeout.ofMilliseconds(http.getReadTimeoutMillis()))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "custom.http.http2", havingValue = "false", matchIfMissing = true)
+    public MeterBinder upstreamConnectionPoolMetrics(PoolingHttpClientConnectionManager upstreamConnectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(upstreamConnectionManager, POOL_NAME);
+    }
+
+}
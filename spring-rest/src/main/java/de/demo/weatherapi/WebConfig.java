@@ -0,0 +1,50 @@
+package de.demo.weatherapi;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Web Config - the asynchronous request handling of the streamed history exports.
+ * <p>
+ * As {@code @EnableWebMvc} turns off the Spring-Boot MVC auto-configuration, the {@code spring.mvc.async.*} properties
+ * have no effect and are set here instead. Each export runs on a pool of {@code custom.export.poolSize} threads, with
+ * at most {@code custom.export.queueCapacity} exports waiting, as each one holds a transaction and a database
+ * connection while it streams. An export still running after {@code custom.export.timeoutMillis} is cut off.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig {
+
+    final CustomProperties customProperties;
+
+    @Bean
+    public ThreadPoolTaskExecutor exportExecutor() {
+        CustomProperties.Export export = customProperties.getExport();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(export.getPoolSize());
+        executor.setMaxPoolSize(export.getPoolSize());
+        executor.setQueueCapacity(export.getQueueCapacity());
+        executor.setThreadNamePrefix("history-export-");
+        return executor;
+    }
+
+    @Bean
+    public WebMvcConfigurer exportAsyncSupport(ThreadPoolTaskExecutor exportExecutor) {
+        long timeoutMillis = customProperties.getExport().getTimeoutMillis();
+        return new WebMvcConfigurer() {
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                configurer.setDefaultTimeout(timeoutMillis);
+                configurer.setTaskExecutor(exportExecutor);
+            }
+        };
+    }
+
+}
@@ -1,17 +1,39 @@
 package de.demo.weatherapi.controllers;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import de.demo.weatherapi.dtos.BackfillJobResponse;
 import de.demo.weatherapi.dtos.SensorAverageResponse;
+import de.demo.weatherapi.dtos.SensorHistoryBatchRequest;
+import de.demo.weatherapi.dtos.SensorHistoryBatchResponse;
+import de.demo.weatherapi.dtos.SensorHistoryColumnsResponse;
+import de.demo.weatherapi.dtos.SensorHistoryCompactResponse;
+import de.demo.weatherapi.dtos.SensorHistoryCursor;
+import de.demo.weatherapi.dtos.SensorHistoryPage;
+import de.demo.weatherapi.dtos.SensorHistoryReceiptResponse;
 import de.demo.weatherapi.dtos.SensorHistoryRequest;
 import de.demo.weatherapi.dtos.SensorHistoryResponse;
 import de.demo.weatherapi.dtos.SensorRequest;
 import de.demo.weatherapi.dtos.SensorResponse;
+import de.demo.weatherapi.enums.GranularityEnum;
+import de.demo.weatherapi.enums.MetricEnum;
+import de.demo.weatherapi.services.BackfillService;
 import de.demo.weatherapi.services.SensorAverageService;
+import de.demo.weatherapi.services.SensorHistoryQueueService;
 import de.demo.weatherapi.services.SensorHistoryService;
 import de.demo.weatherapi.services.SensorService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -19,10 +41,18 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Controller to handle all Sensor data queries.
@@ -30,16 +60,24 @@ import java.util.UUID;
  * @author Dwight Egerton
  * @since 0.0.1
  */
-@CrossOrigin
+@CrossOrigin(exposedHeaders = HttpHeaders.LINK)
 @RestController
 @RequestMapping(path = "api/sensors")
 @RequiredArgsConstructor
 @Slf4j
 public class SensorController {
 
+    /**
+     * Media type of the Apache Arrow IPC stream format.
+     */
+    static final String ARROW_STREAM_VALUE = "application/vnd.apache.arrow.stream";
+
     final SensorService sensorService;
     final SensorAverageService sensorAverageService;
     final SensorHistoryService sensorHistoryService;
+    final SensorHistoryQueueService sensorHistoryQueueService;
+    final BackfillService backfillService;
+    final ObjectMapper objectMapper;
 
     /**
      * Create a new Sensor.
@@ -74,14 +112,18 @@ public class SensorController {
     /**
      * Averaged data (for all Sensors) over the respective time period.
      *
-     * @param startDate start of the time period filter
-     * @param endDate   end of the time period filter
-     * @return list of average Sensor data, grouped by the Sensors
+     * @param startDate   start of the time period filter
+     * @param endDate     end of the time period filter
+     * @param granularity size of the time buckets, or none for the whole time period
+     * @param metrics     metrics to average, or none for all
+     * @return list of average Sensor data, grouped by the Sensors and the time buckets
      */
     @GetMapping(path = "averages")
-    public ResponseEntity<SensorAverageResponse> readAverageHistory(@RequestParam LocalDate startDate, LocalDate endDate) {
+    public ResponseEntity<SensorAverageResponse> readAverageHistory(@RequestParam LocalDate startDate, LocalDate endDate,
+                                                                    @RequestParam(required = false) GranularityEnum granularity,
+                                                                    @RequestParam(required = false) Set<MetricEnum> metrics) {
         try {
-            return ResponseEntity.ok(sensorAverageService.findAverage(startDate, endDate));
+            return ResponseEntity.ok(sensorAverageService.findAverage(startDate, endDate, granularity, metrics));
         } catch (Exception ex) {
             return ResponseEntity.internalServerError().build();
         }
@@ -92,12 +134,105 @@ public class SensorController {
      *
      * @param startDate start of the time period filter
      * @param endDate   end of the time period filter
-     * @return list containing the filtered Sensor history records
+     * @param metrics   metrics to read, or none for all
+     * @param cursor    cursor of the previous page, or none for the first page
+     * @param size      page size, or none for the default
+     * @return page of the filtered Sensor history records, linking to the next page
+     */
+    @GetMapping(path = "history", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<SensorHistoryResponse>> readAllHistory(@RequestParam LocalDate startDate, LocalDate endDate,
+                                                                      @RequestParam(required = false) Set<MetricEnum> metrics,
+                                                                      @RequestParam(required = false) SensorHistoryCursor cursor,
+                                                                      @RequestParam(required = false) Integer size) {
+        try {
+            return page(sensorHistoryService.findAll(startDate, endDate, metrics, cursor, size), Function.identity());
+        } catch (Exception ex) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * History extract (for all Sensors) over the respective time period, with each Sensor listed once.
+     *
+     * @param startDate start of the time period filter
+     * @param endDate   end of the time period filter
+     * @param metrics   metrics to read, or none for all
+     * @param cursor    cursor of the previous page, or none for the first page
+     * @param size      page size, or none for the default
+     * @return page of the filtered Sensor history records, linking to the next page
+     */
+    @GetMapping(path = "history", produces = SensorHistoryCompactResponse.MEDIA_TYPE)
+    public ResponseEntity<SensorHistoryCompactResponse> readAllHistoryCompact(@RequestParam LocalDate startDate, LocalDate endDate,
+                                                                              @RequestParam(required = false) Set<MetricEnum> metrics,
+                                                                              @RequestParam(required = false) SensorHistoryCursor cursor,
+                                                                              @RequestParam(required = false) Integer size) {
+        try {
+            return page(sensorHistoryService.findAll(startDate, endDate, metrics, cursor, size), SensorHistoryCompactResponse::of);
+        } catch (Exception ex) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * History extract (for all Sensors) over the respective time period, as one array per field.
+     *
+     * @param startDate start of the time period filter
+     * @param endDate   end of the time period filter
+     * @param metrics   metrics to read, or none for all
+     * @param cursor    cursor of the previous page, or none for the first page
+     * @param size      page size, or none for the default
+     * @return page of the filtered Sensor history records, linking to the next page
+     */
+    @GetMapping(path = "history", produces = SensorHistoryColumnsResponse.MEDIA_TYPE)
+    public ResponseEntity<SensorHistoryColumnsResponse> readAllHistoryColumns(@RequestParam LocalDate startDate, LocalDate endDate,
+                                                                              @RequestParam(required = false) Set<MetricEnum> metrics,
+                                                                              @RequestParam(required = false) SensorHistoryCursor cursor,
+                                                                              @RequestParam(required = false) Integer size) {
+        try {
+            return page(sensorHistoryService.findAll(startDate, endDate, metrics, cursor, size), SensorHistoryColumnsResponse::of);
+        } catch (Exception ex) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * History export (for all Sensors) over the respective time period, streamed as newline delimited JSON.
+     *
+     * @param startDate start of the time period filter
+     * @param endDate   end of the time period filter
+     * @param metrics   metrics to read, or none for all
+     * @return stream of the filtered Sensor history records, one per line
+     */
+    @GetMapping(path = "history", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllHistory(@RequestParam LocalDate startDate, LocalDate endDate,
+                                                                  @RequestParam(required = false) Set<MetricEnum> metrics) {
+        return stream(action -> sensorHistoryService.streamAll(startDate, endDate, metrics, action));
+    }
+
+    /**
+     * History export (for all Sensors) over the respective time period, as an Apache Arrow IPC stream.
+     *
+     * @param startDate start of the time period filter
+     * @param endDate   end of the time period filter
+     * @param metrics   metrics to export, or none for all
+     * @return Arrow stream of the filtered Sensor history records, one column per field
      */
-    @GetMapping(path = "history")
-    public ResponseEntity<List<SensorHistoryResponse>> readAllHistory(@RequestParam LocalDate startDate, LocalDate endDate) {
+    @GetMapping(path = "history", produces = ARROW_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportAllHistory(@RequestParam LocalDate startDate, LocalDate endDate,
+                                                                  @RequestParam(required = false) Set<MetricEnum> metrics) {
+        return export(out -> sensorHistoryService.exportAll(startDate, endDate, metrics, out));
+    }
+
+    /**
+     * Add batches of new Sensor History records (for multiple Sensors).
+     *
+     * @param request sensor history details, grouped by Sensor
+     * @return per sensor, per row confirmation of the accepted and rejected sensor history
+     */
+    @PostMapping(path = "history/batch")
+    public ResponseEntity<List<SensorHistoryBatchResponse>> addHistoryBatch(@RequestBody List<SensorHistoryBatchRequest> request) {
         try {
-            return ResponseEntity.ok(sensorHistoryService.findAll(startDate, endDate));
+            return ResponseEntity.ok(sensorHistoryService.createAll(request));
         } catch (Exception ex) {
             return ResponseEntity.internalServerError().build();
         }
@@ -137,37 +272,138 @@ public class SensorController {
     /**
      * Averaged data (for specific Sensor) over the respective time period.
      *
+     * @param sensorId    respective ID of the Sensor to find
+     * @param startDate   start of the time period filter
+     * @param endDate     end of the time period filter
+     * @param granularity size of the time buckets
+     * @param metrics     metrics to average, or none for all
+     * @return list of average Sensor data, grouped by the time buckets.
+     */
+    @GetMapping(path = "{sensorId}/averages")
+    public ResponseEntity<SensorAverageResponse> readSensorAverageHistory(@PathVariable UUID sensorId, @RequestParam LocalDate startDate, LocalDate endDate,
+                                                                          @RequestParam(defaultValue = "MONTH") GranularityEnum granularity,
+                                                                          @RequestParam(required = false) Set<MetricEnum> metrics) {
+        try {
+            return ResponseEntity.ok(sensorAverageService.findAverageBySensor(sensorId, startDate, endDate, granularity, metrics));
+        } catch (Exception ex) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Progress of the most recent history backfill of a single Sensor.
+     *
+     * @param sensorId respective ID of the Sensor
+     * @return progress of the backfill job
+     */
+    @GetMapping(path = "{sensorId}/backfill")
+    public ResponseEntity<BackfillJobResponse> readSensorBackfill(@PathVariable UUID sensorId) {
+        try {
+            return ResponseEntity.ok(backfillService.findBySensor(sensorId));
+        } catch (Exception ex) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * History extract (for specific Sensors) over the respective time period.
+     *
      * @param sensorId  respective ID of the Sensor to find
      * @param startDate start of the time period filter
      * @param endDate   end of the time period filter
-     * @return list of average Sensor data, grouped by month.
+     * @param metrics   metrics to read, or none for all
+     * @param cursor    cursor of the previous page, or none for the first page
+     * @param size      page size, or none for the default
+     * @return page of the filtered Sensor history records, linking to the next page
      */
-    @GetMapping(path = "{sensorId}/averages")
-    public ResponseEntity<SensorAverageResponse> readSensorAverageHistory(@PathVariable UUID sensorId, @RequestParam LocalDate startDate, LocalDate endDate) {
+    @GetMapping(path = "{sensorId}/history", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<SensorHistoryResponse>> readSensorAllHistory(@PathVariable UUID sensorId, @RequestParam LocalDate startDate, LocalDate endDate,
+                                                                            @RequestParam(required = false) Set<MetricEnum> metrics,
+                                                                            @RequestParam(required = false) SensorHistoryCursor cursor,
+                                                                            @RequestParam(required = false) Integer size) {
         try {
-            return ResponseEntity.ok(sensorAverageService.findAverageBySensor(sensorId, startDate, endDate));
+            return page(sensorHistoryService.findAllBySensor(sensorId, startDate, endDate, metrics, cursor, size), Function.identity());
         } catch (Exception ex) {
             return ResponseEntity.internalServerError().build();
         }
     }
 
     /**
-     * History extract (for specific Sensors) over the respective time period.
+     * History extract (for specific Sensors) over the respective time period, with the Sensor listed once.
+     *
+     * @param sensorId  respective ID of the Sensor to find
+     * @param startDate start of the time period filter
+     * @param endDate   end of the time period filter
+     * @param metrics   metrics to read, or none for all
+     * @param cursor    cursor of the previous page, or none for the first page
+     * @param size      page size, or none for the default
+     * @return page of the filtered Sensor history records, linking to the next page
+     */
+    @GetMapping(path = "{sensorId}/history", produces = SensorHistoryCompactResponse.MEDIA_TYPE)
+    public ResponseEntity<SensorHistoryCompactResponse> readSensorAllHistoryCompact(@PathVariable UUID sensorId, @RequestParam LocalDate startDate, LocalDate endDate,
+                                                                                    @RequestParam(required = false) Set<MetricEnum> metrics,
+                                                                                    @RequestParam(required = false) SensorHistoryCursor cursor,
+                                                                                    @RequestParam(required = false) Integer size) {
+        try {
+            return page(sensorHistoryService.findAllBySensor(sensorId, startDate, endDate, metrics, cursor, size), SensorHistoryCompactResponse::of);
+        } catch (Exception ex) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * History extract (for specific Sensors) over the respective time period, as one array per field.
      *
      * @param sensorId  respective ID of the Sensor to find
      * @param startDate start of the time period filter
      * @param endDate   end of the time period filter
-     * @return list containing the filtered Sensor history records
+     * @param metrics   metrics to read, or none for all
+     * @param cursor    cursor of the previous page, or none for the first page
+     * @param size      page size, or none for the default
+     * @return page of the filtered Sensor history records, linking to the next page
      */
-    @GetMapping(path = "{sensorId}/history")
-    public ResponseEntity<List<SensorHistoryResponse>> readSensorAllHistory(@PathVariable UUID sensorId, @RequestParam LocalDate startDate, LocalDate endDate) {
+    @GetMapping(path = "{sensorId}/history", produces = SensorHistoryColumnsResponse.MEDIA_TYPE)
+    public ResponseEntity<SensorHistoryColumnsResponse> readSensorAllHistoryColumns(@PathVariable UUID sensorId, @RequestParam LocalDate startDate, LocalDate endDate,
+                                                                                    @RequestParam(required = false) Set<MetricEnum> metrics,
+                                                                                    @RequestParam(required = false) SensorHistoryCursor cursor,
+                                                                                    @RequestParam(required = false) Integer size) {
         try {
-            return ResponseEntity.ok(sensorHistoryService.findAllBySensor(sensorId, startDate, endDate));
+            return page(sensorHistoryService.findAllBySensor(sensorId, startDate, endDate, metrics, cursor, size), SensorHistoryColumnsResponse::of);
         } catch (Exception ex) {
             return ResponseEntity.internalServerError().build();
         }
     }
 
+    /**
+     * History export (for specific Sensors) over the respective time period, streamed as newline delimited JSON.
+     *
+     * @param sensorId  respective ID of the Sensor to find
+     * @param startDate start of the time period filter
+     * @param endDate   end of the time period filter
+     * @param metrics   metrics to read, or none for all
+     * @return stream of the filtered Sensor history records, one per line
+     */
+    @GetMapping(path = "{sensorId}/history", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamSensorAllHistory(@PathVariable UUID sensorId, @RequestParam LocalDate startDate, LocalDate endDate,
+                                                                        @RequestParam(required = false) Set<MetricEnum> metrics) {
+        return stream(action -> sensorHistoryService.streamAllBySensor(sensorId, startDate, endDate, metrics, action));
+    }
+
+    /**
+     * History export (for specific Sensors) over the respective time period, as an Apache Arrow IPC stream.
+     *
+     * @param sensorId  respective ID of the Sensor to find
+     * @param startDate start of the time period filter
+     * @param endDate   end of the time period filter
+     * @param metrics   metrics to export, or none for all
+     * @return Arrow stream of the filtered Sensor history records, one column per field
+     */
+    @GetMapping(path = "{sensorId}/history", produces = ARROW_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportSensorAllHistory(@PathVariable UUID sensorId, @RequestParam LocalDate startDate, LocalDate endDate,
+                                                                        @RequestParam(required = false) Set<MetricEnum> metrics) {
+        return export(out -> sensorHistoryService.exportAllBySensor(sensorId, startDate, endDate, metrics, out));
+    }
+
     /**
      * Add new Sensor History record.
      *
@@ -179,9 +415,144 @@ public class SensorController {
     public ResponseEntity<SensorHistoryResponse> addSensorHistory(@PathVariable UUID sensorId, @RequestBody SensorHistoryRequest request) {
         try {
             return ResponseEntity.ok(sensorHistoryService.create(sensorId, request));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().build();
+        } catch (Exception ex) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Add a batch of new Sensor History records (for specific Sensor).
+     *
+     * @param sensorId respective ID of the Sensor
+     * @param request  list of sensor history details
+     * @return per row confirmation of the accepted and rejected sensor history
+     */
+    @PostMapping(path = "{sensorId}/history/batch")
+    public ResponseEntity<SensorHistoryBatchResponse> addSensorHistoryBatch(@PathVariable UUID sensorId, @RequestBody List<SensorHistoryRequest> request) {
+        try {
+            return ResponseEntity.ok(sensorHistoryService.createAll(sensorId, request));
         } catch (Exception ex) {
             return ResponseEntity.internalServerError().build();
         }
     }
 
+    /**
+     * Queue new Sensor History records (for specific Sensor), to be written in the background.
+     *
+     * @param sensorId respective ID of the Sensor
+     * @param request  list of sensor history details
+     * @return receipt confirming the queued sensor history
+     */
+    @PostMapping(path = "{sensorId}/history/queue")
+    public ResponseEntity<SensorHistoryReceiptResponse> queueSensorHistory(@PathVariable UUID sensorId, @RequestBody List<SensorHistoryRequest> request) {
+        try {
+            return ResponseEntity.accepted().body(sensorHistoryQueueService.enqueue(sensorId, request));
+        } catch (RejectedExecutionException ex) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "1").build();
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        } catch (IllegalStateException ex) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        } catch (Exception ex) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Outcome of queued Sensor History records (for specific Sensor), by the receipt returned when queued.
+     *
+     * @param sensorId  respective ID of the Sensor
+     * @param receiptId ID of the receipt
+     * @return receipt with the number of records written and failed so far
+     */
+    @GetMapping(path = "{sensorId}/history/queue/{receiptId}")
+    public ResponseEntity<SensorHistoryReceiptResponse> readSensorHistoryReceipt(@PathVariable UUID sensorId, @PathVariable UUID receiptId) {
+        try {
+            SensorHistoryReceiptResponse receipt = sensorHistoryQueueService.findReceipt(sensorId, receiptId);
+            return receipt != null ? ResponseEntity.ok(receipt) : ResponseEntity.notFound().build();
+        } catch (IllegalStateException ex) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        } catch (Exception ex) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Respond to a streamed history export the export pool has no room for, to be retried later.
+     *
+     * @return service unavailable, with the seconds to retry after
+     */
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<Void> exportRejected() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+    }
+
+    /**
+     * Respond with the page of history in the requested shape, linking to the next page in the {@code Link} header, the
+     * same request with the cursor of the next page.
+     */
+    private <T> ResponseEntity<T> page(SensorHistoryPage page, Function<List<SensorHistoryResponse>, T> shape) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.next() != null) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("cursor", page.next().toToken())
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(shape.apply(page.data()));
+    }
+
+    /**
+     * Respond with the history streamed by the query, writing each record on its own line as it is read. The headers
+     * are sent before the query runs, and the records are flushed as the buffers fill rather than after each record.
+     */
+    private ResponseEntity<StreamingResponseBody> stream(Consumer<Consumer<SensorHistoryResponse>> query) {
+        ObjectWriter writer = objectMapper.writerFor(SensorHistoryResponse.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("");
+        StreamingResponseBody body = out -> {
+            out.flush();
+            try (JsonGenerator generator = writer.createGenerator(out)) {
+                query.accept(history -> {
+                    try {
+                        writer.writeValue(generator, history);
+                        generator.writeRaw('\n');
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            } catch (RuntimeException ex) {
+                log.warn("failed to stream sensor history", ex);
+                throw ex;
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Respond with the history written by the export, as a download, sending the headers before the export runs.
+     */
+    private ResponseEntity<StreamingResponseBody> export(StreamingResponseBody export) {
+        StreamingResponseBody body = out -> {
+            out.flush();
+            try {
+                export.writeTo(out);
+            } catch (RuntimeException ex) {
+                log.warn("failed to export sensor history", ex);
+                throw ex;
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(ARROW_STREAM_VALUE))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("sensor-history.arrows")
+                        .build()
+                        .toString())
+                .body(body);
+    }
+
 }
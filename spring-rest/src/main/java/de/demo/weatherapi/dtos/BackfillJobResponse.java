@@ -0,0 +1,30 @@
+package de.demo.weatherapi.dtos;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import de.demo.weatherapi.enums.BackfillStatusEnum;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Backfill Job Response DTO - progress of a sensor history backfill returned to consumer.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+@Builder
+public record BackfillJobResponse(
+        UUID id,
+        UUID sensorId,
+        BackfillStatusEnum status,
+        Integer rowsFetched,
+        Integer rowsLoaded,
+        Integer failures,
+        String message,
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss", timezone = "UTC")
+        LocalDateTime createdDateTime,
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss", timezone = "UTC")
+        LocalDateTime modifiedDateTime
+) {
+}
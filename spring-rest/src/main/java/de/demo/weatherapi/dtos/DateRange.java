@@ -0,0 +1,42 @@
+package de.demo.weatherapi.dtos;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Date Range DTO - inclusive period of days, e.g. a gap in the stored sensor history.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+public record DateRange(
+        LocalDate startDate,
+        LocalDate endDate
+) {
+
+    /**
+     * The weather archive only publishes data after a few days.
+     */
+    public static final int ARCHIVE_DELAY_DAYS = 5;
+
+    /**
+     * The lookback window of the weather archive, ending with the most recently published day.
+     *
+     * @param lookbackDays number of days to look back
+     * @return the lookback window
+     */
+    public static DateRange lookback(int lookbackDays) {
+        LocalDate endDate = LocalDate.now().minusDays(ARCHIVE_DELAY_DAYS);
+        return new DateRange(endDate.minusDays(lookbackDays), endDate);
+    }
+
+    /**
+     * Number of days within the range, including both the start and end date.
+     *
+     * @return number of days
+     */
+    public long days() {
+        return ChronoUnit.DAYS.between(startDate, endDate) + 1;
+    }
+
+}
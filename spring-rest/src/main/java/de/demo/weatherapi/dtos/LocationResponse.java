@@ -28,6 +28,16 @@ public record LocationResponse(
      * @return new sensor request object
      */
     public SensorRequest toSensorRequest() {
+        return toSensorRequest(true);
+    }
+
+    /**
+     * Conversion function to map a location response to a Sensor request.
+     *
+     * @param loadSensorData whether the history of the new sensor should be loaded
+     * @return new sensor request object
+     */
+    public SensorRequest toSensorRequest(boolean loadSensorData) {
         return SensorRequest.builder()
                 .name(name())
                 .description((StringUtils.isBlank(region()) ? "" : region() + ", ") + countryCode())
@@ -36,7 +46,7 @@ public record LocationResponse(
                 .elevation(elevation())
                 .longitude(longitude())
                 .latitude(latitude())
-                .loadSensorData(true)
+                .loadSensorData(loadSensorData)
                 .build();
     }
 }
@@ -7,9 +7,9 @@ import lombok.Data;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Sensor Average Response DTO - to return averaged sensor history.
@@ -28,7 +28,7 @@ public class SensorAverageResponse {
     private LocalDate endDate;
 
     @Builder.Default
-    private Map<String, List<AverageData<?>>> data = new HashMap<>();
+    private Map<String, List<AverageData<?>>> data = new TreeMap<>();
 
     public <T> void addData(String key, MetricEnum metric, T meanValue, T minValue, T maxValue) {
         if (!data.containsKey(key)) data.put(key, new ArrayList<>());
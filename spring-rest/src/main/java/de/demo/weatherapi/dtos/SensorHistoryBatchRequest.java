@@ -0,0 +1,19 @@
+package de.demo.weatherapi.dtos;
+
+import lombok.Builder;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Sensor History Batch Request DTO - used when adding sensor history for multiple sensors in one call.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+@Builder
+public record SensorHistoryBatchRequest(
+        UUID sensorId,
+        List<SensorHistoryRequest> readings
+) {
+}
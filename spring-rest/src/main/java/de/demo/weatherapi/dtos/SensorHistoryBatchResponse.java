@@ -0,0 +1,55 @@
+package de.demo.weatherapi.dtos;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Sensor History Batch Response DTO - per row outcome of a sensor history batch.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+@Builder
+@Data
+public class SensorHistoryBatchResponse {
+
+    private UUID sensorId;
+
+    private int accepted;
+
+    private int rejected;
+
+    @Builder.Default
+    private List<RowResult> results = new ArrayList<>();
+
+    public void accept(int index, UUID id) {
+        accepted++;
+        results.add(new RowResult(index, true, id, null));
+    }
+
+    public void reject(int index, String reason) {
+        rejected++;
+        results.add(new RowResult(index, false, null, reason));
+    }
+
+    /**
+     * Order the row results to match the order of the submitted readings.
+     */
+    public void sortResults() {
+        results.sort(Comparator.comparingInt(RowResult::index));
+    }
+
+    record RowResult(
+            int index,
+            boolean accepted,
+            UUID id,
+            String reason
+    ) {
+    }
+
+}
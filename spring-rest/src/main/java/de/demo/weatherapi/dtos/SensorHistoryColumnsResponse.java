@@ -0,0 +1,97 @@
+package de.demo.weatherapi.dtos;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Sensor History Columns Response DTO - sensor history returned to consumer as one array per field, each Sensor listed
+ * once and referred to by its index in that list. The arrays of the metrics not requested are left null and not
+ * written.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record SensorHistoryColumnsResponse(
+        List<SensorResponse> sensors,
+        UUID[] id,
+        int[] sensor,
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd", timezone = "UTC")
+        LocalDate[] recordDate,
+        Double[] rainfallSum,
+        Double[] snowfallSum,
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm", timezone = "UTC")
+        LocalDateTime[] sunrise,
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm", timezone = "UTC")
+        LocalDateTime[] sunset,
+        Double[] temperatureMean,
+        Double[] temperatureMin,
+        Double[] temperatureMax,
+        Integer[] windDirection,
+        Double[] windSpeedMax
+) {
+
+    /**
+     * Media type to request the columnar shape with.
+     */
+    public static final String MEDIA_TYPE = "application/vnd.weatherapi.columnar+json";
+
+    /**
+     * Conversion function to split the history records into columns.
+     *
+     * @param history sensor history records, in order
+     * @return columns of the sensor history, in the same order
+     */
+    public static SensorHistoryColumnsResponse of(List<SensorHistoryResponse> history) {
+        Map<UUID, Integer> indexes = new LinkedHashMap<>();
+        List<SensorResponse> sensors = new ArrayList<>();
+        int[] sensor = new int[history.size()];
+        for (int x = 0; x < history.size(); x++) {
+            SensorResponse s = history.get(x).sensor();
+            sensor[x] = indexes.computeIfAbsent(s.id(), id -> {
+                sensors.add(s);
+                return sensors.size() - 1;
+            });
+        }
+        return new SensorHistoryColumnsResponse(
+                sensors,
+                column(history, SensorHistoryResponse::id, UUID[]::new),
+                sensor,
+                column(history, SensorHistoryResponse::recordDate, LocalDate[]::new),
+                column(history, SensorHistoryResponse::rainfallSum, Double[]::new),
+                column(history, SensorHistoryResponse::snowfallSum, Double[]::new),
+                column(history, SensorHistoryResponse::sunrise, LocalDateTime[]::new),
+                column(history, SensorHistoryResponse::sunset, LocalDateTime[]::new),
+                column(history, SensorHistoryResponse::temperatureMean, Double[]::new),
+                column(history, SensorHistoryResponse::temperatureMin, Double[]::new),
+                column(history, SensorHistoryResponse::temperatureMax, Double[]::new),
+                column(history, SensorHistoryResponse::windDirection, Integer[]::new),
+                column(history, SensorHistoryResponse::windSpeedMax, Double[]::new)
+        );
+    }
+
+    /**
+     * The field of every history record, or null when no record has it, i.e. the metric was not requested.
+     */
+    private static <T> T[] column(List<SensorHistoryResponse> history, Function<SensorHistoryResponse, T> field,
+                                  IntFunction<T[]> array) {
+        T[] column = array.apply(history.size());
+        boolean present = false;
+        for (int x = 0; x < column.length; x++) {
+            column[x] = field.apply(history.get(x));
+            present |= column[x] != null;
+        }
+        return present || column.length == 0 ? column : null;
+    }
+
+}
@@ -0,0 +1,72 @@
+package de.demo.weatherapi.dtos;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Sensor History Compact Response DTO - sensor history returned to consumer with each Sensor listed once, and the
+ * history records referring to their Sensor by its index in that list.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+public record SensorHistoryCompactResponse(
+        List<SensorResponse> sensors,
+        List<Row> history
+) {
+
+    /**
+     * Media type to request the compact shape with.
+     */
+    public static final String MEDIA_TYPE = "application/vnd.weatherapi.compact+json";
+
+    /**
+     * Conversion function to list the Sensors of the history records once.
+     *
+     * @param history sensor history records, in order
+     * @return compact sensor history, in the same order
+     */
+    public static SensorHistoryCompactResponse of(List<SensorHistoryResponse> history) {
+        Map<UUID, Integer> indexes = new LinkedHashMap<>();
+        List<SensorResponse> sensors = new ArrayList<>();
+        List<Row> rows = new ArrayList<>(history.size());
+        for (SensorHistoryResponse h : history) {
+            int sensor = indexes.computeIfAbsent(h.sensor().id(), id -> {
+                sensors.add(h.sensor());
+                return sensors.size() - 1;
+            });
+            rows.add(new Row(h.id(), sensor, h.recordDate(), h.rainfallSum(), h.snowfallSum(), h.sunrise(), h.sunset(),
+                    h.temperatureMean(), h.temperatureMin(), h.temperatureMax(), h.windDirection(), h.windSpeedMax()));
+        }
+        return new SensorHistoryCompactResponse(sensors, rows);
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record Row(
+            UUID id,
+            int sensor,
+            @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd", timezone = "UTC")
+            LocalDate recordDate,
+            Double rainfallSum,
+            Double snowfallSum,
+            @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm", timezone = "UTC")
+            LocalDateTime sunrise,
+            @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm", timezone = "UTC")
+            LocalDateTime sunset,
+            Double temperatureMean,
+            Double temperatureMin,
+            Double temperatureMax,
+            Integer windDirection,
+            Double windSpeedMax
+    ) {
+    }
+
+}
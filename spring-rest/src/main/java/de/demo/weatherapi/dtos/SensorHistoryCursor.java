@@ -0,0 +1,85 @@
+package de.demo.weatherapi.dtos;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.UUID;
+
+/**
+ * Sensor History Cursor DTO - position of the last history record of a page, passed to the consumer as an opaque
+ * token. The history pages are ordered latest record date first, then by descending ID, with the IDs compared as
+ * unsigned numbers as the database does, so the next page starts right after the cursor however deep it is.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+public record SensorHistoryCursor(
+        LocalDate recordDate,
+        UUID id
+) {
+
+    /**
+     * Order of the history pages.
+     */
+    public static final Comparator<SensorHistoryResponse> ORDER = Comparator
+            .comparing(SensorHistoryResponse::recordDate)
+            .thenComparing(SensorHistoryResponse::id, SensorHistoryCursor::compare)
+            .reversed();
+
+    /**
+     * The cursor positioned at the history record.
+     *
+     * @param history last history record of a page
+     * @return cursor of the history record
+     */
+    public static SensorHistoryCursor of(SensorHistoryResponse history) {
+        return new SensorHistoryCursor(history.recordDate(), history.id());
+    }
+
+    /**
+     * Decode the cursor token, also used to bind the cursor request parameter.
+     *
+     * @param token token of the cursor
+     * @return decoded cursor
+     * @throws IllegalArgumentException when the token is not a cursor
+     */
+    public static SensorHistoryCursor valueOf(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("/");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid cursor " + token);
+            }
+            return new SensorHistoryCursor(LocalDate.parse(parts[0]), UUID.fromString(parts[1]));
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("Invalid cursor " + token, ex);
+        }
+    }
+
+    /**
+     * Encode the cursor as an opaque, URL safe token.
+     *
+     * @return token of the cursor
+     */
+    public String toToken() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((recordDate + "/" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Whether the history record comes after the cursor, i.e. belongs to a following page.
+     *
+     * @param history history record to check
+     * @return true when the history record comes after the cursor
+     */
+    public boolean precedes(SensorHistoryResponse history) {
+        int date = history.recordDate().compareTo(recordDate);
+        return date < 0 || (date == 0 && compare(history.id(), id) < 0);
+    }
+
+    private static int compare(UUID a, UUID b) {
+        int most = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return most != 0 ? most : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    }
+
+}
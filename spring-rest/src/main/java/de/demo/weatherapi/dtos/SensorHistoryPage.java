@@ -0,0 +1,31 @@
+package de.demo.weatherapi.dtos;
+
+import java.util.List;
+
+/**
+ * Sensor History Page DTO - one page of sensor history, with the cursor of the next page, or null on the last page.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+public record SensorHistoryPage(
+        List<SensorHistoryResponse> data,
+        SensorHistoryCursor next
+) {
+
+    /**
+     * Page the history records, read one past the page size to tell whether another page follows.
+     *
+     * @param history history records, in page order, at most one more than the page size
+     * @param size    page size
+     * @return page of at most the page size records
+     */
+    public static SensorHistoryPage of(List<SensorHistoryResponse> history, int size) {
+        if (history.size() <= size) {
+            return new SensorHistoryPage(history, null);
+        }
+        List<SensorHistoryResponse> data = history.subList(0, size);
+        return new SensorHistoryPage(data, SensorHistoryCursor.of(data.get(size - 1)));
+    }
+
+}
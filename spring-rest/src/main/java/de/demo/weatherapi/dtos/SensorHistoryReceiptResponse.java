@@ -0,0 +1,35 @@
+package de.demo.weatherapi.dtos;
+
+import lombok.Builder;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Sensor History Receipt Response DTO - confirmation that sensor history has been queued for ingestion, and how many
+ * of the queued records have since been written or failed.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+@Builder
+public record SensorHistoryReceiptResponse(
+        UUID receiptId,
+        UUID sensorId,
+        int queued,
+        int rejected,
+        int written,
+        int failed,
+        List<Failure> failures
+) {
+
+    /**
+     * Queued record that could not be written, by its index in the submitted readings.
+     */
+    public record Failure(
+            int index,
+            String reason
+    ) {
+    }
+
+}
@@ -7,7 +7,7 @@ import lombok.Builder;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.UUID;
+import java.time.ZoneOffset;
 
 /**
  * Sensor History Request DTO - used when adding new sensor history.
@@ -32,6 +32,42 @@ public record SensorHistoryRequest(
         Double windSpeedMax
 ) {
 
+    /**
+     * Earliest record date accepted, the first day of the Open-Meteo historical weather archive.
+     */
+    public static final LocalDate MIN_RECORD_DATE = LocalDate.of(1940, 1, 1);
+
+    /**
+     * Latest record date accepted, tomorrow in UTC, as the day may already have begun at sensors east of UTC.
+     *
+     * @return latest record date accepted
+     */
+    public static LocalDate maxRecordDate() {
+        return LocalDate.now(ZoneOffset.UTC).plusDays(1);
+    }
+
+    /**
+     * Check the mandatory sensor history details are present, and the record date is between
+     * {@link #MIN_RECORD_DATE} and {@link #maxRecordDate()}.
+     *
+     * @return reason the request is invalid, or null when it is valid
+     */
+    public String validate() {
+        if (recordDate == null) {
+            return "Missing record date";
+        }
+        if (recordDate.isBefore(MIN_RECORD_DATE)) {
+            return "Record date before " + MIN_RECORD_DATE;
+        }
+        if (recordDate.isAfter(maxRecordDate())) {
+            return "Record date in the future";
+        }
+        if (sunrise == null || sunset == null) {
+            return "Missing sunrise / sunset";
+        }
+        return null;
+    }
+
     /**
      * Conversion function to map a history request to history entity.
      *
@@ -40,7 +76,7 @@ public record SensorHistoryRequest(
      */
     public SensorHistoryEntity toEntity(SensorEntity parent) {
         return SensorHistoryEntity.builder()
-                .id(UUID.randomUUID())
+                .id(SensorHistoryEntity.createId(parent.getId(), recordDate))
                 .sensor(parent)
                 .recordDate(recordDate)
                 .rainfallSum(rainfallSum == null ? 0 : rainfallSum)
@@ -1,6 +1,7 @@
 package de.demo.weatherapi.dtos;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Builder;
 
 import java.time.LocalDate;
@@ -8,12 +9,14 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 /**
- * Sensor History Response DTO - formatted sensor history returned to consumer.
+ * Sensor History Response DTO - formatted sensor history returned to consumer. Readings of the metrics not requested
+ * are left null and not written.
  *
  * @author Dwight Egerton
  * @since 0.0.1
  */
 @Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public record SensorHistoryResponse(
         UUID id,
         SensorResponse sensor,
@@ -1,5 +1,6 @@
 package de.demo.weatherapi.dtos;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import de.demo.weatherapi.enums.CountryCodeEnum;
 import de.demo.weatherapi.enums.TimeZoneEnum;
 import lombok.Builder;
@@ -21,6 +22,8 @@ public record SensorResponse(
         TimeZoneEnum timeZone,
         Double elevation,
         Double longitude,
-        Double latitude
+        Double latitude,
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        UUID backfillJobId
 ) {
 }
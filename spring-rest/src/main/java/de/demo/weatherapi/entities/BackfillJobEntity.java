@@ -0,0 +1,80 @@
+package de.demo.weatherapi.entities;
+
+import de.demo.weatherapi.dtos.BackfillJobResponse;
+import de.demo.weatherapi.enums.BackfillStatusEnum;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Backfill Job Entity - storage of the progress of a sensor history backfill.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+@Builder
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+public class BackfillJobEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+    @ManyToOne(optional = false)
+    @JoinColumn(name = "sensor_id", nullable = false, updatable = false)
+    private SensorEntity sensor;
+    @Builder.Default
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private BackfillStatusEnum status = BackfillStatusEnum.PENDING;
+    @Builder.Default
+    @Column(nullable = false)
+    private Integer rowsFetched = 0;
+    @Builder.Default
+    @Column(nullable = false)
+    private Integer rowsLoaded = 0;
+    @Builder.Default
+    @Column(nullable = false)
+    private Integer failures = 0;
+    @Column(length = 1000)
+    private String message;
+    @Builder.Default
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdDateTime = LocalDateTime.now();
+    @Builder.Default
+    @Column(nullable = false)
+    private LocalDateTime modifiedDateTime = LocalDateTime.now();
+
+    /**
+     * Conversion function to map a backfill job entity to backfill job response.
+     *
+     * @return new backfill job response
+     */
+    public BackfillJobResponse toResponse() {
+        return BackfillJobResponse.builder()
+                .id(id)
+                .sensorId(sensor.getId())
+                .status(status)
+                .rowsFetched(rowsFetched)
+                .rowsLoaded(rowsLoaded)
+                .failures(failures)
+                .message(message)
+                .createdDateTime(createdDateTime)
+                .modifiedDateTime(modifiedDateTime)
+                .build();
+    }
+}
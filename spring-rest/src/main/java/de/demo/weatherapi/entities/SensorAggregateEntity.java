@@ -0,0 +1,118 @@
+package de.demo.weatherapi.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+
+/**
+ * Sensor Aggregate Entity - mapped result of the partial aggregate queries, over either the sensor history or its
+ * monthly rollups. Partial aggregates with the same key, and the same time bucket when grouped by one, are combined
+ * before being averaged. The period holds the day or month a partial covers, or the first day of its time bucket once
+ * combined, and is null for partials over the whole time period.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SensorAggregateEntity {
+    private String key;
+    private LocalDate period;
+    private Long recordCount;
+    private Double rainfallTotal;
+    private Double rainfallMin;
+    private Double rainfallMax;
+    private Double snowfallTotal;
+    private Double snowfallMin;
+    private Double snowfallMax;
+    private Double temperatureTotal;
+    private Double temperatureMin;
+    private Double temperatureMax;
+    private Long windDirectionTotal;
+    private Integer windDirectionMin;
+    private Integer windDirectionMax;
+    private Double windSpeedTotal;
+    private Double windSpeedMin;
+    private Double windSpeedMax;
+
+    public SensorAggregateEntity(String key, Long recordCount,
+                                 Double rainfallTotal, Double rainfallMin, Double rainfallMax,
+                                 Double snowfallTotal, Double snowfallMin, Double snowfallMax,
+                                 Double temperatureTotal, Double temperatureMin, Double temperatureMax,
+                                 Long windDirectionTotal, Integer windDirectionMin, Integer windDirectionMax,
+                                 Double windSpeedTotal, Double windSpeedMin, Double windSpeedMax) {
+        this(key, null, recordCount,
+                rainfallTotal, rainfallMin, rainfallMax,
+                snowfallTotal, snowfallMin, snowfallMax,
+                temperatureTotal, temperatureMin, temperatureMax,
+                windDirectionTotal, windDirectionMin, windDirectionMax,
+                windSpeedTotal, windSpeedMin, windSpeedMax);
+    }
+
+    /**
+     * Combine another partial aggregate, of the same key, into this one.
+     *
+     * @param other partial aggregate to add
+     * @return this aggregate
+     */
+    public SensorAggregateEntity combine(SensorAggregateEntity other) {
+        recordCount += other.recordCount;
+        rainfallTotal += other.rainfallTotal;
+        rainfallMin = Math.min(rainfallMin, other.rainfallMin);
+        rainfallMax = Math.max(rainfallMax, other.rainfallMax);
+        snowfallTotal += other.snowfallTotal;
+        snowfallMin = Math.min(snowfallMin, other.snowfallMin);
+        snowfallMax = Math.max(snowfallMax, other.snowfallMax);
+        temperatureTotal += other.temperatureTotal;
+        temperatureMin = Math.min(temperatureMin, other.temperatureMin);
+        temperatureMax = Math.max(temperatureMax, other.temperatureMax);
+        windDirectionTotal += other.windDirectionTotal;
+        windDirectionMin = Math.min(windDirectionMin, other.windDirectionMin);
+        windDirectionMax = Math.max(windDirectionMax, other.windDirectionMax);
+        windSpeedTotal += other.windSpeedTotal;
+        windSpeedMin = Math.min(windSpeedMin, other.windSpeedMin);
+        windSpeedMax = Math.max(windSpeedMax, other.windSpeedMax);
+        return this;
+    }
+
+    /**
+     * Conversion function to map the aggregate to its averages, rounded as the average queries did. Metrics left out
+     * of the aggregate are left out of the averages.
+     *
+     * @return new sensor average
+     */
+    public SensorAverageEntity toAverage() {
+        return new SensorAverageEntity(
+                key,
+                mean(rainfallTotal),
+                round(rainfallMin),
+                round(rainfallMax),
+                mean(snowfallTotal),
+                round(snowfallMin),
+                round(snowfallMax),
+                mean(temperatureTotal),
+                round(temperatureMin),
+                round(temperatureMax),
+                windDirectionTotal == null ? null : (int) Math.round((double) windDirectionTotal / recordCount),
+                windDirectionMin,
+                windDirectionMax,
+                mean(windSpeedTotal),
+                round(windSpeedMin),
+                round(windSpeedMax)
+        );
+    }
+
+    private Double mean(Double total) {
+        return total == null ? null : round(total / recordCount);
+    }
+
+    private static Double round(Double value) {
+        return value == null ? null : BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP).doubleValue();
+    }
+
+}
@@ -1,5 +1,6 @@
 package de.demo.weatherapi.entities;
 
+import de.demo.weatherapi.dtos.SensorRequest;
 import de.demo.weatherapi.dtos.SensorResponse;
 import de.demo.weatherapi.enums.CountryCodeEnum;
 import de.demo.weatherapi.enums.TimeZoneEnum;
@@ -58,6 +59,16 @@ public class SensorEntity {
      * @return new sensor response
      */
     public SensorResponse toResponse() {
+        return toResponse(null);
+    }
+
+    /**
+     * Conversion function to map a sensor entity to sensor response, along with its pending backfill job.
+     *
+     * @param backfillJobId ID of the backfill job loading the sensor history
+     * @return new sensor response
+     */
+    public SensorResponse toResponse(UUID backfillJobId) {
         return SensorResponse.builder()
                 .id(id)
                 .name(name)
@@ -67,6 +78,25 @@ public class SensorEntity {
                 .elevation(elevation)
                 .longitude(longitude)
                 .latitude(latitude)
+                .backfillJobId(backfillJobId)
+                .build();
+    }
+
+    /**
+     * Conversion function to map a sensor entity back to sensor request, used to look up its weather data.
+     *
+     * @return new sensor request
+     */
+    public SensorRequest toRequest() {
+        return SensorRequest.builder()
+                .name(name)
+                .description(description)
+                .countryCode(countryCode)
+                .timeZone(timeZone)
+                .elevation(elevation)
+                .longitude(longitude)
+                .latitude(latitude)
+                .loadSensorData(false)
                 .build();
     }
 }
@@ -1,24 +1,35 @@
 package de.demo.weatherapi.entities;
 
 import de.demo.weatherapi.dtos.SensorHistoryResponse;
+import de.demo.weatherapi.enums.MetricEnum;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Set;
 import java.util.UUID;
 
 /**
  * Sensor History Entity - storage of the respective sensor history data.
+ * <p>
+ * The unique (sensor_id, record_date) index, with the record date descending, doubles as the index of the per sensor
+ * range queries and is read in order by the per sensor history pages, latest first, as a sensor has one record a day.
+ * The record_date index, followed by the ID as the tiebreak between sensors, serves the range queries and history
+ * pages across all sensors. The database only reads an index in order when the page is ordered exactly as the index,
+ * so both are descending.
  *
  * @author Dwight Egerton
  * @since 0.0.1
@@ -28,6 +39,12 @@ import java.util.UUID;
 @Entity
 @NoArgsConstructor
 @AllArgsConstructor
+@Table(
+        indexes = {
+                @Index(name = "uk_sensor_history_sensor_date", columnList = "sensor_id, record_date DESC", unique = true),
+                @Index(name = "idx_sensor_history_date", columnList = "record_date DESC, id DESC")
+        }
+)
 public class SensorHistoryEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
@@ -66,25 +83,47 @@ public class SensorHistoryEntity {
     @Column(nullable = false)
     private LocalDateTime modifiedDateTime = LocalDateTime.now();
 
+    /**
+     * Derive the ID of the history record from its natural key, so the same sensor and day always map to the same ID.
+     *
+     * @param sensorId   respective ID of the Sensor
+     * @param recordDate date of the history record
+     * @return name based ID of the history record
+     */
+    public static UUID createId(UUID sensorId, LocalDate recordDate) {
+        return UUID.nameUUIDFromBytes((sensorId + "/" + recordDate).getBytes(StandardCharsets.UTF_8));
+    }
+
     /**
      * Conversion function to map a history entity to history response.
      *
      * @return new sensor history response
      */
     public SensorHistoryResponse toResponse() {
+        return toResponse(null);
+    }
+
+    /**
+     * Conversion function to map a history entity to history response, with only the readings of the metrics.
+     *
+     * @param metrics metrics to map, or null for all
+     * @return new sensor history response
+     */
+    public SensorHistoryResponse toResponse(Set<MetricEnum> metrics) {
+        boolean all = metrics == null || metrics.isEmpty();
         return SensorHistoryResponse.builder()
                 .id(id)
                 .sensor(sensor.toResponse())
                 .recordDate(recordDate)
-                .rainfallSum(rainfallSum)
-                .snowfallSum(snowfallSum)
+                .rainfallSum(all || metrics.contains(MetricEnum.RAINFALL) ? rainfallSum : null)
+                .snowfallSum(all || metrics.contains(MetricEnum.SNOWFALL) ? snowfallSum : null)
                 .sunrise(sunrise)
                 .sunset(sunset)
-                .temperatureMean(temperatureMean)
-                .temperatureMin(temperatureMin)
-                .temperatureMax(temperatureMax)
-                .windDirection(windDirection)
-                .windSpeedMax(windSpeedMax)
+                .temperatureMean(all || metrics.contains(MetricEnum.TEMPERATURE) ? temperatureMean : null)
+                .temperatureMin(all || metrics.contains(MetricEnum.TEMPERATURE) ? temperatureMin : null)
+                .temperatureMax(all || metrics.contains(MetricEnum.TEMPERATURE) ? temperatureMax : null)
+                .windDirection(all || metrics.contains(MetricEnum.WIND_DIRECTION) ? windDirection : null)
+                .windSpeedMax(all || metrics.contains(MetricEnum.WIND_SPEED) ? windSpeedMax : null)
                 .build();
     }
 }
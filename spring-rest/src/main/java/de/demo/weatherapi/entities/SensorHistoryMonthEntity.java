@@ -0,0 +1,92 @@
+package de.demo.weatherapi.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Sensor History Month Entity - monthly rollup of the respective sensor history, holding the count, total, minimum
+ * and maximum of each metric. Maintained by {@link de.demo.weatherapi.repositories.SensorHistoryBulkRepository}
+ * whenever sensor history is written.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+@Builder
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(
+        uniqueConstraints = @UniqueConstraint(name = "uk_sensor_history_month_sensor_month", columnNames = {"sensor_id", "month_start"}),
+        indexes = @Index(name = "idx_sensor_history_month_month", columnList = "month_start")
+)
+public class SensorHistoryMonthEntity {
+    @Id
+    private UUID id;
+    @ManyToOne(optional = false)
+    @JoinColumn(name = "sensor_id", nullable = false, updatable = false)
+    private SensorEntity sensor;
+    @Column(nullable = false)
+    private LocalDate monthStart;
+    @Column(nullable = false)
+    private Long recordCount;
+    @Column(nullable = false)
+    private Double rainfallTotal;
+    @Column(nullable = false)
+    private Double rainfallMin;
+    @Column(nullable = false)
+    private Double rainfallMax;
+    @Column(nullable = false)
+    private Double snowfallTotal;
+    @Column(nullable = false)
+    private Double snowfallMin;
+    @Column(nullable = false)
+    private Double snowfallMax;
+    @Column(nullable = false)
+    private Double temperatureTotal;
+    @Column(nullable = false)
+    private Double temperatureMin;
+    @Column(nullable = false)
+    private Double temperatureMax;
+    @Column(nullable = false)
+    private Long windDirectionTotal;
+    @Column(nullable = false)
+    private Integer windDirectionMin;
+    @Column(nullable = false)
+    private Integer windDirectionMax;
+    @Column(nullable = false)
+    private Double windSpeedTotal;
+    @Column(nullable = false)
+    private Double windSpeedMin;
+    @Column(nullable = false)
+    private Double windSpeedMax;
+    @Builder.Default
+    @Column(nullable = false)
+    private LocalDateTime modifiedDateTime = LocalDateTime.now();
+
+    /**
+     * Derive the ID of the rollup from its natural key, so the same sensor and month always map to the same ID.
+     *
+     * @param sensorId   respective ID of the Sensor
+     * @param monthStart first day of the month
+     * @return name based ID of the rollup
+     */
+    public static UUID createId(UUID sensorId, LocalDate monthStart) {
+        return UUID.nameUUIDFromBytes((sensorId + "/month/" + monthStart).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,81 @@
+package de.demo.weatherapi.entities;
+
+import de.demo.weatherapi.dtos.SensorHistoryResponse;
+import de.demo.weatherapi.dtos.SensorResponse;
+import de.demo.weatherapi.enums.CountryCodeEnum;
+import de.demo.weatherapi.enums.MetricEnum;
+import de.demo.weatherapi.enums.TimeZoneEnum;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Sensor History Row Entity - mapped result of the history read queries, a sensor history record joined with the
+ * columns of its Sensor in one statement. Not managed, so it is neither dirty checked nor held by the persistence
+ * context.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SensorHistoryRowEntity {
+    private UUID id;
+    private UUID sensorId;
+    private String sensorName;
+    private String sensorDescription;
+    private CountryCodeEnum sensorCountryCode;
+    private TimeZoneEnum sensorTimeZone;
+    private Double sensorElevation;
+    private Double sensorLongitude;
+    private Double sensorLatitude;
+    private LocalDate recordDate;
+    private Double rainfallSum;
+    private Double snowfallSum;
+    private LocalDateTime sunrise;
+    private LocalDateTime sunset;
+    private Double temperatureMean;
+    private Double temperatureMin;
+    private Double temperatureMax;
+    private Integer windDirection;
+    private Double windSpeedMax;
+
+    /**
+     * Conversion function to map a history row to history response, with only the readings of the metrics.
+     *
+     * @param metrics metrics to map, or null for all
+     * @return new sensor history response
+     */
+    public SensorHistoryResponse toResponse(Set<MetricEnum> metrics) {
+        boolean all = metrics == null || metrics.isEmpty();
+        return SensorHistoryResponse.builder()
+                .id(id)
+                .sensor(SensorResponse.builder()
+                        .id(sensorId)
+                        .name(sensorName)
+                        .description(sensorDescription)
+                        .countryCode(sensorCountryCode)
+                        .timeZone(sensorTimeZone)
+                        .elevation(sensorElevation)
+                        .longitude(sensorLongitude)
+                        .latitude(sensorLatitude)
+                        .build())
+                .recordDate(recordDate)
+                .rainfallSum(all || metrics.contains(MetricEnum.RAINFALL) ? rainfallSum : null)
+                .snowfallSum(all || metrics.contains(MetricEnum.SNOWFALL) ? snowfallSum : null)
+                .sunrise(sunrise)
+                .sunset(sunset)
+                .temperatureMean(all || metrics.contains(MetricEnum.TEMPERATURE) ? temperatureMean : null)
+                .temperatureMin(all || metrics.contains(MetricEnum.TEMPERATURE) ? temperatureMin : null)
+                .temperatureMax(all || metrics.contains(MetricEnum.TEMPERATURE) ? temperatureMax : null)
+                .windDirection(all || metrics.contains(MetricEnum.WIND_DIRECTION) ? windDirection : null)
+                .windSpeedMax(all || metrics.contains(MetricEnum.WIND_SPEED) ? windSpeedMax : null)
+                .build();
+    }
+}
@@ -0,0 +1,44 @@
+package de.demo.weatherapi.enums;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import lombok.Getter;
+
+/**
+ * Backfill Status ENUM - utility enum to map the state of a sensor history backfill job.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+@Getter
+public enum BackfillStatusEnum {
+
+    PENDING("Pending", false),
+    RUNNING("Running", false),
+    COMPLETED("Completed", true),
+    FAILED("Failed", true);
+
+    private final String label;
+
+    private final boolean finished;
+
+    BackfillStatusEnum(String label, boolean finished) {
+        this.label = label;
+        this.finished = finished;
+    }
+
+    public static BackfillStatusEnum fromString(String value) {
+        if (value != null) {
+            for (BackfillStatusEnum t : values()) {
+                if (value.equalsIgnoreCase(t.name())) return t;
+            }
+        }
+        return null;
+    }
+
+    @JsonValue
+    @Override
+    public String toString() {
+        return getLabel();
+    }
+
+}
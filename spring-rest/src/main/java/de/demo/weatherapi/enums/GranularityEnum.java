@@ -0,0 +1,82 @@
+package de.demo.weatherapi.enums;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.IsoFields;
+
+/**
+ * Granularity ENUM - size of the time buckets the sensor history averages are grouped by.
+ * <p>
+ * Each bucket is identified by an integer computed from the epoch day: the epoch day itself, the number of whole
+ * weeks, starting Mondays, since the epoch, the number of months since year zero, or the year.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+public enum GranularityEnum {
+
+    DAY,
+    WEEK,
+    MONTH,
+    YEAR;
+
+    /**
+     * Bucket holding the day.
+     *
+     * @param epochDay epoch day
+     * @return bucket number
+     */
+    public int bucket(long epochDay) {
+        return switch (this) {
+            case DAY -> (int) epochDay;
+            // the epoch day zero is a Thursday, the week holding it starts three days earlier
+            case WEEK -> (int) Math.floorDiv(epochDay + 3, 7);
+            case MONTH -> {
+                LocalDate date = LocalDate.ofEpochDay(epochDay);
+                yield date.getYear() * 12 + date.getMonthValue() - 1;
+            }
+            case YEAR -> LocalDate.ofEpochDay(epochDay).getYear();
+        };
+    }
+
+    /**
+     * First day of the bucket.
+     *
+     * @param bucket bucket number
+     * @return first day of the bucket
+     */
+    public LocalDate start(int bucket) {
+        return switch (this) {
+            case DAY -> LocalDate.ofEpochDay(bucket);
+            case WEEK -> LocalDate.ofEpochDay(bucket * 7L - 3);
+            case MONTH -> LocalDate.of(Math.floorDiv(bucket, 12), Math.floorMod(bucket, 12) + 1, 1);
+            case YEAR -> LocalDate.of(bucket, 1, 1);
+        };
+    }
+
+    /**
+     * Whether every bucket is made up of whole months, so it can be read from the monthly rollups.
+     *
+     * @return true for months and years
+     */
+    public boolean isMonthAligned() {
+        return this == MONTH || this == YEAR;
+    }
+
+    /**
+     * Label of the bucket starting on the day, e.g. 2023-05-14, 2023-W19, 2023-05 or 2023.
+     *
+     * @param start first day of the bucket
+     * @return label of the bucket
+     */
+    public String label(LocalDate start) {
+        return switch (this) {
+            case DAY -> start.toString();
+            case WEEK -> start.get(IsoFields.WEEK_BASED_YEAR) + "-W"
+                    + String.format("%02d", start.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+            case MONTH -> YearMonth.from(start).toString();
+            case YEAR -> String.valueOf(start.getYear());
+        };
+    }
+
+}
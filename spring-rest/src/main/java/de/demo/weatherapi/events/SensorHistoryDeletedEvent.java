@@ -0,0 +1,14 @@
+package de.demo.weatherapi.events;
+
+import java.util.UUID;
+
+/**
+ * Sensor History Deleted Event - published whenever all the sensor history of a sensor is removed.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+public record SensorHistoryDeletedEvent(
+        UUID sensorId
+) {
+}
@@ -0,0 +1,16 @@
+package de.demo.weatherapi.events;
+
+import de.demo.weatherapi.entities.SensorHistoryEntity;
+
+import java.util.List;
+
+/**
+ * Sensor History Written Event - published whenever sensor history records are inserted or replaced.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+public record SensorHistoryWrittenEvent(
+        List<SensorHistoryEntity> history
+) {
+}
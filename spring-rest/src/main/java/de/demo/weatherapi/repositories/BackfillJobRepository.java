@@ -0,0 +1,38 @@
+package de.demo.weatherapi.repositories;
+
+import de.demo.weatherapi.entities.BackfillJobEntity;
+import de.demo.weatherapi.enums.BackfillStatusEnum;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Backfill Job Repository - CRUD repository persist sensor history backfill jobs.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+public interface BackfillJobRepository extends CrudRepository<BackfillJobEntity, UUID> {
+
+    /**
+     * Custom query to find the most recent backfill job of the specified sensor.
+     *
+     * @param sensorId respective ID of the Sensor
+     * @return latest backfill job for the sensor
+     */
+    @Query("SELECT j FROM BackfillJobEntity j WHERE j.sensor.id = :sensorId ORDER BY j.createdDateTime DESC LIMIT 1")
+    Optional<BackfillJobEntity> findLatestBySensor(UUID sensorId);
+
+    /**
+     * Find all the backfill jobs in one of the specified states.
+     *
+     * @param statuses states of the backfill jobs to find
+     * @return list of matching backfill jobs
+     */
+    List<BackfillJobEntity> findAllByStatusIn(Collection<BackfillStatusEnum> statuses);
+
+}
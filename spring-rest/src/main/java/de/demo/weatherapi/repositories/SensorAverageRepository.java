@@ -1,6 +1,6 @@
 package de.demo.weatherapi.repositories;
 
-import de.demo.weatherapi.entities.SensorAverageEntity;
+import de.demo.weatherapi.entities.SensorAggregateEntity;
 import de.demo.weatherapi.entities.SensorHistoryEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -11,6 +11,11 @@ import java.util.UUID;
 
 /**
  * Sensor Average Repository - JPA repository to map queries for averaged sensor history metrics.
+ * <p>
+ * The queries return partial aggregates, either over the sensor history or over its monthly rollups, so that whole
+ * months can be read from the rollups and only the days of partial months from the history itself. The partials are
+ * either grouped by sensor over the whole time period, or one per sensor and day or month, carrying that day or month
+ * as their period to be grouped into time buckets by the caller.
  *
  * @author Dwight Egerton
  * @since 0.0.1
@@ -18,71 +23,217 @@ import java.util.UUID;
 public interface SensorAverageRepository extends JpaRepository<SensorHistoryEntity, UUID> {
 
     /**
-     * Find Sensor history averages within the respective time period.
+     * Aggregate the Sensor history within the respective time period, keyed by the sensor name.
      *
      * @param startDate start of the time period filter
      * @param endDate   end of the time period filter
-     * @return list of averaged sensor history grouped by the sensors
+     * @return list of aggregated sensor history grouped by the sensors
      */
     @Query("""
              SELECT
-                new de.demo.weatherapi.entities.SensorAverageEntity(
-                    CAST(h.sensor.id AS STRING),
-                    ROUND(AVG(h.rainfallSum), 2),
-                    ROUND(MIN(h.rainfallSum), 2),
-                    ROUND(MAX(h.rainfallSum), 2),
-                    ROUND(AVG(h.snowfallSum), 2),
-                    ROUND(MIN(h.snowfallSum), 2),
-                    ROUND(MAX(h.snowfallSum), 2),
-                    ROUND(AVG(h.temperatureMean), 2),
-                    ROUND(MIN(h.temperatureMin), 2),
-                    ROUND(MAX(h.temperatureMax), 2),
-                    CAST(AVG(h.windDirection) AS INTEGER),
-                    CAST(MIN(h.windDirection) AS INTEGER),
-                    CAST(MAX(h.windDirection) AS INTEGER),
-                    ROUND(AVG(h.windSpeedMax), 2),
-                    ROUND(MIN(h.windSpeedMax), 2),
-                    ROUND(MAX(h.windSpeedMax), 2)
+                new de.demo.weatherapi.entities.SensorAggregateEntity(
+                    s.name,
+                    COUNT(h),
+                    SUM(h.rainfallSum),
+                    MIN(h.rainfallSum),
+                    MAX(h.rainfallSum),
+                    SUM(h.snowfallSum),
+                    MIN(h.snowfallSum),
+                    MAX(h.snowfallSum),
+                    SUM(h.temperatureMean),
+                    MIN(h.temperatureMin),
+                    MAX(h.temperatureMax),
+                    SUM(h.windDirection),
+                    MIN(h.windDirection),
+                    MAX(h.windDirection),
+                    SUM(h.windSpeedMax),
+                    MIN(h.windSpeedMax),
+                    MAX(h.windSpeedMax)
                 )
                FROM SensorHistoryEntity h
+               JOIN h.sensor s
               WHERE h.recordDate BETWEEN :startDate AND :endDate
-              GROUP BY h.sensor.id
+              GROUP BY s.id, s.name
             """)
-    List<SensorAverageEntity> findAverageInDateRange(LocalDate startDate, LocalDate endDate);
+    List<SensorAggregateEntity> findAggregateInDateRange(LocalDate startDate, LocalDate endDate);
 
     /**
-     * For the specified sensor, get the history averages within the respective time period.
+     * Aggregate the monthly Sensor history rollups within the respective months, keyed by the sensor name.
+     *
+     * @param firstMonth first day of the first month
+     * @param lastMonth  first day of the last month
+     * @return list of aggregated sensor history grouped by the sensors
+     */
+    @Query("""
+             SELECT
+                new de.demo.weatherapi.entities.SensorAggregateEntity(
+                    s.name,
+                    SUM(m.recordCount),
+                    SUM(m.rainfallTotal),
+                    MIN(m.rainfallMin),
+                    MAX(m.rainfallMax),
+                    SUM(m.snowfallTotal),
+                    MIN(m.snowfallMin),
+                    MAX(m.snowfallMax),
+                    SUM(m.temperatureTotal),
+                    MIN(m.temperatureMin),
+                    MAX(m.temperatureMax),
+                    SUM(m.windDirectionTotal),
+                    MIN(m.windDirectionMin),
+                    MAX(m.windDirectionMax),
+                    SUM(m.windSpeedTotal),
+                    MIN(m.windSpeedMin),
+                    MAX(m.windSpeedMax)
+                )
+               FROM SensorHistoryMonthEntity m
+               JOIN m.sensor s
+              WHERE m.monthStart BETWEEN :firstMonth AND :lastMonth
+              GROUP BY s.id, s.name
+            """)
+    List<SensorAggregateEntity> findMonthAggregateInDateRange(LocalDate firstMonth, LocalDate lastMonth);
+
+    /**
+     * Get the Sensor history within the respective time period as partial aggregates, to be grouped into time buckets.
+     *
+     * @param startDate start of the time period filter
+     * @param endDate   end of the time period filter
+     * @return list of sensor history, one per sensor and day, keyed by the sensor name
+     */
+    @Query("""
+             SELECT
+                new de.demo.weatherapi.entities.SensorAggregateEntity(
+                    s.name,
+                    h.recordDate,
+                    CAST(1 AS Long),
+                    h.rainfallSum,
+                    h.rainfallSum,
+                    h.rainfallSum,
+                    h.snowfallSum,
+                    h.snowfallSum,
+                    h.snowfallSum,
+                    h.temperatureMean,
+                    h.temperatureMin,
+                    h.temperatureMax,
+                    CAST(h.windDirection AS Long),
+                    h.windDirection,
+                    h.windDirection,
+                    h.windSpeedMax,
+                    h.windSpeedMax,
+                    h.windSpeedMax
+                )
+               FROM SensorHistoryEntity h
+               JOIN h.sensor s
+              WHERE h.recordDate BETWEEN :startDate AND :endDate
+            """)
+    List<SensorAggregateEntity> findAggregateByDayInDateRange(LocalDate startDate, LocalDate endDate);
+
+    /**
+     * Get the monthly Sensor history rollups within the respective months, to be grouped into time buckets.
+     *
+     * @param firstMonth first day of the first month
+     * @param lastMonth  first day of the last month
+     * @return list of aggregated sensor history, one per sensor and month, keyed by the sensor name
+     */
+    @Query("""
+             SELECT
+                new de.demo.weatherapi.entities.SensorAggregateEntity(
+                    s.name,
+                    m.monthStart,
+                    m.recordCount,
+                    m.rainfallTotal,
+                    m.rainfallMin,
+                    m.rainfallMax,
+                    m.snowfallTotal,
+                    m.snowfallMin,
+                    m.snowfallMax,
+                    m.temperatureTotal,
+                    m.temperatureMin,
+                    m.temperatureMax,
+                    m.windDirectionTotal,
+                    m.windDirectionMin,
+                    m.windDirectionMax,
+                    m.windSpeedTotal,
+                    m.windSpeedMin,
+                    m.windSpeedMax
+                )
+               FROM SensorHistoryMonthEntity m
+               JOIN m.sensor s
+              WHERE m.monthStart BETWEEN :firstMonth AND :lastMonth
+            """)
+    List<SensorAggregateEntity> findAggregateByMonthInDateRange(LocalDate firstMonth, LocalDate lastMonth);
+
+    /**
+     * For the specified sensor, get the history within the respective time period as partial aggregates.
      *
      * @param sensorId  respective ID of the Sensor
      * @param startDate start of the time period filter
      * @param endDate   end of the time period filter
-     * @return list of averaged sensor history grouped by month
+     * @return list of sensor history, one per sensor and day, keyed by the sensor name
      */
     @Query("""
              SELECT
-                new de.demo.weatherapi.entities.SensorAverageEntity(
-                    CAST(TO_CHAR(h.recordDate,'yyyy-MM') AS STRING),
-                    ROUND(AVG(h.rainfallSum), 2),
-                    ROUND(MIN(h.rainfallSum), 2),
-                    ROUND(MAX(h.rainfallSum), 2),
-                    ROUND(AVG(h.snowfallSum), 2),
-                    ROUND(MIN(h.snowfallSum), 2),
-                    ROUND(MAX(h.snowfallSum), 2),
-                    ROUND(AVG(h.temperatureMean), 2),
-                    ROUND(MIN(h.temperatureMin), 2),
-                    ROUND(MAX(h.temperatureMax), 2),
-                    CAST(AVG(h.windDirection) AS INTEGER),
-                    CAST(MIN(h.windDirection) AS INTEGER),
-                    CAST(MAX(h.windDirection) AS INTEGER),
-                    ROUND(AVG(h.windSpeedMax), 2),
-                    ROUND(MIN(h.windSpeedMax), 2),
-                    ROUND(MAX(h.windSpeedMax), 2)
+                new de.demo.weatherapi.entities.SensorAggregateEntity(
+                    s.name,
+                    h.recordDate,
+                    CAST(1 AS Long),
+                    h.rainfallSum,
+                    h.rainfallSum,
+                    h.rainfallSum,
+                    h.snowfallSum,
+                    h.snowfallSum,
+                    h.snowfallSum,
+                    h.temperatureMean,
+                    h.temperatureMin,
+                    h.temperatureMax,
+                    CAST(h.windDirection AS Long),
+                    h.windDirection,
+                    h.windDirection,
+                    h.windSpeedMax,
+                    h.windSpeedMax,
+                    h.windSpeedMax
                 )
                FROM SensorHistoryEntity h
-              WHERE h.sensor.id = :sensorId
+               JOIN h.sensor s
+              WHERE s.id = :sensorId
                 AND h.recordDate BETWEEN :startDate AND :endDate
-              GROUP BY CAST(TO_CHAR(h.recordDate,'yyyy-MM') AS STRING)
             """)
-    List<SensorAverageEntity> findSensorAverageInDateRange(UUID sensorId, LocalDate startDate, LocalDate endDate);
+    List<SensorAggregateEntity> findSensorAggregateByDayInDateRange(UUID sensorId, LocalDate startDate, LocalDate endDate);
+
+    /**
+     * For the specified sensor, get the monthly history rollups within the respective months.
+     *
+     * @param sensorId   respective ID of the Sensor
+     * @param firstMonth first day of the first month
+     * @param lastMonth  first day of the last month
+     * @return list of aggregated sensor history, one per sensor and month, keyed by the sensor name
+     */
+    @Query("""
+             SELECT
+                new de.demo.weatherapi.entities.SensorAggregateEntity(
+                    s.name,
+                    m.monthStart,
+                    m.recordCount,
+                    m.rainfallTotal,
+                    m.rainfallMin,
+                    m.rainfallMax,
+                    m.snowfallTotal,
+                    m.snowfallMin,
+                    m.snowfallMax,
+                    m.temperatureTotal,
+                    m.temperatureMin,
+                    m.temperatureMax,
+                    m.windDirectionTotal,
+                    m.windDirectionMin,
+                    m.windDirectionMax,
+                    m.windSpeedTotal,
+                    m.windSpeedMin,
+                    m.windSpeedMax
+                )
+               FROM SensorHistoryMonthEntity m
+               JOIN m.sensor s
+              WHERE s.id = :sensorId
+                AND m.monthStart BETWEEN :firstMonth AND :lastMonth
+            """)
+    List<SensorAggregateEntity> findSensorAggregateByMonthInDateRange(UUID sensorId, LocalDate firstMonth, LocalDate lastMonth);
 
 }
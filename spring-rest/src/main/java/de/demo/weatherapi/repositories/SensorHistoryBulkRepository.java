@@ -0,0 +1,26 @@
+package de.demo.weatherapi.repositories;
+
+import de.demo.weatherapi.entities.SensorHistoryEntity;
+
+import java.util.List;
+
+/**
+ * Sensor History Bulk Repository - repository fragment to write sensor history in JDBC batches.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+public interface SensorHistoryBulkRepository {
+
+    /**
+     * Insert, or replace when the sensor already has history for that day, all the sensor history records as a
+     * single JDBC batch of MERGE statements, within one transaction. The monthly rollups of the months written to are
+     * recalculated within the same transaction, and a
+     * {@link de.demo.weatherapi.events.SensorHistoryWrittenEvent} is published.
+     *
+     * @param entities sensor history records to write
+     * @return number of records written
+     */
+    int upsertAll(List<SensorHistoryEntity> entities);
+
+}
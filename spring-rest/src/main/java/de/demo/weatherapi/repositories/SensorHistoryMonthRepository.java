@@ -0,0 +1,27 @@
+package de.demo.weatherapi.repositories;
+
+import de.demo.weatherapi.entities.SensorHistoryMonthEntity;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.UUID;
+
+/**
+ * Sensor History Month Repository - CRUD repository persist the monthly sensor history rollups.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+public interface SensorHistoryMonthRepository extends CrudRepository<SensorHistoryMonthEntity, UUID> {
+
+    /**
+     * Remove all monthly history rollups for the specific sensor.
+     *
+     * @param sensorId parent ID of the Sensor
+     */
+    @Modifying
+    @Query("DELETE FROM SensorHistoryMonthEntity m WHERE m.sensor.id = :sensorId")
+    void deleteBySensor(UUID sensorId);
+
+}
@@ -1,31 +1,108 @@
 package de.demo.weatherapi.repositories;
 
 import de.demo.weatherapi.entities.SensorHistoryEntity;
+import de.demo.weatherapi.entities.SensorHistoryRowEntity;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 /**
  * Sensor History Repository - CRUD repository persist sensor history.
+ * <p>
+ * The history pages are read by keyset, latest record date first and then by descending ID, in the order of the
+ * descending indexes. A following page is bounded by the record date of its cursor, so the index range it reads starts
+ * at the cursor rather than being skipped over, and deep pages cost the same as the first. The per sensor pages have one
+ * record a day, so they are ordered by the record date alone, and by the sensor, which is constant, only for the
+ * database to read them in the order of the unique (sensor_id, record_date) index.
+ * <p>
+ * The history streams are read in the same order, so the first rows are returned without sorting the whole range, and
+ * are fetched {@value #STREAM_FETCH_SIZE} rows at a time. They must be read, and closed, within a transaction.
+ * <p>
+ * The pages and streams select the history rows joined with the columns of their Sensor into
+ * {@link SensorHistoryRowEntity}, in one statement and without loading, or dirty checking, the entities.
  *
  * @author Dwight Egerton
  * @since 0.0.1
  */
-public interface SensorHistoryRepository extends CrudRepository<SensorHistoryEntity, UUID> {
+public interface SensorHistoryRepository extends CrudRepository<SensorHistoryEntity, UUID>, SensorHistoryBulkRepository {
 
     /**
-     * Custom query to find sensor history for the specified time period.
+     * Number of rows fetched from the database at a time by the history streams.
+     */
+    String STREAM_FETCH_SIZE = "500";
+
+    /**
+     * Select list of the history read queries, mapping each row with the columns of its Sensor.
+     */
+    String SELECT_ROWS = """
+             SELECT
+                new de.demo.weatherapi.entities.SensorHistoryRowEntity(
+                    h.id,
+                    s.id,
+                    s.name,
+                    s.description,
+                    s.countryCode,
+                    s.timeZone,
+                    s.elevation,
+                    s.longitude,
+                    s.latitude,
+                    h.recordDate,
+                    h.rainfallSum,
+                    h.snowfallSum,
+                    h.sunrise,
+                    h.sunset,
+                    h.temperatureMean,
+                    h.temperatureMin,
+                    h.temperatureMax,
+                    h.windDirection,
+                    h.windSpeedMax
+                )
+               FROM SensorHistoryEntity h
+               JOIN h.sensor s
+            """;
+
+    /**
+     * Custom query to find the first page of sensor history for the specified time period.
      *
      * @param startDate start of the time period filter
      * @param endDate   end of the time period filter
-     * @return list of sensor history for the time period
+     * @param limit     maximum number of records
+     * @return page of sensor history for the time period
+     */
+    @Query(SELECT_ROWS + "WHERE h.recordDate BETWEEN :startDate AND :endDate ORDER BY h.recordDate DESC, h.id DESC")
+    List<SensorHistoryRowEntity> findPageByDateRange(LocalDate startDate, LocalDate endDate, Limit limit);
+
+    /**
+     * Custom query to find the page of sensor history for the specified time period following the cursor.
+     *
+     * @param startDate  start of the time period filter
+     * @param recordDate record date of the cursor
+     * @param id         ID of the cursor
+     * @param limit      maximum number of records
+     * @return page of sensor history for the time period
      */
-    @Query("SELECT h FROM SensorHistoryEntity h WHERE h.recordDate BETWEEN :startDate AND :endDate ORDER BY h.recordDate DESC")
-    List<SensorHistoryEntity> findAllByDateRange(LocalDate startDate, LocalDate endDate);
+    @Query(SELECT_ROWS + "WHERE h.recordDate BETWEEN :startDate AND :recordDate AND (h.recordDate < :recordDate OR h.id < :id) ORDER BY h.recordDate DESC, h.id DESC")
+    List<SensorHistoryRowEntity> findPageByDateRangeAfter(LocalDate startDate, LocalDate recordDate, UUID id, Limit limit);
+
+    /**
+     * Custom query to stream the sensor history for the specified time period, latest first.
+     *
+     * @param startDate start of the time period filter
+     * @param endDate   end of the time period filter
+     * @return stream of sensor history for the time period
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query(SELECT_ROWS + "WHERE h.recordDate BETWEEN :startDate AND :endDate ORDER BY h.recordDate DESC, h.id DESC")
+    Stream<SensorHistoryRowEntity> streamByDateRange(LocalDate startDate, LocalDate endDate);
 
     /**
      * Custom query to find specific sensor history.
@@ -44,9 +121,57 @@ public interface SensorHistoryRepository extends CrudRepository<SensorHistoryEnt
      * @param endDate   end of the time period filter
      * @return list of sensor history for the time period
      */
-    @Query("SELECT h FROM SensorHistoryEntity h WHERE h.sensor.id = :sensorId AND h.recordDate BETWEEN :startDate AND :endDate ORDER BY h.recordDate DESC")
+    @Query("SELECT h FROM SensorHistoryEntity h WHERE h.sensor.id = :sensorId AND h.recordDate BETWEEN :startDate AND :endDate")
     List<SensorHistoryEntity> findAllBySensorAndDateRange(UUID sensorId, LocalDate startDate, LocalDate endDate);
 
+    /**
+     * For the specified sensor, get the first page of history within the respective time period.
+     *
+     * @param sensorId  respective ID of the Sensor
+     * @param startDate start of the time period filter
+     * @param endDate   end of the time period filter
+     * @param limit     maximum number of records
+     * @return page of sensor history for the time period
+     */
+    @Query(SELECT_ROWS + "WHERE h.sensor.id = :sensorId AND h.recordDate BETWEEN :startDate AND :endDate ORDER BY h.sensor.id, h.recordDate DESC")
+    List<SensorHistoryRowEntity> findPageBySensorAndDateRange(UUID sensorId, LocalDate startDate, LocalDate endDate, Limit limit);
+
+    /**
+     * For the specified sensor, get the page of history within the respective time period following the cursor.
+     *
+     * @param sensorId   respective ID of the Sensor
+     * @param startDate  start of the time period filter
+     * @param recordDate record date of the cursor
+     * @param id         ID of the cursor
+     * @param limit      maximum number of records
+     * @return page of sensor history for the time period
+     */
+    @Query(SELECT_ROWS + "WHERE h.sensor.id = :sensorId AND h.recordDate BETWEEN :startDate AND :recordDate AND (h.recordDate < :recordDate OR h.id < :id) ORDER BY h.sensor.id, h.recordDate DESC")
+    List<SensorHistoryRowEntity> findPageBySensorAndDateRangeAfter(UUID sensorId, LocalDate startDate, LocalDate recordDate, UUID id, Limit limit);
+
+    /**
+     * For the specified sensor, stream the history within the respective time period, latest first.
+     *
+     * @param sensorId  respective ID of the Sensor
+     * @param startDate start of the time period filter
+     * @param endDate   end of the time period filter
+     * @return stream of sensor history for the time period
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query(SELECT_ROWS + "WHERE h.sensor.id = :sensorId AND h.recordDate BETWEEN :startDate AND :endDate ORDER BY h.sensor.id, h.recordDate DESC")
+    Stream<SensorHistoryRowEntity> streamBySensorAndDateRange(UUID sensorId, LocalDate startDate, LocalDate endDate);
+
+    /**
+     * For the specified sensor, get the days within the respective time period that history is stored for.
+     *
+     * @param sensorId  respective ID of the Sensor
+     * @param startDate start of the time period filter
+     * @param endDate   end of the time period filter
+     * @return ordered list of the days with sensor history
+     */
+    @Query("SELECT h.recordDate FROM SensorHistoryEntity h WHERE h.sensor.id = :sensorId AND h.recordDate BETWEEN :startDate AND :endDate ORDER BY h.recordDate")
+    List<LocalDate> findRecordDatesBySensorAndDateRange(UUID sensorId, LocalDate startDate, LocalDate endDate);
+
     /**
      * Remove all sensor history for the specific sensor.
      *
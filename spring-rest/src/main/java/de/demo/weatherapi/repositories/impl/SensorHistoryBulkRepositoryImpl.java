@@ -0,0 +1,192 @@
+package de.demo.weatherapi.repositories.impl;
+
+import de.demo.weatherapi.entities.SensorHistoryEntity;
+import de.demo.weatherapi.entities.SensorHistoryMonthEntity;
+import de.demo.weatherapi.events.SensorHistoryWrittenEvent;
+import de.demo.weatherapi.repositories.SensorHistoryBulkRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Sensor History Bulk Repository Impl - implements the bulk sensor history repository fragment.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+@RequiredArgsConstructor
+@Slf4j
+public class SensorHistoryBulkRepositoryImpl implements SensorHistoryBulkRepository {
+
+    private static final String UPSERT_SQL = """
+            MERGE INTO sensor_history_entity h
+            USING (VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)) AS s (
+                id, sensor_id, record_date, rainfall_sum, snowfall_sum, sunrise, sunset,
+                temperature_mean, temperature_min, temperature_max, wind_direction, wind_speed_max,
+                modified_date_time
+            )
+               ON h.sensor_id = s.sensor_id
+              AND h.record_date = s.record_date
+             WHEN MATCHED THEN UPDATE SET
+                rainfall_sum = s.rainfall_sum,
+                snowfall_sum = s.snowfall_sum,
+                sunrise = s.sunrise,
+                sunset = s.sunset,
+                temperature_mean = s.temperature_mean,
+                temperature_min = s.temperature_min,
+                temperature_max = s.temperature_max,
+                wind_direction = s.wind_direction,
+                wind_speed_max = s.wind_speed_max,
+                modified_date_time = s.modified_date_time
+             WHEN NOT MATCHED THEN INSERT (
+                id, sensor_id, record_date, rainfall_sum, snowfall_sum, sunrise, sunset,
+                temperature_mean, temperature_min, temperature_max, wind_direction, wind_speed_max,
+                modified_date_time
+            ) VALUES (
+                s.id, s.sensor_id, s.record_date, s.rainfall_sum, s.snowfall_sum, s.sunrise, s.sunset,
+                s.temperature_mean, s.temperature_min, s.temperature_max, s.wind_direction, s.wind_speed_max,
+                s.modified_date_time
+            )
+            """;
+
+    private static final String LOCK_SQL = "SELECT id FROM sensor_entity WHERE id = ? FOR UPDATE";
+
+    private static final String ROLLUP_SQL = """
+            MERGE INTO sensor_history_month_entity m
+            USING (
+                SELECT CAST(? AS UUID) AS id, sensor_id, CAST(? AS DATE) AS month_start,
+                       COUNT(*) AS record_count,
+                       SUM(rainfall_sum) AS rainfall_total, MIN(rainfall_sum) AS rainfall_min, MAX(rainfall_sum) AS rainfall_max,
+                       SUM(snowfall_sum) AS snowfall_total, MIN(snowfall_sum) AS snowfall_min, MAX(snowfall_sum) AS snowfall_max,
+                       SUM(temperature_mean) AS temperature_total, MIN(temperature_min) AS temperature_min, MAX(temperature_max) AS temperature_max,
+                       SUM(wind_direction) AS wind_direction_total, MIN(wind_direction) AS wind_direction_min, MAX(wind_direction) AS wind_direction_max,
+                       SUM(wind_speed_max) AS wind_speed_total, MIN(wind_speed_max) AS wind_speed_min, MAX(wind_speed_max) AS wind_speed_max,
+                       CURRENT_TIMESTAMP AS modified_date_time
+                  FROM sensor_history_entity
+                 WHERE sensor_id = ?
+                   AND record_date BETWEEN ? AND ?
+                 GROUP BY sensor_id
+            ) AS s
+               ON m.sensor_id = s.sensor_id
+              AND m.month_start = s.month_start
+             WHEN MATCHED THEN UPDATE SET
+                record_count = s.record_count,
+                rainfall_total = s.rainfall_total,
+                rainfall_min = s.rainfall_min,
+                rainfall_max = s.rainfall_max,
+                snowfall_total = s.snowfall_total,
+                snowfall_min = s.snowfall_min,
+                snowfall_max = s.snowfall_max,
+                temperature_total = s.temperature_total,
+                temperature_min = s.temperature_min,
+                temperature_max = s.temperature_max,
+                wind_direction_total = s.wind_direction_total,
+                wind_direction_min = s.wind_direction_min,
+                wind_direction_max = s.wind_direction_max,
+                wind_speed_total = s.wind_speed_total,
+                wind_speed_min = s.wind_speed_min,
+                wind_speed_max = s.wind_speed_max,
+                modified_date_time = s.modified_date_time
+             WHEN NOT MATCHED THEN INSERT (
+                id, sensor_id, month_start, record_count,
+                rainfall_total, rainfall_min, rainfall_max, snowfall_total, snowfall_min, snowfall_max,
+                temperature_total, temperature_min, temperature_max,
+                wind_direction_total, wind_direction_min, wind_direction_max,
+                wind_speed_total, wind_speed_min, wind_speed_max, modified_date_time
+            ) VALUES (
+                s.id, s.sensor_id, s.month_start, s.record_count,
+                s.rainfall_total, s.rainfall_min, s.rainfall_max, s.snowfall_total, s.snowfall_min, s.snowfall_max,
+                s.temperature_total, s.temperature_min, s.temperature_max,
+                s.wind_direction_total, s.wind_direction_min, s.wind_direction_max,
+                s.wind_speed_total, s.wind_speed_min, s.wind_speed_max, s.modified_date_time
+            )
+            """;
+
+    final JdbcTemplate jdbcTemplate;
+    final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Insert, or replace when the sensor already has history for that day, all the sensor history records as a
+     * single JDBC batch of MERGE statements, within one transaction. The monthly rollups of the months written to are
+     * recalculated within the same transaction, and a {@link SensorHistoryWrittenEvent} is published.
+     * <p>
+     * The sensors written to are locked first, in order of their IDs, so that writers of the same sensor take turns.
+     * Otherwise a writer could recalculate a month without the records of another writer still to commit, and replace
+     * the rollup including them once that writer has committed.
+     *
+     * @param entities sensor history records to write
+     * @return number of records written
+     */
+    @Override
+    @Transactional
+    public int upsertAll(List<SensorHistoryEntity> entities) {
+        if (entities.isEmpty()) {
+            return 0;
+        }
+        lockSensors(entities);
+        jdbcTemplate.batchUpdate(UPSERT_SQL, entities, entities.size(), (ps, entity) -> {
+            ps.setObject(1, entity.getId());
+            ps.setObject(2, entity.getSensor().getId());
+            ps.setObject(3, entity.getRecordDate());
+            ps.setDouble(4, entity.getRainfallSum());
+            ps.setDouble(5, entity.getSnowfallSum());
+            ps.setObject(6, entity.getSunrise());
+            ps.setObject(7, entity.getSunset());
+            ps.setDouble(8, entity.getTemperatureMean());
+            ps.setDouble(9, entity.getTemperatureMin());
+            ps.setDouble(10, entity.getTemperatureMax());
+            ps.setInt(11, entity.getWindDirection());
+            ps.setDouble(12, entity.getWindSpeedMax());
+            ps.setObject(13, entity.getModifiedDateTime());
+        });
+        log.debug("merged {} sensor history records", entities.size());
+        refreshMonths(entities);
+        eventPublisher.publishEvent(new SensorHistoryWrittenEvent(List.copyOf(entities)));
+        return entities.size();
+    }
+
+    private void lockSensors(List<SensorHistoryEntity> entities) {
+        Set<UUID> sensorIds = new TreeSet<>();
+        for (SensorHistoryEntity entity : entities) {
+            sensorIds.add(entity.getSensor().getId());
+        }
+        for (UUID sensorId : sensorIds) {
+            jdbcTemplate.queryForList(LOCK_SQL, UUID.class, sensorId);
+        }
+    }
+
+    /**
+     * Recalculate the monthly rollup of every sensor and month written to. As a record may replace an earlier one for
+     * the same day, each month is recalculated from its stored history, which reads at most a month of records.
+     */
+    private void refreshMonths(List<SensorHistoryEntity> entities) {
+        Set<SensorMonth> months = new LinkedHashSet<>();
+        for (SensorHistoryEntity entity : entities) {
+            months.add(new SensorMonth(entity.getSensor().getId(), entity.getRecordDate().withDayOfMonth(1)));
+        }
+        jdbcTemplate.batchUpdate(ROLLUP_SQL, months, months.size(), (ps, month) -> {
+            ps.setObject(1, SensorHistoryMonthEntity.createId(month.sensorId(), month.monthStart()));
+            ps.setObject(2, month.monthStart());
+            ps.setObject(3, month.sensorId());
+            ps.setObject(4, month.monthStart());
+            ps.setObject(5, month.monthStart().plusMonths(1).minusDays(1));
+        });
+        log.debug("refreshed {} monthly sensor history rollups", months.size());
+    }
+
+    private record SensorMonth(
+            UUID sensorId,
+            LocalDate monthStart
+    ) {
+    }
+
+}
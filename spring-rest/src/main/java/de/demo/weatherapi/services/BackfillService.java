@@ -0,0 +1,42 @@
+package de.demo.weatherapi.services;
+
+import de.demo.weatherapi.dtos.BackfillJobResponse;
+import de.demo.weatherapi.entities.SensorEntity;
+
+import java.util.UUID;
+
+/**
+ * Backfill Service - load sensor history from the third-party weather data in the background.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+public interface BackfillService {
+
+    /**
+     * Create a new backfill job for the sensor and queue it to run in the background.
+     *
+     * @param sensor the persisted Sensor to load history for
+     * @return confirmation of the newly created backfill job
+     */
+    BackfillJobResponse submit(SensorEntity sensor);
+
+    /**
+     * Get the progress of the most recent backfill job of the specified sensor.
+     *
+     * @param sensorId respective ID of the Sensor
+     * @return progress of the backfill job
+     */
+    BackfillJobResponse findBySensor(UUID sensorId);
+
+    /**
+     * Queue all backfill jobs that had not finished, e.g. following a restart with a persistent datasource.
+     */
+    void resume();
+
+    /**
+     * Queue a backfill job for every sensor with gaps in its history over the lookback window.
+     */
+    void refresh();
+
+}
@@ -1,5 +1,6 @@
 package de.demo.weatherapi.services;
 
+import de.demo.weatherapi.dtos.DateRange;
 import de.demo.weatherapi.dtos.LocationRequest;
 import de.demo.weatherapi.dtos.LocationResponse;
 import de.demo.weatherapi.dtos.SensorHistoryRequest;
@@ -31,4 +32,22 @@ public interface LookupService {
      */
     List<SensorHistoryRequest> getWeatherHistory(SensorRequest request);
 
+    /**
+     * Get Weather data for the respective time period to support sensor history creation.
+     *
+     * @param request parent sensor request details
+     * @param period  time period to get the weather data for
+     * @return list of new sensor history data
+     */
+    List<SensorHistoryRequest> getWeatherHistory(SensorRequest request, DateRange period);
+
+    /**
+     * Get Weather data for the respective time period for multiple sensors, in as few upstream requests as possible.
+     *
+     * @param requests parent sensor request details
+     * @param period   time period to get the weather data for
+     * @return per sensor list of new sensor history data, in the same order as the requests
+     */
+    List<List<SensorHistoryRequest>> getWeatherHistory(List<SensorRequest> requests, DateRange period);
+
 }
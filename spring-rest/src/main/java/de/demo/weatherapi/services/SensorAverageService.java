@@ -1,8 +1,11 @@
 package de.demo.weatherapi.services;
 
 import de.demo.weatherapi.dtos.SensorAverageResponse;
+import de.demo.weatherapi.enums.GranularityEnum;
+import de.demo.weatherapi.enums.MetricEnum;
 
 import java.time.LocalDate;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -16,20 +19,26 @@ public interface SensorAverageService {
     /**
      * Find Sensor history averages within the respective time period.
      *
-     * @param startDate start of the time period filter
-     * @param endDate   end of the time period filter
-     * @return averaged sensor history grouped by the sensors
+     * @param startDate   start of the time period filter
+     * @param endDate     end of the time period filter
+     * @param granularity size of the time buckets, or null for the whole time period
+     * @param metrics     metrics to average, or null for all
+     * @return averaged sensor history grouped by the sensors, and by the time buckets when requested
      */
-    SensorAverageResponse findAverage(LocalDate startDate, LocalDate endDate);
+    SensorAverageResponse findAverage(LocalDate startDate, LocalDate endDate, GranularityEnum granularity,
+                                      Set<MetricEnum> metrics);
 
     /**
      * For the specified sensor, get the history averages within the respective time period.
      *
-     * @param sensorId  respective ID of the Sensor
-     * @param startDate start of the time period filter
-     * @param endDate   end of the time period filter
-     * @return averaged sensor history grouped by month
+     * @param sensorId    respective ID of the Sensor
+     * @param startDate   start of the time period filter
+     * @param endDate     end of the time period filter
+     * @param granularity size of the time buckets, or null for months
+     * @param metrics     metrics to average, or null for all
+     * @return averaged sensor history grouped by the time buckets
      */
-    SensorAverageResponse findAverageBySensor(UUID sensorId, LocalDate startDate, LocalDate endDate);
+    SensorAverageResponse findAverageBySensor(UUID sensorId, LocalDate startDate, LocalDate endDate,
+                                              GranularityEnum granularity, Set<MetricEnum> metrics);
 
 }
@@ -0,0 +1,43 @@
+package de.demo.weatherapi.services;
+
+import de.demo.weatherapi.dtos.SensorHistoryReceiptResponse;
+import de.demo.weatherapi.dtos.SensorHistoryRequest;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Sensor History Queue Service - write-behind ingestion of sensor history.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+public interface SensorHistoryQueueService {
+
+    /**
+     * Queue new Sensor History records, to be written by the background writer.
+     *
+     * @param sensorId respective ID of the Sensor
+     * @param requests list of sensor history details
+     * @return receipt confirming the number of queued records
+     * @throws java.util.concurrent.RejectedExecutionException when the queue has no room for the records
+     * @throws IllegalArgumentException                        when there are more records than the queue can hold
+     * @throws IllegalStateException                           when write-behind ingestion is disabled
+     */
+    SensorHistoryReceiptResponse enqueue(UUID sensorId, List<SensorHistoryRequest> requests);
+
+    /**
+     * Find the receipt of queued Sensor History records, with the number written or failed so far.
+     *
+     * @param sensorId  respective ID of the Sensor
+     * @param receiptId ID of the receipt
+     * @return the receipt, or null when unknown or expired
+     */
+    SensorHistoryReceiptResponse findReceipt(UUID sensorId, UUID receiptId);
+
+    /**
+     * Write all the currently queued records.
+     */
+    void flush();
+
+}
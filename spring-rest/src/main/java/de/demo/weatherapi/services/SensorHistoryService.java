@@ -1,11 +1,22 @@
 package de.demo.weatherapi.services;
 
+import de.demo.weatherapi.dtos.DateRange;
+import de.demo.weatherapi.dtos.SensorHistoryBatchRequest;
+import de.demo.weatherapi.dtos.SensorHistoryBatchResponse;
+import de.demo.weatherapi.dtos.SensorHistoryCursor;
+import de.demo.weatherapi.dtos.SensorHistoryPage;
 import de.demo.weatherapi.dtos.SensorHistoryRequest;
 import de.demo.weatherapi.dtos.SensorHistoryResponse;
+import de.demo.weatherapi.entities.SensorEntity;
+import de.demo.weatherapi.enums.MetricEnum;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * Sensor History Service - manage queries to get sensor history
@@ -21,9 +32,46 @@ public interface SensorHistoryService {
      * @param sensorId respective ID of the Sensor
      * @param request  sensor history details
      * @return confirmation of the newly created sensor history
+     * @throws IllegalArgumentException when the sensor history details are invalid
      */
     SensorHistoryResponse create(UUID sensorId, SensorHistoryRequest request);
 
+    /**
+     * Create a batch of new Sensor History records for a single Sensor.
+     *
+     * @param sensorId respective ID of the Sensor
+     * @param requests list of sensor history details
+     * @return per row confirmation of the accepted and rejected sensor history
+     */
+    SensorHistoryBatchResponse createAll(UUID sensorId, List<SensorHistoryRequest> requests);
+
+    /**
+     * Create batches of new Sensor History records for multiple Sensors.
+     *
+     * @param requests list of sensor history details, grouped by Sensor
+     * @return per sensor, per row confirmation of the accepted and rejected sensor history
+     */
+    List<SensorHistoryBatchResponse> createAll(List<SensorHistoryBatchRequest> requests);
+
+    /**
+     * Backfill Sensor History records for an already persisted Sensor, as one bulk write in a single transaction.
+     *
+     * @param sensor   the persisted Sensor the history belongs to
+     * @param requests list of sensor history details
+     * @return number of sensor history records written
+     */
+    int backfill(SensorEntity sensor, List<SensorHistoryRequest> requests);
+
+    /**
+     * Find the periods within the respective time period that the sensor has no history for. Gaps separated by no
+     * more than {@code custom.backfill.mergeGapDays} stored days are merged, so they can be fetched in one request.
+     *
+     * @param sensorId respective ID of the Sensor
+     * @param period   time period to check
+     * @return ordered list of the missing periods
+     */
+    List<DateRange> findGaps(UUID sensorId, DateRange period);
+
     /**
      * Find specific sensor history.
      *
@@ -33,23 +81,80 @@ public interface SensorHistoryService {
     SensorHistoryResponse findById(UUID sensorId);
 
     /**
-     * Find sensor history for the specified time period.
+     * Find a page of sensor history for the specified time period, latest first.
+     *
+     * @param startDate start of the time period filter
+     * @param endDate   end of the time period filter
+     * @param metrics   metrics to read, or null for all
+     * @param cursor    cursor of the previous page, or null for the first page
+     * @param size      page size, or null for {@code custom.historyPageSize}
+     * @return page of sensor history for the time period
+     */
+    SensorHistoryPage findAll(LocalDate startDate, LocalDate endDate, Set<MetricEnum> metrics,
+                              SensorHistoryCursor cursor, Integer size);
+
+    /**
+     * For the specified sensor, get a page of the history within the respective time period, latest first.
+     *
+     * @param sensorId  respective ID of the Sensor
+     * @param startDate start of the time period filter
+     * @param endDate   end of the time period filter
+     * @param metrics   metrics to read, or null for all
+     * @param cursor    cursor of the previous page, or null for the first page
+     * @param size      page size, or null for {@code custom.historyPageSize}
+     * @return page of sensor history for the time period
+     */
+    SensorHistoryPage findAllBySensor(UUID sensorId, LocalDate startDate, LocalDate endDate, Set<MetricEnum> metrics,
+                                      SensorHistoryCursor cursor, Integer size);
+
+    /**
+     * Stream the sensor history for the specified time period, latest first, passing each record on as it is read.
+     *
+     * @param startDate start of the time period filter
+     * @param endDate   end of the time period filter
+     * @param metrics   metrics to read, or null for all
+     * @param action    action to pass each sensor history record on to
+     */
+    void streamAll(LocalDate startDate, LocalDate endDate, Set<MetricEnum> metrics,
+                   Consumer<SensorHistoryResponse> action);
+
+    /**
+     * For the specified sensor, stream the history within the respective time period, latest first, passing each
+     * record on as it is read.
+     *
+     * @param sensorId  respective ID of the Sensor
+     * @param startDate start of the time period filter
+     * @param endDate   end of the time period filter
+     * @param metrics   metrics to read, or null for all
+     * @param action    action to pass each sensor history record on to
+     */
+    void streamAllBySensor(UUID sensorId, LocalDate startDate, LocalDate endDate, Set<MetricEnum> metrics,
+                           Consumer<SensorHistoryResponse> action);
+
+    /**
+     * Export the sensor history for the specified time period, latest first, as an Apache Arrow IPC stream.
      *
      * @param startDate start of the time period filter
      * @param endDate   end of the time period filter
-     * @return list of sensor history for the time period
+     * @param metrics   metrics to export, or null for all
+     * @param out       stream to write to
+     * @throws IOException when the stream cannot be written
      */
-    List<SensorHistoryResponse> findAll(LocalDate startDate, LocalDate endDate);
+    void exportAll(LocalDate startDate, LocalDate endDate, Set<MetricEnum> metrics, OutputStream out) throws IOException;
 
     /**
-     * For the specified sensor, get the history within the respective time period.
+     * For the specified sensor, export the history within the respective time period, latest first, as an Apache Arrow
+     * IPC stream.
      *
      * @param sensorId  respective ID of the Sensor
      * @param startDate start of the time period filter
      * @param endDate   end of the time period filter
-     * @return list of sensor history for the time period
+     * @param metrics   metrics to export, or null for all
+     * @param out       stream to write to
+     * @throws IOException when the stream cannot be written
      */
-    List<SensorHistoryResponse> findAllBySensor(UUID sensorId, LocalDate startDate, LocalDate endDate);
+    void exportAllBySensor(UUID sensorId, LocalDate startDate, LocalDate endDate, Set<MetricEnum> metrics,
+                           OutputStream out) throws IOException;
 
     /**
      * Remove all sensor history for the specific sensor.
@@ -15,7 +15,7 @@ import java.util.UUID;
 public interface SensorService {
 
     /**
-     * Create new Sensor record.
+     * Create new Sensor record, with its history loaded in the background when requested.
      *
      * @param request sensor details
      * @return confirmation of the newly created sensor
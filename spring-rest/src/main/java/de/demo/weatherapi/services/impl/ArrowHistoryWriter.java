@@ -0,0 +1,425 @@
+package de.demo.weatherapi.services.impl;
+
+import com.google.flatbuffers.FlatBufferBuilder;
+import de.demo.weatherapi.dtos.SensorHistoryResponse;
+import de.demo.weatherapi.enums.MetricEnum;
+import org.apache.arrow.flatbuf.Buffer;
+import org.apache.arrow.flatbuf.Date;
+import org.apache.arrow.flatbuf.DateUnit;
+import org.apache.arrow.flatbuf.Endianness;
+import org.apache.arrow.flatbuf.Field;
+import org.apache.arrow.flatbuf.FieldNode;
+import org.apache.arrow.flatbuf.FixedSizeBinary;
+import org.apache.arrow.flatbuf.FloatingPoint;
+import org.apache.arrow.flatbuf.Int;
+import org.apache.arrow.flatbuf.Message;
+import org.apache.arrow.flatbuf.MessageHeader;
+import org.apache.arrow.flatbuf.MetadataVersion;
+import org.apache.arrow.flatbuf.Precision;
+import org.apache.arrow.flatbuf.RecordBatch;
+import org.apache.arrow.flatbuf.Schema;
+import org.apache.arrow.flatbuf.TimeUnit;
+import org.apache.arrow.flatbuf.Timestamp;
+import org.apache.arrow.flatbuf.Type;
+import org.apache.arrow.flatbuf.Utf8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Arrow History Writer - writes sensor history as an Apache Arrow IPC stream, with one column per field and per
+ * requested metric. The records are written as one record batch per batch size records, so only a single batch is held
+ * in memory however many records are written. The columns are laid out on the heap and framed with the Arrow flatbuffer
+ * metadata directly, rather than through the off-heap Arrow vectors.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+public class ArrowHistoryWriter {
+
+    private static final int CONTINUATION = 0xFFFFFFFF;
+    private static final int ALIGNMENT = 8;
+
+    private final OutputStream out;
+    private final int batchSize;
+    private final List<Column> columns = new ArrayList<>();
+    private final ByteBuffer prefix = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+    private int rows;
+
+    /**
+     * Start the stream, writing its schema.
+     *
+     * @param out       stream to write to, left open
+     * @param metrics   metrics to write, or null for all
+     * @param batchSize number of records per record batch
+     * @throws IOException when the stream cannot be written
+     */
+    public ArrowHistoryWriter(OutputStream out, Set<MetricEnum> metrics, int batchSize) throws IOException {
+        this.out = out;
+        this.batchSize = batchSize;
+        boolean all = metrics == null || metrics.isEmpty();
+        columns.add(new UuidColumn("id", SensorHistoryResponse::id));
+        columns.add(new UuidColumn("sensorId", h -> h.sensor().id()));
+        columns.add(new Utf8Column("sensorName", h -> h.sensor().name()));
+        columns.add(new DateColumn("recordDate", SensorHistoryResponse::recordDate));
+        columns.add(new TimestampColumn("sunrise", SensorHistoryResponse::sunrise));
+        columns.add(new TimestampColumn("sunset", SensorHistoryResponse::sunset));
+        if (all || metrics.contains(MetricEnum.RAINFALL)) {
+            columns.add(new DoubleColumn("rainfallSum", SensorHistoryResponse::rainfallSum));
+        }
+        if (all || metrics.contains(MetricEnum.SNOWFALL)) {
+            columns.add(new DoubleColumn("snowfallSum", SensorHistoryResponse::snowfallSum));
+        }
+        if (all || metrics.contains(MetricEnum.TEMPERATURE)) {
+            columns.add(new DoubleColumn("temperatureMean", SensorHistoryResponse::temperatureMean));
+            columns.add(new DoubleColumn("temperatureMin", SensorHistoryResponse::temperatureMin));
+            columns.add(new DoubleColumn("temperatureMax", SensorHistoryResponse::temperatureMax));
+        }
+        if (all || metrics.contains(MetricEnum.WIND_DIRECTION)) {
+            columns.add(new IntColumn("windDirection", SensorHistoryResponse::windDirection));
+        }
+        if (all || metrics.contains(MetricEnum.WIND_SPEED)) {
+            columns.add(new DoubleColumn("windSpeedMax", SensorHistoryResponse::windSpeedMax));
+        }
+        writeSchema();
+    }
+
+    /**
+     * Add the history record to the current record batch, writing the batch once it is full.
+     *
+     * @param history sensor history record
+     * @throws IOException when the stream cannot be written
+     */
+    public void write(SensorHistoryResponse history) throws IOException {
+        for (Column column : columns) {
+            column.append(history, rows);
+        }
+        if (++rows == batchSize) {
+            writeBatch();
+        }
+    }
+
+    /**
+     * Write the last, partial record batch and the end of the stream. Not called when the history could not be read
+     * in full, so that a consumer does not take a truncated stream for a complete one.
+     *
+     * @throws IOException when the stream cannot be written
+     */
+    public void finish() throws IOException {
+        if (rows > 0) {
+            writeBatch();
+        }
+        writePrefix(0);
+        out.flush();
+    }
+
+    private void writeSchema() throws IOException {
+        FlatBufferBuilder builder = new FlatBufferBuilder(1024);
+        int[] fields = new int[columns.size()];
+        for (int x = 0; x < fields.length; x++) {
+            Column column = columns.get(x);
+            int name = builder.createString(column.name);
+            int type = column.type(builder);
+            int children = Field.createChildrenVector(builder, new int[0]);
+            fields[x] = Field.createField(builder, name, true, column.typeType, type, 0, children, 0);
+        }
+        int schema = Schema.createSchema(builder, Endianness.Little, Schema.createFieldsVector(builder, fields), 0, 0);
+        writeMessage(builder, MessageHeader.Schema, schema, 0);
+    }
+
+    private void writeBatch() throws IOException {
+        List<byte[]> buffers = new ArrayList<>();
+        List<Integer> lengths = new ArrayList<>();
+        for (Column column : columns) {
+            column.buffers(rows, buffers, lengths);
+        }
+        long[] offsets = new long[buffers.size()];
+        long bodyLength = 0;
+        for (int x = 0; x < offsets.length; x++) {
+            offsets[x] = bodyLength;
+            bodyLength += align(lengths.get(x));
+        }
+
+        FlatBufferBuilder builder = new FlatBufferBuilder(1024);
+        RecordBatch.startNodesVector(builder, columns.size());
+        for (int x = columns.size() - 1; x >= 0; x--) {
+            FieldNode.createFieldNode(builder, rows, columns.get(x).nullCount);
+        }
+        int nodes = builder.endVector();
+        RecordBatch.startBuffersVector(builder, offsets.length);
+        for (int x = offsets.length - 1; x >= 0; x--) {
+            Buffer.createBuffer(builder, offsets[x], lengths.get(x));
+        }
+        int bufferVector = builder.endVector();
+        int batch = RecordBatch.createRecordBatch(builder, rows, nodes, bufferVector, 0, 0);
+        writeMessage(builder, MessageHeader.RecordBatch, batch, bodyLength);
+
+        for (int x = 0; x < offsets.length; x++) {
+            out.write(buffers.get(x), 0, lengths.get(x));
+            pad(align(lengths.get(x)) - lengths.get(x));
+        }
+        for (Column column : columns) {
+            column.reset();
+        }
+        rows = 0;
+    }
+
+    /**
+     * Write the encapsulated message: the continuation marker, the padded length of the metadata, and the metadata
+     * itself, padded so the body that follows starts aligned.
+     */
+    private void writeMessage(FlatBufferBuilder builder, byte headerType, int header, long bodyLength) throws IOException {
+        int message = Message.createMessage(builder, MetadataVersion.V5, headerType, header, bodyLength, 0);
+        builder.finish(message);
+        byte[] metadata = builder.sizedByteArray();
+        writePrefix(align(metadata.length));
+        out.write(metadata);
+        pad(align(metadata.length) - metadata.length);
+    }
+
+    private void writePrefix(int length) throws IOException {
+        prefix.clear();
+        prefix.putInt(CONTINUATION).putInt(length);
+        out.write(prefix.array());
+    }
+
+    private void pad(int length) throws IOException {
+        for (int x = 0; x < length; x++) {
+            out.write(0);
+        }
+    }
+
+    private static int align(int length) {
+        return (length + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    /**
+     * Column of one record batch, with its validity bitmap; the bitmap is left out when the column has no nulls.
+     */
+    private abstract class Column {
+        final String name;
+        final byte typeType;
+        final byte[] validity = new byte[(batchSize + 7) / 8];
+        int nullCount;
+
+        Column(String name, byte typeType) {
+            this.name = name;
+            this.typeType = typeType;
+        }
+
+        abstract int type(FlatBufferBuilder builder);
+
+        abstract void append(SensorHistoryResponse history, int row);
+
+        abstract void data(int rows, List<byte[]> buffers, List<Integer> lengths);
+
+        void valid(int row, boolean valid) {
+            if (valid) {
+                validity[row >> 3] |= (byte) (1 << (row & 7));
+            } else {
+                nullCount++;
+            }
+        }
+
+        void buffers(int rows, List<byte[]> buffers, List<Integer> lengths) {
+            buffers.add(validity);
+            lengths.add(nullCount > 0 ? (rows + 7) / 8 : 0);
+            data(rows, buffers, lengths);
+        }
+
+        void reset() {
+            Arrays.fill(validity, (byte) 0);
+            nullCount = 0;
+        }
+    }
+
+    /**
+     * Column of fixed width values, written little endian.
+     */
+    private abstract class FixedColumn<T> extends Column {
+        final Function<SensorHistoryResponse, T> field;
+        final int width;
+        final ByteBuffer data;
+
+        FixedColumn(String name, byte typeType, int width, Function<SensorHistoryResponse, T> field) {
+            super(name, typeType);
+            this.field = field;
+            this.width = width;
+            this.data = ByteBuffer.allocate(batchSize * width).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        abstract void put(T value);
+
+        @Override
+        void append(SensorHistoryResponse history, int row) {
+            T value = field.apply(history);
+            valid(row, value != null);
+            if (value != null) {
+                put(value);
+            } else {
+                data.position(data.position() + width);
+            }
+        }
+
+        @Override
+        void data(int rows, List<byte[]> buffers, List<Integer> lengths) {
+            buffers.add(data.array());
+            lengths.add(rows * width);
+        }
+
+        @Override
+        void reset() {
+            super.reset();
+            Arrays.fill(data.array(), (byte) 0);
+            data.clear();
+        }
+    }
+
+    private class UuidColumn extends FixedColumn<UUID> {
+        UuidColumn(String name, Function<SensorHistoryResponse, UUID> field) {
+            super(name, Type.FixedSizeBinary, 16, field);
+        }
+
+        @Override
+        int type(FlatBufferBuilder builder) {
+            return FixedSizeBinary.createFixedSizeBinary(builder, width);
+        }
+
+        @Override
+        void put(UUID value) {
+            // the bytes of the UUID in their usual, big endian order
+            data.order(ByteOrder.BIG_ENDIAN)
+                    .putLong(value.getMostSignificantBits())
+                    .putLong(value.getLeastSignificantBits())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    private class DateColumn extends FixedColumn<LocalDate> {
+        DateColumn(String name, Function<SensorHistoryResponse, LocalDate> field) {
+            super(name, Type.Date, 4, field);
+        }
+
+        @Override
+        int type(FlatBufferBuilder builder) {
+            return Date.createDate(builder, DateUnit.DAY);
+        }
+
+        @Override
+        void put(LocalDate value) {
+            data.putInt((int) value.toEpochDay());
+        }
+    }
+
+    /**
+     * Column of local date times, as timestamps without a time zone.
+     */
+    private class TimestampColumn extends FixedColumn<LocalDateTime> {
+        TimestampColumn(String name, Function<SensorHistoryResponse, LocalDateTime> field) {
+            super(name, Type.Timestamp, 8, field);
+        }
+
+        @Override
+        int type(FlatBufferBuilder builder) {
+            return Timestamp.createTimestamp(builder, TimeUnit.MILLISECOND, 0);
+        }
+
+        @Override
+        void put(LocalDateTime value) {
+            data.putLong(value.toInstant(ZoneOffset.UTC).toEpochMilli());
+        }
+    }
+
+    private class DoubleColumn extends FixedColumn<Double> {
+        DoubleColumn(String name, Function<SensorHistoryResponse, Double> field) {
+            super(name, Type.FloatingPoint, 8, field);
+        }
+
+        @Override
+        int type(FlatBufferBuilder builder) {
+            return FloatingPoint.createFloatingPoint(builder, Precision.DOUBLE);
+        }
+
+        @Override
+        void put(Double value) {
+            data.putDouble(value);
+        }
+    }
+
+    private class IntColumn extends FixedColumn<Integer> {
+        IntColumn(String name, Function<SensorHistoryResponse, Integer> field) {
+            super(name, Type.Int, 4, field);
+        }
+
+        @Override
+        int type(FlatBufferBuilder builder) {
+            return Int.createInt(builder, 32, true);
+        }
+
+        @Override
+        void put(Integer value) {
+            data.putInt(value);
+        }
+    }
+
+    /**
+     * Column of strings, as the offsets of each value followed by the UTF-8 bytes of all the values.
+     */
+    private class Utf8Column extends Column {
+        final Function<SensorHistoryResponse, String> field;
+        final ByteBuffer offsets = ByteBuffer.allocate((batchSize + 1) * 4).order(ByteOrder.LITTLE_ENDIAN);
+        final ByteArrayOutputStream data = new ByteArrayOutputStream();
+
+        Utf8Column(String name, Function<SensorHistoryResponse, String> field) {
+            super(name, Type.Utf8);
+            this.field = field;
+            offsets.putInt(0);
+        }
+
+        @Override
+        int type(FlatBufferBuilder builder) {
+            Utf8.startUtf8(builder);
+            return Utf8.endUtf8(builder);
+        }
+
+        @Override
+        void append(SensorHistoryResponse history, int row) {
+            String value = field.apply(history);
+            valid(row, value != null);
+            if (value != null) {
+                data.writeBytes(value.getBytes(StandardCharsets.UTF_8));
+            }
+            offsets.putInt(data.size());
+        }
+
+        @Override
+        void data(int rows, List<byte[]> buffers, List<Integer> lengths) {
+            buffers.add(offsets.array());
+            lengths.add((rows + 1) * 4);
+            buffers.add(data.toByteArray());
+            lengths.add(data.size());
+        }
+
+        @Override
+        void reset() {
+            super.reset();
+            offsets.clear();
+            offsets.putInt(0);
+            data.reset();
+        }
+    }
+
+}
@@ -0,0 +1,229 @@
+package de.demo.weatherapi.services.impl;
+
+import de.demo.weatherapi.CustomProperties;
+import de.demo.weatherapi.dtos.BackfillJobResponse;
+import de.demo.weatherapi.dtos.DateRange;
+import de.demo.weatherapi.dtos.SensorHistoryRequest;
+import de.demo.weatherapi.entities.BackfillJobEntity;
+import de.demo.weatherapi.entities.SensorEntity;
+import de.demo.weatherapi.enums.BackfillStatusEnum;
+import de.demo.weatherapi.repositories.BackfillJobRepository;
+import de.demo.weatherapi.repositories.SensorRepository;
+import de.demo.weatherapi.services.BackfillService;
+import de.demo.weatherapi.services.LookupService;
+import de.demo.weatherapi.services.SensorHistoryService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Backfill Service Impl - implements Backfill Service.
+ * <p>
+ * Jobs run on a dedicated pool of {@code custom.backfill.poolSize} threads, with at most
+ * {@code custom.backfill.queueCapacity} jobs waiting. Job progress is persisted, so any job that had not finished
+ * when the application stopped is queued again once it has started. That only outlives a restart with a persistent
+ * datasource, e.g. the file backed database of the {@code persistent} profile, as the default one is in memory.
+ * <p>
+ * A job only fetches the days missing from the stored history of its sensor over the lookback window, and on the
+ * {@code custom.backfill.cron} schedule every sensor with such gaps gets a new job. Jobs queued together are run
+ * together, with one batched lookup for all the sensors missing the same days.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BackfillServiceImpl implements BackfillService {
+
+    final CustomProperties customProperties;
+    final LookupService lookupService;
+    final SensorHistoryService sensorHistoryService;
+    final BackfillJobRepository backfillJobRepository;
+    final SensorRepository sensorRepository;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void start() {
+        AtomicInteger count = new AtomicInteger();
+        int poolSize = customProperties.getBackfill().getPoolSize();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(customProperties.getBackfill().getQueueCapacity()),
+                r -> new Thread(r, "sensor-backfill-" + count.incrementAndGet()));
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Create a new backfill job for the sensor and queue it to run in the background.
+     *
+     * @param sensor the persisted Sensor to load history for
+     * @return confirmation of the newly created backfill job
+     */
+    @Override
+    public BackfillJobResponse submit(SensorEntity sensor) {
+        BackfillJobEntity job = backfillJobRepository.save(BackfillJobEntity.builder()
+                .sensor(sensor)
+                .build());
+        queue(List.of(job));
+        return job.toResponse();
+    }
+
+    /**
+     * Get the progress of the most recent backfill job of the specified sensor.
+     *
+     * @param sensorId respective ID of the Sensor
+     * @return progress of the backfill job
+     */
+    @Override
+    public BackfillJobResponse findBySensor(UUID sensorId) {
+        return backfillJobRepository.findLatestBySensor(sensorId)
+                .map(BackfillJobEntity::toResponse)
+                .orElse(null);
+    }
+
+    /**
+     * Queue all backfill jobs that had not finished, e.g. following a restart with a persistent datasource.
+     */
+    @Override
+    @EventListener(ApplicationStartedEvent.class)
+    public void resume() {
+        List<BackfillJobEntity> jobs = backfillJobRepository.findAllByStatusIn(
+                List.of(BackfillStatusEnum.PENDING, BackfillStatusEnum.RUNNING));
+        if (jobs != null && !jobs.isEmpty()) {
+            log.info("resuming {} unfinished backfill jobs", jobs.size());
+            queue(jobs);
+        }
+    }
+
+    /**
+     * Queue a backfill job for every sensor with gaps in its history over the lookback window. The jobs run together,
+     * so the sensors missing the same days share the upstream requests.
+     */
+    @Override
+    @Scheduled(cron = "${custom.backfill.cron}")
+    public void refresh() {
+        DateRange window = DateRange.lookback(customProperties.getWeatherLookbackDays());
+        Set<UUID> active = backfillJobRepository.findAllByStatusIn(
+                        List.of(BackfillStatusEnum.PENDING, BackfillStatusEnum.RUNNING)).stream()
+                .map(job -> job.getSensor().getId())
+                .collect(Collectors.toSet());
+        List<BackfillJobEntity> jobs = new ArrayList<>();
+        for (SensorEntity sensor : sensorRepository.findAll()) {
+            if (!active.contains(sensor.getId()) && !sensorHistoryService.findGaps(sensor.getId(), window).isEmpty()) {
+                jobs.add(backfillJobRepository.save(BackfillJobEntity.builder()
+                        .sensor(sensor)
+                        .build()));
+            }
+        }
+        if (!jobs.isEmpty()) {
+            queue(jobs);
+        }
+        log.info("queued {} backfill jobs to fill sensor history gaps", jobs.size());
+    }
+
+    private void queue(List<BackfillJobEntity> jobs) {
+        try {
+            executor.execute(() -> run(jobs));
+        } catch (RejectedExecutionException ex) {
+            jobs.forEach(job -> update(job, BackfillStatusEnum.FAILED, "Backfill queue is full"));
+        }
+    }
+
+    private void run(List<BackfillJobEntity> jobs) {
+        DateRange window = DateRange.lookback(customProperties.getWeatherLookbackDays());
+        // sensors missing the same days share one batched lookup
+        Map<DateRange, List<BackfillJobEntity>> gaps = new LinkedHashMap<>();
+        Set<BackfillJobEntity> running = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (BackfillJobEntity job : jobs) {
+            job.setRowsFetched(0);
+            job.setRowsLoaded(0);
+            update(job, BackfillStatusEnum.RUNNING, null);
+            try {
+                List<DateRange> missing = sensorHistoryService.findGaps(job.getSensor().getId(), window);
+                if (missing.isEmpty()) {
+                    update(job, BackfillStatusEnum.COMPLETED, "No missing sensor history");
+                    continue;
+                }
+                missing.forEach(gap -> gaps.computeIfAbsent(gap, k -> new ArrayList<>()).add(job));
+                running.add(job);
+            } catch (Exception ex) {
+                fail(job, ex);
+            }
+        }
+        for (Map.Entry<DateRange, List<BackfillJobEntity>> gap : gaps.entrySet()) {
+            List<BackfillJobEntity> group = gap.getValue().stream()
+                    .filter(running::contains)
+                    .toList();
+            if (group.isEmpty()) {
+                continue;
+            }
+            try {
+                List<List<SensorHistoryRequest>> history = lookupService.getWeatherHistory(
+                        group.stream().map(job -> job.getSensor().toRequest()).toList(), gap.getKey());
+                for (int x = 0; x < group.size(); x++) {
+                    load(group.get(x), history.get(x), running);
+                }
+            } catch (Exception ex) {
+                group.forEach(job -> fail(job, ex));
+                group.forEach(running::remove);
+            }
+        }
+        for (BackfillJobEntity job : running) {
+            job.setFailures(job.getRowsFetched() - job.getRowsLoaded());
+            update(job, BackfillStatusEnum.COMPLETED, null);
+        }
+    }
+
+    private void load(BackfillJobEntity job, List<SensorHistoryRequest> history, Set<BackfillJobEntity> running) {
+        try {
+            job.setRowsFetched(job.getRowsFetched() + history.size());
+            update(job, BackfillStatusEnum.RUNNING, null);
+            job.setRowsLoaded(job.getRowsLoaded() + sensorHistoryService.backfill(job.getSensor(), history));
+        } catch (Exception ex) {
+            fail(job, ex);
+            running.remove(job);
+        }
+    }
+
+    private void fail(BackfillJobEntity job, Exception ex) {
+        log.warn("backfill job {} for sensor {} failed", job.getId(), job.getSensor().getId(), ex);
+        job.setFailures(job.getRowsFetched() - job.getRowsLoaded());
+        update(job, BackfillStatusEnum.FAILED, StringUtils.abbreviate(ex.getMessage(), 1000));
+    }
+
+    private void update(BackfillJobEntity job, BackfillStatusEnum status, String message) {
+        job.setStatus(status);
+        job.setMessage(message);
+        job.setModifiedDateTime(LocalDateTime.now());
+        backfillJobRepository.save(job);
+    }
+
+}
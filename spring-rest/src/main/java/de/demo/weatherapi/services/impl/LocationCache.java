@@ -0,0 +1,164 @@
+package de.demo.weatherapi.services.impl;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import de.demo.weatherapi.CustomProperties;
+import de.demo.weatherapi.dtos.LocationResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Location Cache - bounded, expiring cache of the location lookups, keyed on the normalised name.
+ * <p>
+ * Holds at most {@code custom.locationCache.maxSize} names for {@code custom.locationCache.ttlSeconds}. Only the exact
+ * name answers a lookup, as the upstream search matches names fuzzily, so the locations found for a longer name need
+ * not be among those found for a shorter one. When {@code custom.locationCache.file} is set the entries are saved
+ * there on shutdown and loaded again on start up. Hits and misses are recorded as {@code cache.gets{cache=locations}}.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LocationCache {
+
+    /**
+     * Maximum number of locations requested from the lookup.
+     */
+    public static final int LIMIT = 10;
+
+    final CustomProperties customProperties;
+    final MeterRegistry meterRegistry;
+    final ObjectMapper objectMapper;
+
+    private Cache<String, CachedLocations> cache;
+
+    @PostConstruct
+    void start() {
+        long ttlNanos = TimeUnit.SECONDS.toNanos(customProperties.getLocationCache().getTtlSeconds());
+        cache = Caffeine.newBuilder()
+                .maximumSize(customProperties.getLocationCache().getMaxSize())
+                .expireAfter(new Expiry<String, CachedLocations>() {
+                    @Override
+                    public long expireAfterCreate(String key, CachedLocations value, long currentTime) {
+                        return Math.max(0, ttlNanos - TimeUnit.MILLISECONDS.toNanos(
+                                System.currentTimeMillis() - value.cachedAt()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, CachedLocations value, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, CachedLocations value, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "locations");
+        load();
+    }
+
+    @PreDestroy
+    void stop() {
+        save();
+    }
+
+    /**
+     * Get the cached locations matching the name.
+     *
+     * @param name name of the location
+     * @return matching locations, or null when the name is not cached
+     */
+    public List<LocationResponse> get(String name) {
+        CachedLocations cached = cache.getIfPresent(normalize(name));
+        return cached != null ? cached.locations() : null;
+    }
+
+    /**
+     * Cache the locations matching the name.
+     *
+     * @param name      name of the location
+     * @param locations matching locations
+     */
+    public void put(String name, List<LocationResponse> locations) {
+        cache.put(normalize(name), new CachedLocations(List.copyOf(locations), System.currentTimeMillis()));
+    }
+
+    /**
+     * Normalise the name, so that names only differing in case or spacing share an entry.
+     *
+     * @param name name of the location
+     * @return normalised name
+     */
+    public static String normalize(String name) {
+        return StringUtils.normalizeSpace(StringUtils.defaultString(name)).toLowerCase(Locale.ROOT);
+    }
+
+    private void load() {
+        Path file = file();
+        if (file == null || !Files.isReadable(file)) {
+            return;
+        }
+        try {
+            Map<String, CachedLocations> entries = objectMapper.readValue(file.toFile(), new TypeReference<>() {
+            });
+            cache.putAll(entries);
+            cache.cleanUp();
+            log.info("loaded {} cached location lookups from {}", cache.estimatedSize(), file);
+        } catch (IOException ex) {
+            log.warn("unable to load cached location lookups from {}", file, ex);
+        }
+    }
+
+    private void save() {
+        Path file = file();
+        if (file == null) {
+            return;
+        }
+        try {
+            cache.cleanUp();
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            objectMapper.writeValue(file.toFile(), Map.copyOf(cache.asMap()));
+            log.info("saved {} cached location lookups to {}", cache.estimatedSize(), file);
+        } catch (IOException ex) {
+            log.warn("unable to save cached location lookups to {}", file, ex);
+        }
+    }
+
+    private Path file() {
+        String file = customProperties.getLocationCache().getFile();
+        return StringUtils.isBlank(file) ? null : Path.of(file);
+    }
+
+    record CachedLocations(
+            List<LocationResponse> locations,
+            long cachedAt
+    ) {
+    }
+
+}
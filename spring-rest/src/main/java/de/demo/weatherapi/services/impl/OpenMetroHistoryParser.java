@@ -0,0 +1,220 @@
+package de.demo.weatherapi.services.impl;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import de.demo.weatherapi.dtos.SensorHistoryRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * OpenMetro History Parser - streaming decoder for the daily weather archive responses.
+ * <p>
+ * The {@code daily} section of a response is columnar, one array per variable. Each array is read token by token
+ * straight into a primitive array, and the rows are only built once all the columns are read, so no intermediate
+ * maps or boxed lists are created. Dates are decoded from the parser's character buffer without creating strings.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+public final class OpenMetroHistoryParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private OpenMetroHistoryParser() {
+    }
+
+    /**
+     * Parse an archive response, for one or more locations.
+     *
+     * @param body archive response body
+     * @return per location list of new sensor history data, in the order of the response
+     * @throws IOException when the response cannot be read
+     */
+    public static List<List<SensorHistoryRequest>> parse(InputStream body) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT) {
+                return List.of(parseLocation(parser));
+            }
+            if (token != JsonToken.START_ARRAY) {
+                return Collections.emptyList();
+            }
+            List<List<SensorHistoryRequest>> history = new ArrayList<>();
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+                history.add(token == JsonToken.START_OBJECT ? parseLocation(parser) : Collections.emptyList());
+            }
+            return history;
+        }
+    }
+
+    private static List<SensorHistoryRequest> parseLocation(JsonParser parser) throws IOException {
+        List<SensorHistoryRequest> history = Collections.emptyList();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if ("daily".equals(name) && token == JsonToken.START_OBJECT) {
+                history = parseDaily(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return history;
+    }
+
+    private static List<SensorHistoryRequest> parseDaily(JsonParser parser) throws IOException {
+        Daily daily = new Daily();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+            switch (name) {
+                case "time" -> daily.time = readDates(parser);
+                case "rain_sum" -> daily.rainfallSum = readDoubles(parser);
+                case "snowfall_sum" -> daily.snowfallSum = readDoubles(parser);
+                case "sunrise" -> daily.sunrise = readDateTimes(parser);
+                case "sunset" -> daily.sunset = readDateTimes(parser);
+                case "temperature_2m_mean" -> daily.temperatureMean = readDoubles(parser);
+                case "temperature_2m_min" -> daily.temperatureMin = readDoubles(parser);
+                case "temperature_2m_max" -> daily.temperatureMax = readDoubles(parser);
+                case "wind_direction_10m_dominant" -> daily.windDirection = readDoubles(parser);
+                case "wind_speed_10m_max" -> daily.windSpeedMax = readDoubles(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        return daily.toRequests();
+    }
+
+    private static double[] readDoubles(JsonParser parser) throws IOException {
+        double[] values = new double[64];
+        int size = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = token == JsonToken.VALUE_NUMBER_FLOAT || token == JsonToken.VALUE_NUMBER_INT
+                    ? parser.getDoubleValue()
+                    : Double.NaN;
+        }
+        return Arrays.copyOf(values, size);
+    }
+
+    private static LocalDate[] readDates(JsonParser parser) throws IOException {
+        LocalDate[] values = new LocalDate[64];
+        int size = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = parser.currentToken() == JsonToken.VALUE_STRING ? decodeDate(parser) : null;
+        }
+        return Arrays.copyOf(values, size);
+    }
+
+    private static LocalDateTime[] readDateTimes(JsonParser parser) throws IOException {
+        LocalDateTime[] values = new LocalDateTime[64];
+        int size = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = parser.currentToken() == JsonToken.VALUE_STRING ? decodeDateTime(parser) : null;
+        }
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * Decode an ISO date, e.g. {@code 2023-11-01}, falling back to {@link LocalDate#parse} for any other layout.
+     */
+    private static LocalDate decodeDate(JsonParser parser) throws IOException {
+        char[] chars = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        if (parser.getTextLength() == 10 && chars[offset + 4] == '-' && chars[offset + 7] == '-') {
+            return LocalDate.of(digits(chars, offset, 4), digits(chars, offset + 5, 2), digits(chars, offset + 8, 2));
+        }
+        return LocalDate.parse(parser.getText());
+    }
+
+    /**
+     * Decode an ISO date time without seconds, e.g. {@code 2023-11-01T06:21}, falling back to
+     * {@link LocalDateTime#parse} for any other layout.
+     */
+    private static LocalDateTime decodeDateTime(JsonParser parser) throws IOException {
+        char[] chars = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        if (parser.getTextLength() == 16 && chars[offset + 10] == 'T' && chars[offset + 13] == ':') {
+            return LocalDateTime.of(digits(chars, offset, 4), digits(chars, offset + 5, 2),
+                    digits(chars, offset + 8, 2), digits(chars, offset + 11, 2), digits(chars, offset + 14, 2));
+        }
+        return LocalDateTime.parse(parser.getText());
+    }
+
+    private static int digits(char[] chars, int offset, int length) {
+        int value = 0;
+        for (int x = offset; x < offset + length; x++) {
+            int digit = chars[x] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Invalid date: " + new String(chars, offset, length));
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static Double boxed(double[] values, int index) {
+        return values == null || index >= values.length || Double.isNaN(values[index]) ? null : values[index];
+    }
+
+    private static <T> T value(T[] values, int index) {
+        return values == null || index >= values.length ? null : values[index];
+    }
+
+    private static final class Daily {
+
+        LocalDate[] time;
+        double[] rainfallSum;
+        double[] snowfallSum;
+        LocalDateTime[] sunrise;
+        LocalDateTime[] sunset;
+        double[] temperatureMean;
+        double[] temperatureMin;
+        double[] temperatureMax;
+        double[] windDirection;
+        double[] windSpeedMax;
+
+        List<SensorHistoryRequest> toRequests() {
+            if (time == null) {
+                return Collections.emptyList();
+            }
+            List<SensorHistoryRequest> history = new ArrayList<>(time.length);
+            for (int x = 0; x < time.length; x++) {
+                Double direction = boxed(windDirection, x);
+                history.add(SensorHistoryRequest.builder()
+                        .recordDate(time[x])
+                        .rainfallSum(boxed(rainfallSum, x))
+                        .snowfallSum(boxed(snowfallSum, x))
+                        .sunrise(value(sunrise, x))
+                        .sunset(value(sunset, x))
+                        .temperatureMean(boxed(temperatureMean, x))
+                        .temperatureMin(boxed(temperatureMin, x))
+                        .temperatureMax(boxed(temperatureMax, x))
+                        .windDirection(direction == null ? null : direction.intValue())
+                        .windSpeedMax(boxed(windSpeedMax, x))
+                        .build());
+            }
+            return history;
+        }
+
+    }
+
+}
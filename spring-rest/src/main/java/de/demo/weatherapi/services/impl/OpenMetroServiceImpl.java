@@ -1,6 +1,7 @@
 package de.demo.weatherapi.services.impl;
 
 import de.demo.weatherapi.CustomProperties;
+import de.demo.weatherapi.dtos.DateRange;
 import de.demo.weatherapi.dtos.LocationRequest;
 import de.demo.weatherapi.dtos.LocationResponse;
 import de.demo.weatherapi.dtos.SensorHistoryRequest;
@@ -17,16 +18,18 @@ import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.net.URI;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * OpenMetro Service Impl - Implementation of the Lookup Service.
+ * <p>
+ * Identical requests made concurrently, e.g. overlapping searches for the same location, share a single upstream
+ * call and its parsed result.
  *
  * @author Dwight Egerton
  * @since 0.0.1
@@ -38,12 +41,16 @@ public class OpenMetroServiceImpl implements LookupService {
 
     final CustomProperties customProperties;
     final RestTemplate restTemplate;
+    final LocationCache locationCache;
 
     private final List<String> searchKeys = List.of(
             "temperature_2m_max", "temperature_2m_min", "temperature_2m_mean", "sunrise,sunset", "rain_sum",
             "snowfall_sum", "wind_speed_10m_max", "wind_direction_10m_dominant"
     );
 
+    private final SingleFlight<URI, List<LocationResponse>> locationCalls = new SingleFlight<>();
+    private final SingleFlight<URI, List<List<SensorHistoryRequest>>> weatherCalls = new SingleFlight<>();
+
     /**
      * Get Location information to support the sensor creation.
      *
@@ -52,20 +59,28 @@ public class OpenMetroServiceImpl implements LookupService {
      */
     @Override
     public List<LocationResponse> getLocationInfo(LocationRequest request) {
+        List<LocationResponse> cached = locationCache.get(request.name());
+        if (cached != null) {
+            return cached;
+        }
         URI uri = UriComponentsBuilder.fromUriString(customProperties.getLocationApiUrl())
                 .queryParam("name", request.name())
-                .queryParam("count", "10")
+                .queryParam("count", LocationCache.LIMIT)
                 .queryParam("language", "en")
                 .queryParam("format", "json")
                 .build().toUri();
-        Map<String, ?> response = restTemplate.exchange(
-                        uri,
-                        HttpMethod.GET,
-                        null,
-                        new ParameterizedTypeReference<Map<String, ?>>() {
-                        })
-                .getBody();
-        return parseLocationData(response);
+        return locationCalls.execute(uri, () -> {
+            Map<String, ?> response = restTemplate.exchange(
+                            uri,
+                            HttpMethod.GET,
+                            null,
+                            new ParameterizedTypeReference<Map<String, ?>>() {
+                            })
+                    .getBody();
+            List<LocationResponse> locations = parseLocationData(response);
+            locationCache.put(request.name(), locations);
+            return locations;
+        });
     }
 
     /**
@@ -76,23 +91,70 @@ public class OpenMetroServiceImpl implements LookupService {
      */
     @Override
     public List<SensorHistoryRequest> getWeatherHistory(SensorRequest request) {
-        LocalDate endDate = LocalDate.now().minusDays(5);
-        LocalDate startDate = endDate.minusDays(customProperties.getWeatherLookbackDays());
-        URI uri = UriComponentsBuilder.fromUriString(customProperties.getWeatherApiUrl())
-                .queryParam("latitude", request.latitude())
-                .queryParam("longitude", request.longitude())
-                .queryParam("start_date", startDate.format(DateTimeFormatter.ISO_DATE))
-                .queryParam("end_date", endDate.format(DateTimeFormatter.ISO_DATE))
+        return getWeatherHistory(request, DateRange.lookback(customProperties.getWeatherLookbackDays()));
+    }
+
+    /**
+     * Get Weather data for the respective time period to support sensor history creation.
+     *
+     * @param request parent sensor request details
+     * @param period  time period to get the weather data for
+     * @return list of new sensor history data
+     */
+    @Override
+    public List<SensorHistoryRequest> getWeatherHistory(SensorRequest request, DateRange period) {
+        URI uri = buildWeatherUri(String.valueOf(request.latitude()), String.valueOf(request.longitude()), period);
+        List<List<SensorHistoryRequest>> response = fetchWeatherData(uri);
+        return response.isEmpty() ? Collections.emptyList() : response.get(0);
+    }
+
+    /**
+     * Get Weather data for the respective time period for multiple sensors, in as few upstream requests as possible.
+     * <p>
+     * The archive accepts comma separated coordinates and then answers with a list of results, in the same order.
+     * Sensors are requested in chunks of {@code custom.weatherBatchSize} locations.
+     *
+     * @param requests parent sensor request details
+     * @param period   time period to get the weather data for
+     * @return per sensor list of new sensor history data, in the same order as the requests
+     */
+    @Override
+    public List<List<SensorHistoryRequest>> getWeatherHistory(List<SensorRequest> requests, DateRange period) {
+        List<List<SensorHistoryRequest>> history = new ArrayList<>(requests.size());
+        int batchSize = customProperties.getWeatherBatchSize();
+        for (int x = 0; x < requests.size(); x += batchSize) {
+            List<SensorRequest> chunk = requests.subList(x, Math.min(x + batchSize, requests.size()));
+            URI uri = buildWeatherUri(
+                    chunk.stream().map(r -> String.valueOf(r.latitude())).collect(Collectors.joining(",")),
+                    chunk.stream().map(r -> String.valueOf(r.longitude())).collect(Collectors.joining(",")),
+                    period);
+            List<List<SensorHistoryRequest>> response = fetchWeatherData(uri);
+            for (int y = 0; y < chunk.size(); y++) {
+                history.add(y < response.size() ? response.get(y) : Collections.emptyList());
+            }
+        }
+        return history;
+    }
+
+    private List<List<SensorHistoryRequest>> fetchWeatherData(URI uri) {
+        return weatherCalls.execute(uri, () -> {
+            List<List<SensorHistoryRequest>> response = restTemplate.execute(
+                    uri,
+                    HttpMethod.GET,
+                    null,
+                    res -> OpenMetroHistoryParser.parse(res.getBody()));
+            return response == null ? Collections.<List<SensorHistoryRequest>>emptyList() : response;
+        });
+    }
+
+    private URI buildWeatherUri(String latitude, String longitude, DateRange period) {
+        return UriComponentsBuilder.fromUriString(customProperties.getWeatherApiUrl())
+                .queryParam("latitude", latitude)
+                .queryParam("longitude", longitude)
+                .queryParam("start_date", period.startDate().format(DateTimeFormatter.ISO_DATE))
+                .queryParam("end_date", period.endDate().format(DateTimeFormatter.ISO_DATE))
                 .queryParam("daily", String.join(",", searchKeys))
                 .build().toUri();
-        Map<String, ?> response = restTemplate.exchange(
-                        uri,
-                        HttpMethod.GET,
-                        null,
-                        new ParameterizedTypeReference<Map<String, ?>>() {
-                        })
-                .getBody();
-        return parseWeatherData(response);
     }
 
     private List<LocationResponse> parseLocationData(Map<String, ?> response) {
@@ -120,48 +182,4 @@ public class OpenMetroServiceImpl implements LookupService {
         return Collections.emptyList();
     }
 
-    private List<SensorHistoryRequest> parseWeatherData(Map<String, ?> response) {
-        if (response != null && response.get("daily") instanceof Map) {
-            List<SensorHistoryRequest> history = new ArrayList<>();
-            @SuppressWarnings("unchecked")
-            Map<String, ?> daily = (Map<String, ?>) response.get("daily");
-            @SuppressWarnings("unchecked")
-            List<String> dates = (List<String>) daily.get("time");
-            @SuppressWarnings("unchecked")
-            List<Double> rainfallSum = (List<Double>) daily.get("rain_sum");
-            @SuppressWarnings("unchecked")
-            List<Double> snowfallSum = (List<Double>) daily.get("snowfall_sum");
-            @SuppressWarnings("unchecked")
-            List<String> sunrise = (List<String>) daily.get("sunrise");
-            @SuppressWarnings("unchecked")
-            List<String> sunset = (List<String>) daily.get("sunset");
-            @SuppressWarnings("unchecked")
-            List<Double> temperatureMean = (List<Double>) daily.get("temperature_2m_mean");
-            @SuppressWarnings("unchecked")
-            List<Double> temperatureMin = (List<Double>) daily.get("temperature_2m_min");
-            @SuppressWarnings("unchecked")
-            List<Double> temperatureMax = (List<Double>) daily.get("temperature_2m_max");
-            @SuppressWarnings("unchecked")
-            List<Integer> windDirection = (List<Integer>) daily.get("wind_direction_10m_dominant");
-            @SuppressWarnings("unchecked")
-            List<Double> windSpeedMax = (List<Double>) daily.get("wind_speed_10m_max");
-            for (int x = 0; x < dates.size(); x++) {
-                history.add(SensorHistoryRequest.builder()
-                        .recordDate(LocalDate.parse(dates.get(x)))
-                        .rainfallSum(rainfallSum.get(x))
-                        .snowfallSum(snowfallSum.get(x))
-                        .sunrise(LocalDateTime.parse(sunrise.get(x)))
-                        .sunset(LocalDateTime.parse(sunset.get(x)))
-                        .temperatureMean(temperatureMean.get(x))
-                        .temperatureMin(temperatureMin.get(x))
-                        .temperatureMax(temperatureMax.get(x))
-                        .windDirection(windDirection.get(x))
-                        .windSpeedMax(windSpeedMax.get(x))
-                        .build());
-            }
-            return history;
-        }
-        return Collections.emptyList();
-    }
-
 }
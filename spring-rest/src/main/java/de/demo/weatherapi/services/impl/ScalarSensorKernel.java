@@ -0,0 +1,42 @@
+package de.demo.weatherapi.services.impl;
+
+/**
+ * Scalar Sensor Kernel - implements Sensor Kernel with plain loops, one day at a time.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+final class ScalarSensorKernel implements SensorKernel {
+
+    @Override
+    public int aggregate(double[][] columns, int selected, int first, int last, double[] sum, double[] min, double[] max) {
+        int count = -1;
+        for (int c = 0; c < columns.length; c++) {
+            if ((selected & 1 << c) == 0) {
+                continue;
+            }
+            double[] column = columns[c];
+            int present = 0;
+            double s = 0;
+            double mn = min[c];
+            double mx = max[c];
+            for (int x = first; x <= last; x++) {
+                double value = column[x];
+                if (!Double.isNaN(value)) {
+                    present++;
+                    s += value;
+                    mn = Math.min(mn, value);
+                    mx = Math.max(mx, value);
+                }
+            }
+            sum[c] += s;
+            min[c] = mn;
+            max[c] = mx;
+            if (count < 0) {
+                count = present;
+            }
+        }
+        return Math.max(count, 0);
+    }
+
+}
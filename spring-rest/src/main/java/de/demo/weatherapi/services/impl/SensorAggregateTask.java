@@ -0,0 +1,72 @@
+package de.demo.weatherapi.services.impl;
+
+import de.demo.weatherapi.entities.SensorAggregateEntity;
+import de.demo.weatherapi.enums.GranularityEnum;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Sensor Aggregate Task - aggregates a range of days across a slice of the sensor series, splitting the slice in half
+ * until at most {@link #LEAF} series remain, then aggregating those sequentially. The partial results hold one
+ * aggregate per sensor, or per sensor and time bucket, so merging them is a concatenation.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+final class SensorAggregateTask extends RecursiveTask<List<SensorAggregateEntity>> {
+
+    static final int LEAF = 32;
+
+    private final SensorSeries[] series;
+    private final int from;
+    private final int to;
+    private final long firstDay;
+    private final long lastDay;
+    private final GranularityEnum granularity;
+    private final int selected;
+
+    SensorAggregateTask(SensorSeries[] series, long firstDay, long lastDay, GranularityEnum granularity, int selected) {
+        this(series, 0, series.length, firstDay, lastDay, granularity, selected);
+    }
+
+    private SensorAggregateTask(SensorSeries[] series, int from, int to, long firstDay, long lastDay,
+                                GranularityEnum granularity, int selected) {
+        this.series = series;
+        this.from = from;
+        this.to = to;
+        this.firstDay = firstDay;
+        this.lastDay = lastDay;
+        this.granularity = granularity;
+        this.selected = selected;
+    }
+
+    @Override
+    protected List<SensorAggregateEntity> compute() {
+        if (to - from <= LEAF) {
+            List<SensorAggregateEntity> aggregates = new ArrayList<>(to - from);
+            for (int x = from; x < to; x++) {
+                if (granularity != null) {
+                    series[x].aggregate(series[x].name(), firstDay, lastDay, granularity, selected, aggregates);
+                    continue;
+                }
+                SensorAggregateEntity aggregate = series[x].aggregate(series[x].name(), firstDay, lastDay, selected);
+                if (aggregate != null) {
+                    aggregates.add(aggregate);
+                }
+            }
+            return aggregates;
+        }
+        int middle = (from + to) >>> 1;
+        SensorAggregateTask left = new SensorAggregateTask(series, from, middle, firstDay, lastDay, granularity,
+                selected);
+        left.fork();
+        List<SensorAggregateEntity> right = new SensorAggregateTask(series, middle, to, firstDay, lastDay, granularity,
+                selected).compute();
+        List<SensorAggregateEntity> aggregates = left.join();
+        aggregates.addAll(right);
+        return aggregates;
+    }
+
+}
@@ -1,24 +1,34 @@
 package de.demo.weatherapi.services.impl;
 
 import de.demo.weatherapi.dtos.SensorAverageResponse;
-import de.demo.weatherapi.dtos.SensorResponse;
+import de.demo.weatherapi.entities.SensorAggregateEntity;
 import de.demo.weatherapi.entities.SensorAverageEntity;
-import de.demo.weatherapi.entities.SensorEntity;
+import de.demo.weatherapi.enums.GranularityEnum;
 import de.demo.weatherapi.enums.MetricEnum;
 import de.demo.weatherapi.repositories.SensorAverageRepository;
-import de.demo.weatherapi.repositories.SensorRepository;
 import de.demo.weatherapi.services.SensorAverageService;
-import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
-import java.util.Optional;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Sensor Average Service Impl - implements Sensor Average Service.
+ * <p>
+ * Once loaded, the averages are answered from the in-memory {@link SensorHistoryIndex}. Otherwise whole months are
+ * averaged from the monthly rollups, so the cost of a query depends on the number of months rather than the number of
+ * history records. The averages can be grouped into day, week, month or year time buckets, identified by an integer
+ * computed from the epoch day and only labelled once averaged. When only some metrics are requested, the index only
+ * scans their columns; the queries read every metric, which the monthly rollups already keep cheap.
  *
  * @author Dwight Egerton
  * @since 0.0.1
@@ -28,63 +38,144 @@ import java.util.UUID;
 @Slf4j
 public class SensorAverageServiceImpl implements SensorAverageService {
 
-    final SensorRepository sensorRepository;
     final SensorAverageRepository sensorAverageRepository;
+    final SensorHistoryIndex sensorHistoryIndex;
 
     /**
      * Find Sensor history averages within the respective time period.
      *
-     * @param startDate start of the time period filter
-     * @param endDate   end of the time period filter
-     * @return averaged sensor history grouped by the sensors
+     * @param startDate   start of the time period filter
+     * @param endDate     end of the time period filter
+     * @param granularity size of the time buckets, or null for the whole time period
+     * @param metrics     metrics to average, or null for all
+     * @return averaged sensor history grouped by the sensors, and by the time buckets when requested
      */
     @Override
-    public SensorAverageResponse findAverage(LocalDate startDate, LocalDate endDate) {
-        SensorAverageResponse response = SensorAverageResponse.builder()
-                .startDate(startDate)
-                .endDate(endDate)
-                .build();
-        for (SensorAverageEntity entity : sensorAverageRepository.findAverageInDateRange(startDate, endDate)) {
-            SensorResponse sensor = findSensorById(UUID.fromString(entity.getKey())).toResponse();
-            response.addData(sensor.name(), MetricEnum.RAINFALL, entity.getRainfallMean(), entity.getRainfallMin(), entity.getRainfallMax());
-            response.addData(sensor.name(), MetricEnum.SNOWFALL, entity.getSnowfallMean(), entity.getSnowfallMin(), entity.getSnowfallMax());
-            response.addData(sensor.name(), MetricEnum.TEMPERATURE, entity.getTemperatureMean(), entity.getTemperatureMin(), entity.getTemperatureMax());
-            response.addData(sensor.name(), MetricEnum.WIND_DIRECTION, entity.getWindDirectionMean(), entity.getWindDirectionMin(), entity.getWindDirectionMax());
-            response.addData(sensor.name(), MetricEnum.WIND_SPEED, entity.getWindSpeedMean(), entity.getWindSpeedMin(), entity.getWindSpeedMax());
+    public SensorAverageResponse findAverage(LocalDate startDate, LocalDate endDate, GranularityEnum granularity,
+                                             Set<MetricEnum> metrics) {
+        if (granularity == null) {
+            return response(startDate, endDate, average(startDate, endDate, null,
+                            () -> sensorHistoryIndex.aggregate(startDate, endDate, null, metrics),
+                            sensorAverageRepository::findAggregateInDateRange,
+                            sensorAverageRepository::findMonthAggregateInDateRange),
+                    SensorAggregateEntity::getKey, metrics);
         }
-        return response;
+        return response(startDate, endDate, average(startDate, endDate, granularity,
+                        () -> sensorHistoryIndex.aggregate(startDate, endDate, granularity, metrics),
+                        sensorAverageRepository::findAggregateByDayInDateRange,
+                        sensorAverageRepository::findAggregateByMonthInDateRange),
+                aggregate -> aggregate.getKey() + "/" + granularity.label(aggregate.getPeriod()), metrics);
     }
 
     /**
      * For the specified sensor, get the history averages within the respective time period.
      *
-     * @param sensorId  respective ID of the Sensor
-     * @param startDate start of the time period filter
-     * @param endDate   end of the time period filter
-     * @return averaged sensor history grouped by month
+     * @param sensorId    respective ID of the Sensor
+     * @param startDate   start of the time period filter
+     * @param endDate     end of the time period filter
+     * @param granularity size of the time buckets, or null for months
+     * @param metrics     metrics to average, or null for all
+     * @return averaged sensor history grouped by the time buckets
      */
     @Override
-    public SensorAverageResponse findAverageBySensor(UUID sensorId, LocalDate startDate, LocalDate endDate) {
+    public SensorAverageResponse findAverageBySensor(UUID sensorId, LocalDate startDate, LocalDate endDate,
+                                                     GranularityEnum granularity, Set<MetricEnum> metrics) {
+        GranularityEnum buckets = granularity == null ? GranularityEnum.MONTH : granularity;
+        return response(startDate, endDate, average(startDate, endDate, buckets,
+                        () -> sensorHistoryIndex.aggregateBySensor(sensorId, startDate, endDate, buckets, metrics),
+                        (start, end) -> sensorAverageRepository.findSensorAggregateByDayInDateRange(sensorId, start, end),
+                        (first, last) -> sensorAverageRepository.findSensorAggregateByMonthInDateRange(sensorId, first, last)),
+                aggregate -> buckets.label(aggregate.getPeriod()), metrics);
+    }
+
+    private SensorAverageResponse response(LocalDate startDate, LocalDate endDate, List<SensorAggregateEntity> aggregates,
+                                           Function<SensorAggregateEntity, String> key, Set<MetricEnum> metrics) {
         SensorAverageResponse response = SensorAverageResponse.builder()
                 .startDate(startDate)
                 .endDate(endDate)
                 .build();
-        for (SensorAverageEntity entity : sensorAverageRepository.findSensorAverageInDateRange(sensorId, startDate, endDate)) {
-            response.addData(entity.getKey(), MetricEnum.RAINFALL, entity.getRainfallMean(), entity.getRainfallMin(), entity.getRainfallMax());
-            response.addData(entity.getKey(), MetricEnum.SNOWFALL, entity.getSnowfallMean(), entity.getSnowfallMin(), entity.getSnowfallMax());
-            response.addData(entity.getKey(), MetricEnum.TEMPERATURE, entity.getTemperatureMean(), entity.getTemperatureMin(), entity.getTemperatureMax());
-            response.addData(entity.getKey(), MetricEnum.WIND_DIRECTION, entity.getWindDirectionMean(), entity.getWindDirectionMin(), entity.getWindDirectionMax());
-            response.addData(entity.getKey(), MetricEnum.WIND_SPEED, entity.getWindSpeedMean(), entity.getWindSpeedMin(), entity.getWindSpeedMax());
+        for (SensorAggregateEntity aggregate : aggregates) {
+            SensorAverageEntity entity = aggregate.toAverage();
+            String label = key.apply(aggregate);
+            if (isSelected(metrics, MetricEnum.RAINFALL)) {
+                response.addData(label, MetricEnum.RAINFALL, entity.getRainfallMean(), entity.getRainfallMin(), entity.getRainfallMax());
+            }
+            if (isSelected(metrics, MetricEnum.SNOWFALL)) {
+                response.addData(label, MetricEnum.SNOWFALL, entity.getSnowfallMean(), entity.getSnowfallMin(), entity.getSnowfallMax());
+            }
+            if (isSelected(metrics, MetricEnum.TEMPERATURE)) {
+                response.addData(label, MetricEnum.TEMPERATURE, entity.getTemperatureMean(), entity.getTemperatureMin(), entity.getTemperatureMax());
+            }
+            if (isSelected(metrics, MetricEnum.WIND_DIRECTION)) {
+                response.addData(label, MetricEnum.WIND_DIRECTION, entity.getWindDirectionMean(), entity.getWindDirectionMin(), entity.getWindDirectionMax());
+            }
+            if (isSelected(metrics, MetricEnum.WIND_SPEED)) {
+                response.addData(label, MetricEnum.WIND_SPEED, entity.getWindSpeedMean(), entity.getWindSpeedMin(), entity.getWindSpeedMax());
+            }
         }
         return response;
     }
 
-    private SensorEntity findSensorById(UUID sensorId) {
-        Optional<SensorEntity> sensor = sensorRepository.findById(sensorId);
-        if (sensor.isEmpty()) {
-            throw new EntityNotFoundException("Unable to find matching sensor record for " + sensorId);
+    private boolean isSelected(Set<MetricEnum> metrics, MetricEnum metric) {
+        return metrics == null || metrics.isEmpty() || metrics.contains(metric);
+    }
+
+    /**
+     * Aggregate the history within the time period, from the index once loaded. Otherwise, for the whole time period
+     * or month aligned time buckets, reading the whole months from the monthly rollups and only the days of the
+     * partial months at either end from the history itself, and for shorter time buckets reading the history.
+     *
+     * @param startDate   start of the time period filter
+     * @param endDate     end of the time period filter
+     * @param granularity size of the time buckets, or null for the whole time period
+     * @param indexed     index lookup aggregating the history within the time period
+     * @param history     query aggregating the history between two days
+     * @param months      query aggregating the monthly rollups between two months
+     * @return aggregates, one per key, or per key and time bucket
+     */
+    private List<SensorAggregateEntity> average(LocalDate startDate, LocalDate endDate, GranularityEnum granularity,
+                                                Supplier<List<SensorAggregateEntity>> indexed,
+                                                BiFunction<LocalDate, LocalDate, List<SensorAggregateEntity>> history,
+                                                BiFunction<LocalDate, LocalDate, List<SensorAggregateEntity>> months) {
+        if (startDate == null || endDate == null) {
+            return List.of();
+        }
+        if (sensorHistoryIndex.isReady()) {
+            return indexed.get();
         }
-        return sensor.get();
+        Map<Bucket, SensorAggregateEntity> aggregates = new LinkedHashMap<>();
+        LocalDate firstMonth = startDate.getDayOfMonth() == 1 ? startDate : startDate.withDayOfMonth(1).plusMonths(1);
+        LocalDate endMonth = endDate.plusDays(1).withDayOfMonth(1);
+        if (!firstMonth.isBefore(endMonth) || (granularity != null && !granularity.isMonthAligned())) {
+            combine(aggregates, history.apply(startDate, endDate), granularity);
+        } else {
+            if (startDate.isBefore(firstMonth)) {
+                combine(aggregates, history.apply(startDate, firstMonth.minusDays(1)), granularity);
+            }
+            combine(aggregates, months.apply(firstMonth, endMonth.minusMonths(1)), granularity);
+            if (!endDate.isBefore(endMonth)) {
+                combine(aggregates, history.apply(endMonth, endDate), granularity);
+            }
+        }
+        return List.copyOf(aggregates.values());
+    }
+
+    private void combine(Map<Bucket, SensorAggregateEntity> aggregates, List<SensorAggregateEntity> partials,
+                         GranularityEnum granularity) {
+        for (SensorAggregateEntity partial : partials) {
+            int bucket = 0;
+            if (granularity != null) {
+                bucket = granularity.bucket(partial.getPeriod().toEpochDay());
+                partial.setPeriod(granularity.start(bucket));
+            }
+            aggregates.merge(new Bucket(partial.getKey(), bucket), partial, SensorAggregateEntity::combine);
+        }
+    }
+
+    private record Bucket(
+            String key,
+            int bucket
+    ) {
     }
 
 }
@@ -0,0 +1,307 @@
+package de.demo.weatherapi.services.impl;
+
+import de.demo.weatherapi.CustomProperties;
+import de.demo.weatherapi.dtos.SensorHistoryCursor;
+import de.demo.weatherapi.dtos.SensorHistoryResponse;
+import de.demo.weatherapi.dtos.SensorResponse;
+import de.demo.weatherapi.entities.SensorAggregateEntity;
+import de.demo.weatherapi.entities.SensorEntity;
+import de.demo.weatherapi.entities.SensorHistoryEntity;
+import de.demo.weatherapi.enums.GranularityEnum;
+import de.demo.weatherapi.enums.MetricEnum;
+import de.demo.weatherapi.events.SensorHistoryDeletedEvent;
+import de.demo.weatherapi.events.SensorHistoryWrittenEvent;
+import de.demo.weatherapi.repositories.SensorHistoryRepository;
+import de.demo.weatherapi.repositories.SensorRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sensor History Index - in-memory columnar store of the sensor history, one {@link SensorSeries} per sensor, answering
+ * the history and averages without querying the database.
+ * <p>
+ * When {@code custom.memory.enabled} is set, the index is loaded from the database once the application has started
+ * and kept up to date from the {@link SensorHistoryWrittenEvent}s and {@link SensorHistoryDeletedEvent}s, applied once
+ * their transaction has committed. The database remains the system of record, until the index is loaded the history
+ * and averages are queried from the database.
+ * <p>
+ * The averages across all sensors are split per sensor over a dedicated fork-join pool of
+ * {@code custom.memory.parallelism} threads, so they neither use the common pool nor take more than their share of the
+ * cores from the request threads. With {@code custom.memory.vector} set, the series scan their days with the Vector API
+ * kernel rather than the scalar one.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SensorHistoryIndex {
+
+    final CustomProperties customProperties;
+    final SensorRepository sensorRepository;
+    final SensorHistoryRepository sensorHistoryRepository;
+
+    private final ConcurrentMap<UUID, SensorSeries> series = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+    private ForkJoinPool pool;
+    private SensorKernel kernel;
+
+    @PostConstruct
+    void start() {
+        kernel = new ScalarSensorKernel();
+        if (Boolean.TRUE.equals(customProperties.getMemory().getVector())) {
+            if (SensorKernel.isVectorSupported()) {
+                kernel = new VectorSensorKernel();
+            } else {
+                log.warn("custom.memory.vector is set but the JVM was started without "
+                        + "--add-modules jdk.incubator.vector, using the scalar kernel");
+            }
+        }
+        int parallelism = customProperties.getMemory().getParallelism();
+        pool = new ForkJoinPool(parallelism, p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("sensor-aggregate-" + thread.getPoolIndex());
+            return thread;
+        }, null, false, 0, parallelism, 1, null, 60, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        pool.shutdownNow();
+        pool.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Load the sensor history of every sensor. Each sensor is read while holding its series, so any write committed
+     * meanwhile is applied after it rather than overwritten by it.
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    public void load() {
+        if (!enabled()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        long records = 0;
+        for (SensorEntity sensor : sensorRepository.findAll()) {
+            SensorSeries sensorSeries = series(sensor);
+            synchronized (sensorSeries) {
+                List<SensorHistoryEntity> history = sensorHistoryRepository.findAllBySensor(sensor.getId());
+                sensorSeries.putAll(history);
+                records += history.size();
+            }
+        }
+        ready = true;
+        log.info("indexed {} sensor history records of {} sensors in {} ms",
+                records, series.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Whether the index is loaded and can answer the history and averages.
+     *
+     * @return true when the index is loaded
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Find a page of the sensor history of every sensor within the respective time period, in page order. The days are
+     * read back from the cursor in windows across all sensors, doubling the window until the page is filled, so a page
+     * reads about as many records as it returns however deep it is.
+     *
+     * @param startDate start of the time period filter, or null for the full history
+     * @param endDate   end of the time period filter, or null for the full history
+     * @param metrics   metrics to read, or null for all
+     * @param cursor    cursor of the previous page, or null for the first page
+     * @param limit     maximum number of history records
+     * @return page of sensor history for the time period
+     */
+    public List<SensorHistoryResponse> findAll(LocalDate startDate, LocalDate endDate, Set<MetricEnum> metrics,
+                                               SensorHistoryCursor cursor, int limit) {
+        int selected = SensorSeries.columns(metrics);
+        Map<UUID, SensorResponse> sensors = new HashMap<>();
+        sensorRepository.findAll().forEach(sensor -> sensors.put(sensor.getId(), sensor.toResponse()));
+        Map<SensorSeries, SensorResponse> readable = new LinkedHashMap<>();
+        long firstDay = Long.MAX_VALUE;
+        long lastDay = Long.MIN_VALUE;
+        for (Map.Entry<UUID, SensorSeries> entry : series.entrySet()) {
+            SensorResponse sensor = sensors.get(entry.getKey());
+            if (sensor != null) {
+                readable.put(entry.getValue(), sensor);
+                firstDay = Math.min(firstDay, entry.getValue().firstDay());
+                lastDay = Math.max(lastDay, entry.getValue().lastDay());
+            }
+        }
+        firstDay = Math.max(firstDay, firstDay(startDate, endDate));
+        lastDay = Math.min(lastDay, lastDay(startDate, endDate, cursor));
+
+        List<SensorHistoryResponse> history = new ArrayList<>(limit);
+        long window = Math.max(1, limit / Math.max(readable.size(), 1));
+        for (long to = lastDay; to >= firstDay && history.size() < limit; to -= window, window *= 2) {
+            long from = Math.max(firstDay, to - window + 1);
+            List<SensorHistoryResponse> days = new ArrayList<>();
+            for (Map.Entry<SensorSeries, SensorResponse> entry : readable.entrySet()) {
+                entry.getKey().history(entry.getValue(), from, to, selected, Integer.MAX_VALUE, days);
+            }
+            days.sort(SensorHistoryCursor.ORDER);
+            for (SensorHistoryResponse day : days) {
+                if (history.size() == limit) {
+                    break;
+                }
+                if (cursor == null || cursor.precedes(day)) {
+                    history.add(day);
+                }
+            }
+        }
+        return history;
+    }
+
+    /**
+     * For the specified sensor, find a page of the sensor history within the respective time period, in page order.
+     *
+     * @param sensorId  respective ID of the Sensor
+     * @param startDate start of the time period filter, or null for the full history
+     * @param endDate   end of the time period filter, or null for the full history
+     * @param metrics   metrics to read, or null for all
+     * @param cursor    cursor of the previous page, or null for the first page
+     * @param limit     maximum number of history records
+     * @return page of sensor history for the time period
+     */
+    public List<SensorHistoryResponse> findAllBySensor(UUID sensorId, LocalDate startDate, LocalDate endDate,
+                                                       Set<MetricEnum> metrics, SensorHistoryCursor cursor, int limit) {
+        SensorSeries sensorSeries = series.get(sensorId);
+        if (sensorSeries == null) {
+            return List.of();
+        }
+        List<SensorHistoryResponse> history = new ArrayList<>(limit + 1);
+        // one record a day, so at most the record of the cursor itself is read back and dropped
+        sensorRepository.findById(sensorId).ifPresent(sensor -> sensorSeries.history(
+                sensor.toResponse(), firstDay(startDate, endDate), lastDay(startDate, endDate, cursor),
+                SensorSeries.columns(metrics), limit + 1, history));
+        if (cursor != null) {
+            history.removeIf(day -> !cursor.precedes(day));
+        }
+        return history.size() > limit ? history.subList(0, limit) : history;
+    }
+
+    /**
+     * Aggregate the sensor history of every sensor within the respective time period, optionally by time bucket.
+     *
+     * @param startDate   start of the time period filter
+     * @param endDate     end of the time period filter
+     * @param granularity size of the time buckets, or null for the whole time period
+     * @param metrics     metrics to aggregate, or null for all, the others are left null
+     * @return aggregated sensor history, one per sensor, or per sensor and time bucket, with history in the time
+     * period, keyed by the sensor name
+     */
+    public List<SensorAggregateEntity> aggregate(LocalDate startDate, LocalDate endDate, GranularityEnum granularity,
+                                                 Set<MetricEnum> metrics) {
+        return pool.invoke(new SensorAggregateTask(series.values().toArray(SensorSeries[]::new),
+                startDate.toEpochDay(), endDate.toEpochDay(), granularity, SensorSeries.columns(metrics)));
+    }
+
+    /**
+     * For the specified sensor, aggregate the sensor history within the respective time period by time bucket.
+     *
+     * @param sensorId    respective ID of the Sensor
+     * @param startDate   start of the time period filter
+     * @param endDate     end of the time period filter
+     * @param granularity size of the time buckets
+     * @param metrics     metrics to aggregate, or null for all, the others are left null
+     * @return aggregated sensor history, one per time bucket with history, keyed by the sensor name
+     */
+    public List<SensorAggregateEntity> aggregateBySensor(UUID sensorId, LocalDate startDate, LocalDate endDate,
+                                                         GranularityEnum granularity, Set<MetricEnum> metrics) {
+        SensorSeries sensorSeries = series.get(sensorId);
+        if (sensorSeries == null) {
+            return List.of();
+        }
+        List<SensorAggregateEntity> aggregates = new ArrayList<>();
+        sensorSeries.aggregate(sensorSeries.name(), startDate.toEpochDay(), endDate.toEpochDay(), granularity,
+                SensorSeries.columns(metrics), aggregates);
+        return aggregates;
+    }
+
+    /**
+     * Apply the sensor history written, once its transaction has committed. Writers of a sensor may run their
+     * listeners in the opposite order to their commits, so rather than the records of the event, the days written are
+     * read back from the database while holding the series, as when loading. Whichever listener runs last then applies
+     * the latest records committed.
+     *
+     * @param event sensor history written
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onWritten(SensorHistoryWrittenEvent event) {
+        if (!enabled()) {
+            return;
+        }
+        Map<UUID, SensorEntity> sensors = new LinkedHashMap<>();
+        Map<UUID, LocalDate> firstDates = new HashMap<>();
+        Map<UUID, LocalDate> lastDates = new HashMap<>();
+        for (SensorHistoryEntity entity : event.history()) {
+            UUID sensorId = entity.getSensor().getId();
+            sensors.putIfAbsent(sensorId, entity.getSensor());
+            firstDates.merge(sensorId, entity.getRecordDate(), (a, b) -> a.isBefore(b) ? a : b);
+            lastDates.merge(sensorId, entity.getRecordDate(), (a, b) -> a.isAfter(b) ? a : b);
+        }
+        for (SensorEntity sensor : sensors.values()) {
+            SensorSeries sensorSeries = series(sensor);
+            synchronized (sensorSeries) {
+                sensorSeries.putAll(sensorHistoryRepository.findAllBySensorAndDateRange(sensor.getId(),
+                        firstDates.get(sensor.getId()), lastDates.get(sensor.getId())));
+            }
+        }
+    }
+
+    /**
+     * Drop the sensor history deleted, once its transaction has committed.
+     *
+     * @param event sensor history deleted
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeleted(SensorHistoryDeletedEvent event) {
+        series.remove(event.sensorId());
+    }
+
+    private SensorSeries series(SensorEntity sensor) {
+        return series.computeIfAbsent(sensor.getId(), id -> new SensorSeries(sensor.getName(), kernel));
+    }
+
+    private long firstDay(LocalDate startDate, LocalDate endDate) {
+        return (startDate != null && endDate != null ? startDate : LocalDate.MIN).toEpochDay();
+    }
+
+    private long lastDay(LocalDate startDate, LocalDate endDate, SensorHistoryCursor cursor) {
+        LocalDate lastDate = startDate != null && endDate != null ? endDate : LocalDate.MAX;
+        return (cursor != null && cursor.recordDate().isBefore(lastDate) ? cursor.recordDate() : lastDate).toEpochDay();
+    }
+
+    private boolean enabled() {
+        return Boolean.TRUE.equals(customProperties.getMemory().getEnabled());
+    }
+
+}
@@ -0,0 +1,276 @@
+package de.demo.weatherapi.services.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.demo.weatherapi.CustomProperties;
+import de.demo.weatherapi.dtos.SensorHistoryReceiptResponse;
+import de.demo.weatherapi.dtos.SensorHistoryRequest;
+import de.demo.weatherapi.entities.SensorEntity;
+import de.demo.weatherapi.entities.SensorHistoryEntity;
+import de.demo.weatherapi.repositories.SensorHistoryRepository;
+import de.demo.weatherapi.repositories.SensorRepository;
+import de.demo.weatherapi.services.SensorHistoryQueueService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sensor History Queue Service Impl - implements Sensor History Queue Service.
+ * <p>
+ * Queued records are held in memory (bounded by {@code custom.ingest.queueCapacity}) and group committed by a single
+ * writer thread, either once {@code custom.historyBatchSize} records are waiting or {@code custom.ingest.flushMillis}
+ * after the first record of a batch arrived. Anything still queued is written when the application shuts down.
+ * <p>
+ * When a group commit fails, its records are retried per receipt and then, for a receipt that still fails, per record,
+ * so that one bad record only fails itself. The outcome is kept on the receipt for
+ * {@code custom.ingest.receiptTtlSeconds}, for the client to look up.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SensorHistoryQueueServiceImpl implements SensorHistoryQueueService {
+
+    final CustomProperties customProperties;
+    final SensorRepository sensorRepository;
+    final SensorHistoryRepository sensorHistoryRepository;
+
+    private final BlockingQueue<PendingHistory> queue = new LinkedBlockingQueue<>();
+    private Cache<UUID, Receipt> receipts;
+    private Semaphore capacity;
+    private Thread writer;
+    private volatile boolean running;
+
+    @PostConstruct
+    void start() {
+        if (Boolean.TRUE.equals(customProperties.getIngest().getEnabled())) {
+            capacity = new Semaphore(customProperties.getIngest().getQueueCapacity());
+            // every receipt still being written holds at least one queued record
+            receipts = Caffeine.newBuilder()
+                    .maximumSize(customProperties.getIngest().getQueueCapacity())
+                    .expireAfterWrite(Duration.ofSeconds(customProperties.getIngest().getReceiptTtlSeconds()))
+                    .build();
+            running = true;
+            writer = new Thread(this::drain, "sensor-history-writer");
+            writer.start();
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (writer != null) {
+            running = false;
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+            flush();
+            log.info("sensor history queue stopped, {} records outstanding", queue.size());
+        }
+    }
+
+    /**
+     * Queue new Sensor History records, to be written by the background writer.
+     *
+     * @param sensorId respective ID of the Sensor
+     * @param requests list of sensor history details
+     * @return receipt confirming the number of queued records
+     */
+    @Override
+    public SensorHistoryReceiptResponse enqueue(UUID sensorId, List<SensorHistoryRequest> requests) {
+        if (!running) {
+            throw new IllegalStateException("Sensor history queue is not enabled");
+        }
+        SensorEntity sensor = sensorRepository.findById(sensorId)
+                .orElseThrow(() -> new EntityNotFoundException("Unable to find matching sensor record for " + sensorId));
+        List<PendingHistory> pending = new ArrayList<>(requests.size());
+        Receipt receipt = new Receipt(UUID.randomUUID(), sensorId);
+        for (int x = 0; x < requests.size(); x++) {
+            SensorHistoryRequest request = requests.get(x);
+            if (request != null && request.validate() == null) {
+                pending.add(new PendingHistory(receipt, x, request.toEntity(sensor)));
+            }
+        }
+        if (pending.size() > customProperties.getIngest().getQueueCapacity()) {
+            throw new IllegalArgumentException("Sensor history queue can hold at most "
+                    + customProperties.getIngest().getQueueCapacity() + " records");
+        }
+        if (!capacity.tryAcquire(pending.size())) {
+            throw new RejectedExecutionException("Sensor history queue is full");
+        }
+        receipt.queued = pending.size();
+        receipt.rejected = requests.size() - pending.size();
+        receipts.put(receipt.receiptId, receipt);
+        queue.addAll(pending);
+        return receipt.toResponse();
+    }
+
+    /**
+     * Find the receipt of queued Sensor History records, with the number written or failed so far.
+     *
+     * @param sensorId  respective ID of the Sensor
+     * @param receiptId ID of the receipt
+     * @return the receipt, or null when unknown or expired
+     */
+    @Override
+    public SensorHistoryReceiptResponse findReceipt(UUID sensorId, UUID receiptId) {
+        if (!running) {
+            throw new IllegalStateException("Sensor history queue is not enabled");
+        }
+        Receipt receipt = receipts.getIfPresent(receiptId);
+        return receipt != null && receipt.sensorId.equals(sensorId) ? receipt.toResponse() : null;
+    }
+
+    /**
+     * Write all the currently queued records.
+     */
+    @Override
+    public void flush() {
+        List<PendingHistory> batch = new ArrayList<>();
+        while (queue.drainTo(batch, customProperties.getHistoryBatchSize()) > 0) {
+            commit(batch);
+        }
+    }
+
+    private void drain() {
+        int batchSize = customProperties.getHistoryBatchSize();
+        long flushNanos = TimeUnit.MILLISECONDS.toNanos(customProperties.getIngest().getFlushMillis());
+        List<PendingHistory> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                PendingHistory first = queue.poll(flushNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + flushNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingHistory next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commit(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private synchronized void commit(List<PendingHistory> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            Exception failure = upsert(batch);
+            if (failure == null) {
+                log.debug("committed {} queued sensor history records", batch.size());
+                return;
+            }
+            log.warn("failed to commit {} queued sensor history records, retrying per receipt", batch.size(), failure);
+            Map<Receipt, List<PendingHistory>> byReceipt = new LinkedHashMap<>();
+            batch.forEach(p -> byReceipt.computeIfAbsent(p.receipt(), r -> new ArrayList<>()).add(p));
+            for (List<PendingHistory> records : byReceipt.values()) {
+                // a lone receipt has already failed, as the whole batch
+                Exception receiptFailure = byReceipt.size() > 1 ? upsert(records) : failure;
+                if (receiptFailure == null) {
+                    continue;
+                }
+                for (PendingHistory record : records) {
+                    // likewise a lone record, as the whole receipt
+                    Exception recordFailure = records.size() > 1 ? upsert(List.of(record)) : receiptFailure;
+                    if (recordFailure != null) {
+                        log.error("failed to commit queued sensor history record {} of receipt {}", record.index(),
+                                record.receipt().receiptId, recordFailure);
+                        record.receipt().failed(record.index(), ExceptionUtils.getRootCauseMessage(recordFailure));
+                    }
+                }
+            }
+        } finally {
+            capacity.release(batch.size());
+            batch.clear();
+        }
+    }
+
+    /**
+     * Write the records in one transaction, counting them as written on their receipts.
+     *
+     * @return the failure, or null when written
+     */
+    private Exception upsert(List<PendingHistory> records) {
+        try {
+            sensorHistoryRepository.upsertAll(records.stream().map(PendingHistory::entity).toList());
+            records.forEach(p -> p.receipt().written());
+            return null;
+        } catch (Exception ex) {
+            return ex;
+        }
+    }
+
+    private record PendingHistory(
+            Receipt receipt,
+            int index,
+            SensorHistoryEntity entity
+    ) {
+    }
+
+    /**
+     * Outcome of the records queued by one request, updated by the writer thread.
+     */
+    private static class Receipt {
+        final UUID receiptId;
+        final UUID sensorId;
+        final List<SensorHistoryReceiptResponse.Failure> failures = new ArrayList<>();
+        int queued;
+        int rejected;
+        int written;
+
+        Receipt(UUID receiptId, UUID sensorId) {
+            this.receiptId = receiptId;
+            this.sensorId = sensorId;
+        }
+
+        synchronized void written() {
+            written++;
+        }
+
+        synchronized void failed(int index, String reason) {
+            failures.add(new SensorHistoryReceiptResponse.Failure(index, reason));
+        }
+
+        synchronized SensorHistoryReceiptResponse toResponse() {
+            return SensorHistoryReceiptResponse.builder()
+                    .receiptId(receiptId)
+                    .sensorId(sensorId)
+                    .queued(queued)
+                    .rejected(rejected)
+                    .written(written)
+                    .failed(failures.size())
+                    .failures(List.copyOf(failures))
+                    .build();
+        }
+    }
+
+}
@@ -1,22 +1,44 @@
 package de.demo.weatherapi.services.impl;
 
+import de.demo.weatherapi.CustomProperties;
+import de.demo.weatherapi.dtos.DateRange;
+import de.demo.weatherapi.dtos.SensorHistoryBatchRequest;
+import de.demo.weatherapi.dtos.SensorHistoryBatchResponse;
+import de.demo.weatherapi.dtos.SensorHistoryCursor;
+import de.demo.weatherapi.dtos.SensorHistoryPage;
 import de.demo.weatherapi.dtos.SensorHistoryRequest;
 import de.demo.weatherapi.dtos.SensorHistoryResponse;
 import de.demo.weatherapi.entities.SensorEntity;
 import de.demo.weatherapi.entities.SensorHistoryEntity;
+import de.demo.weatherapi.entities.SensorHistoryRowEntity;
+import de.demo.weatherapi.enums.MetricEnum;
+import de.demo.weatherapi.events.SensorHistoryDeletedEvent;
+import de.demo.weatherapi.repositories.SensorHistoryMonthRepository;
 import de.demo.weatherapi.repositories.SensorHistoryRepository;
 import de.demo.weatherapi.repositories.SensorRepository;
 import de.demo.weatherapi.services.SensorHistoryService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.util.Streamable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Sensor History Service Impl - implements Sensor History Service.
@@ -29,8 +51,18 @@ import java.util.UUID;
 @Slf4j
 public class SensorHistoryServiceImpl implements SensorHistoryService {
 
+    /**
+     * Bounds of the history pages when no time period is given, within the range of dates every database supports.
+     */
+    private static final LocalDate FIRST_DATE = LocalDate.of(1, 1, 1);
+    private static final LocalDate LAST_DATE = LocalDate.of(9999, 12, 31);
+
+    final CustomProperties customProperties;
     final SensorRepository sensorRepository;
     final SensorHistoryRepository sensorHistoryRepository;
+    final SensorHistoryMonthRepository sensorHistoryMonthRepository;
+    final SensorHistoryIndex sensorHistoryIndex;
+    final ApplicationEventPublisher eventPublisher;
 
     /**
      * Create new Sensor History record.
@@ -41,7 +73,112 @@ public class SensorHistoryServiceImpl implements SensorHistoryService {
      */
     @Override
     public SensorHistoryResponse create(UUID sensorId, SensorHistoryRequest request) {
-        return sensorHistoryRepository.save(request.toEntity(findSensorById(sensorId))).toResponse();
+        String reason = validate(request);
+        if (reason != null) {
+            throw new IllegalArgumentException(reason);
+        }
+        SensorHistoryEntity entity = request.toEntity(findSensorById(sensorId));
+        sensorHistoryRepository.upsertAll(List.of(entity));
+        return entity.toResponse();
+    }
+
+    /**
+     * Create a batch of new Sensor History records for a single Sensor.
+     *
+     * @param sensorId respective ID of the Sensor
+     * @param requests list of sensor history details
+     * @return per row confirmation of the accepted and rejected sensor history
+     */
+    @Override
+    public SensorHistoryBatchResponse createAll(UUID sensorId, List<SensorHistoryRequest> requests) {
+        return createAll(findSensorById(sensorId), requests);
+    }
+
+    /**
+     * Create batches of new Sensor History records for multiple Sensors.
+     *
+     * @param requests list of sensor history details, grouped by Sensor
+     * @return per sensor, per row confirmation of the accepted and rejected sensor history
+     */
+    @Override
+    public List<SensorHistoryBatchResponse> createAll(List<SensorHistoryBatchRequest> requests) {
+        Map<UUID, SensorEntity> sensors = new HashMap<>();
+        sensorRepository.findAllById(requests.stream()
+                        .map(SensorHistoryBatchRequest::sensorId)
+                        .filter(Objects::nonNull)
+                        .distinct()
+                        .toList())
+                .forEach(sensor -> sensors.put(sensor.getId(), sensor));
+        List<SensorHistoryBatchResponse> responses = new ArrayList<>();
+        for (SensorHistoryBatchRequest request : requests) {
+            SensorEntity sensor = sensors.get(request.sensorId());
+            if (sensor != null) {
+                responses.add(createAll(sensor, request.readings()));
+            } else {
+                SensorHistoryBatchResponse response = SensorHistoryBatchResponse.builder()
+                        .sensorId(request.sensorId())
+                        .build();
+                for (int x = 0; x < size(request.readings()); x++) {
+                    response.reject(x, "Unable to find matching sensor record for " + request.sensorId());
+                }
+                responses.add(response);
+            }
+        }
+        return responses;
+    }
+
+    /**
+     * Backfill Sensor History records for an already persisted Sensor, as one bulk write in a single transaction.
+     *
+     * @param sensor   the persisted Sensor the history belongs to
+     * @param requests list of sensor history details
+     * @return number of sensor history records written
+     */
+    @Override
+    @Transactional
+    public int backfill(SensorEntity sensor, List<SensorHistoryRequest> requests) {
+        List<SensorHistoryEntity> entities = new ArrayList<>(size(requests));
+        for (int x = 0; x < size(requests); x++) {
+            if (validate(requests.get(x)) == null) {
+                entities.add(requests.get(x).toEntity(sensor));
+            }
+        }
+        int batchSize = customProperties.getHistoryBatchSize();
+        int written = 0;
+        for (int x = 0; x < entities.size(); x += batchSize) {
+            written += sensorHistoryRepository.upsertAll(entities.subList(x, Math.min(x + batchSize, entities.size())));
+        }
+        log.debug("backfilled {} of {} sensor history records for sensor {}", written, size(requests), sensor.getId());
+        return written;
+    }
+
+    /**
+     * Find the periods within the respective time period that the sensor has no history for. Gaps separated by no
+     * more than {@code custom.backfill.mergeGapDays} stored days are merged, so they can be fetched in one request.
+     *
+     * @param sensorId respective ID of the Sensor
+     * @param period   time period to check
+     * @return ordered list of the missing periods
+     */
+    @Override
+    public List<DateRange> findGaps(UUID sensorId, DateRange period) {
+        List<LocalDate> stored = sensorHistoryRepository.findRecordDatesBySensorAndDateRange(
+                sensorId, period.startDate(), period.endDate());
+        int mergeGapDays = customProperties.getBackfill().getMergeGapDays();
+        List<DateRange> gaps = new ArrayList<>();
+        LocalDate next = period.startDate();
+        for (LocalDate date : stored) {
+            if (date.isAfter(next)) {
+                addGap(gaps, new DateRange(next, date.minusDays(1)), mergeGapDays);
+            }
+            if (!date.isBefore(next)) {
+                next = date.plusDays(1);
+            }
+        }
+        if (!next.isAfter(period.endDate())) {
+            addGap(gaps, new DateRange(next, period.endDate()), mergeGapDays);
+        }
+        return gaps;
     }
 
     /**
@@ -58,52 +195,236 @@ public class SensorHistoryServiceImpl implements SensorHistoryService {
     }
 
     /**
-     * Find sensor history for the specified time period.
+     * Find a page of sensor history for the specified time period, from the in-memory index once it is loaded.
      *
      * @param startDate start of the time period filter
      * @param endDate   end of the time period filter
-     * @return list of sensor history for the time period
+     * @param metrics   metrics to read, or null for all
+     * @param cursor    cursor of the previous page, or null for the first page
+     * @param size      page size, or null for {@code custom.historyPageSize}
+     * @return page of sensor history for the time period
      */
     @Override
-    public List<SensorHistoryResponse> findAll(LocalDate startDate, LocalDate endDate) {
-        Streamable<SensorHistoryEntity> stream;
-        if (startDate != null && endDate != null) {
-            stream = Streamable.of(sensorHistoryRepository.findAllByDateRange(startDate, endDate));
+    public SensorHistoryPage findAll(LocalDate startDate, LocalDate endDate, Set<MetricEnum> metrics,
+                                     SensorHistoryCursor cursor, Integer size) {
+        int pageSize = pageSize(size);
+        if (sensorHistoryIndex.isReady()) {
+            return SensorHistoryPage.of(sensorHistoryIndex.findAll(startDate, endDate, metrics, cursor, pageSize + 1),
+                    pageSize);
+        }
+        LocalDate firstDate = startDate != null && endDate != null ? startDate : FIRST_DATE;
+        LocalDate lastDate = startDate != null && endDate != null ? endDate : LAST_DATE;
+        List<SensorHistoryRowEntity> history;
+        if (cursor == null || cursor.recordDate().isAfter(lastDate)) {
+            history = sensorHistoryRepository.findPageByDateRange(firstDate, lastDate, Limit.of(pageSize + 1));
         } else {
-            stream = Streamable.of(sensorHistoryRepository.findAll());
+            history = sensorHistoryRepository.findPageByDateRangeAfter(firstDate, cursor.recordDate(), cursor.id(),
+                    Limit.of(pageSize + 1));
         }
-        return stream.map(SensorHistoryEntity::toResponse)
-                .toList();
+        return SensorHistoryPage.of(history.stream().map(row -> row.toResponse(metrics)).toList(), pageSize);
     }
 
     /**
-     * For the specified sensor, get the history within the respective time period.
+     * For the specified sensor, get a page of the history within the respective time period, from the in-memory index
+     * once it is loaded.
      *
      * @param sensorId  respective ID of the Sensor
      * @param startDate start of the time period filter
      * @param endDate   end of the time period filter
-     * @return list of sensor history for the time period
+     * @param metrics   metrics to read, or null for all
+     * @param cursor    cursor of the previous page, or null for the first page
+     * @param size      page size, or null for {@code custom.historyPageSize}
+     * @return page of sensor history for the time period
      */
     @Override
-    public List<SensorHistoryResponse> findAllBySensor(UUID sensorId, LocalDate startDate, LocalDate endDate) {
-        Streamable<SensorHistoryEntity> stream;
-        if (startDate != null && endDate != null) {
-            stream = Streamable.of(sensorHistoryRepository.findAllBySensorAndDateRange(sensorId, startDate, endDate));
+    public SensorHistoryPage findAllBySensor(UUID sensorId, LocalDate startDate, LocalDate endDate,
+                                             Set<MetricEnum> metrics, SensorHistoryCursor cursor, Integer size) {
+        int pageSize = pageSize(size);
+        if (sensorHistoryIndex.isReady()) {
+            return SensorHistoryPage.of(sensorHistoryIndex.findAllBySensor(sensorId, startDate, endDate, metrics, cursor,
+                    pageSize + 1), pageSize);
+        }
+        LocalDate firstDate = startDate != null && endDate != null ? startDate : FIRST_DATE;
+        LocalDate lastDate = startDate != null && endDate != null ? endDate : LAST_DATE;
+        List<SensorHistoryRowEntity> history;
+        if (cursor == null || cursor.recordDate().isAfter(lastDate)) {
+            history = sensorHistoryRepository.findPageBySensorAndDateRange(sensorId, firstDate, lastDate,
+                    Limit.of(pageSize + 1));
         } else {
-            stream = Streamable.of(sensorHistoryRepository.findAllBySensor(sensorId));
+            history = sensorHistoryRepository.findPageBySensorAndDateRangeAfter(sensorId, firstDate,
+                    cursor.recordDate(), cursor.id(), Limit.of(pageSize + 1));
+        }
+        return SensorHistoryPage.of(history.stream().map(row -> row.toResponse(metrics)).toList(), pageSize);
+    }
+
+    /**
+     * Stream the sensor history for the specified time period, latest first, passing each record on as it is read.
+     * The records are read as unmanaged rows, so the persistence context does not grow with the time period.
+     *
+     * @param startDate start of the time period filter
+     * @param endDate   end of the time period filter
+     * @param metrics   metrics to read, or null for all
+     * @param action    action to pass each sensor history record on to
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAll(LocalDate startDate, LocalDate endDate, Set<MetricEnum> metrics,
+                          Consumer<SensorHistoryResponse> action) {
+        LocalDate firstDate = startDate != null && endDate != null ? startDate : FIRST_DATE;
+        LocalDate lastDate = startDate != null && endDate != null ? endDate : LAST_DATE;
+        try (Stream<SensorHistoryRowEntity> history = sensorHistoryRepository.streamByDateRange(firstDate, lastDate)) {
+            history.forEach(row -> action.accept(row.toResponse(metrics)));
+        }
+    }
+
+    /**
+     * For the specified sensor, stream the history within the respective time period, latest first, passing each
+     * record on as it is read.
+     *
+     * @param sensorId  respective ID of the Sensor
+     * @param startDate start of the time period filter
+     * @param endDate   end of the time period filter
+     * @param metrics   metrics to read, or null for all
+     * @param action    action to pass each sensor history record on to
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllBySensor(UUID sensorId, LocalDate startDate, LocalDate endDate, Set<MetricEnum> metrics,
+                                  Consumer<SensorHistoryResponse> action) {
+        LocalDate firstDate = startDate != null && endDate != null ? startDate : FIRST_DATE;
+        LocalDate lastDate = startDate != null && endDate != null ? endDate : LAST_DATE;
+        try (Stream<SensorHistoryRowEntity> history = sensorHistoryRepository.streamBySensorAndDateRange(sensorId,
+                firstDate, lastDate)) {
+            history.forEach(row -> action.accept(row.toResponse(metrics)));
+        }
+    }
+
+    /**
+     * Export the sensor history for the specified time period, latest first, as an Apache Arrow IPC stream, written
+     * in record batches of {@code custom.historyExportBatchSize} records as it is read.
+     *
+     * @param startDate start of the time period filter
+     * @param endDate   end of the time period filter
+     * @param metrics   metrics to export, or null for all
+     * @param out       stream to write to
+     * @throws IOException when the stream cannot be written
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportAll(LocalDate startDate, LocalDate endDate, Set<MetricEnum> metrics, OutputStream out)
+            throws IOException {
+        LocalDate firstDate = startDate != null && endDate != null ? startDate : FIRST_DATE;
+        LocalDate lastDate = startDate != null && endDate != null ? endDate : LAST_DATE;
+        try (Stream<SensorHistoryRowEntity> history = sensorHistoryRepository.streamByDateRange(firstDate, lastDate)) {
+            export(history, metrics, out);
         }
-        return stream.map(SensorHistoryEntity::toResponse)
-                .toList();
     }
 
     /**
-     * Remove all sensor history for the specific sensor.
+     * For the specified sensor, export the history within the respective time period, latest first, as an Apache Arrow
+     * IPC stream, written in record batches of {@code custom.historyExportBatchSize} records as it is read.
+     *
+     * @param sensorId  respective ID of the Sensor
+     * @param startDate start of the time period filter
+     * @param endDate   end of the time period filter
+     * @param metrics   metrics to export, or null for all
+     * @param out       stream to write to
+     * @throws IOException when the stream cannot be written
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportAllBySensor(UUID sensorId, LocalDate startDate, LocalDate endDate, Set<MetricEnum> metrics,
+                                  OutputStream out) throws IOException {
+        LocalDate firstDate = startDate != null && endDate != null ? startDate : FIRST_DATE;
+        LocalDate lastDate = startDate != null && endDate != null ? endDate : LAST_DATE;
+        try (Stream<SensorHistoryRowEntity> history = sensorHistoryRepository.streamBySensorAndDateRange(sensorId,
+                firstDate, lastDate)) {
+            export(history, metrics, out);
+        }
+    }
+
+    /**
+     * Remove all sensor history, along with its monthly rollups, for the specific sensor.
      *
      * @param sensorId parent ID of the Sensor
      */
     @Override
+    @Transactional
     public void deleteForSensor(UUID sensorId) {
+        sensorHistoryMonthRepository.deleteBySensor(sensorId);
         sensorHistoryRepository.deleteBySensor(sensorId);
+        eventPublisher.publishEvent(new SensorHistoryDeletedEvent(sensorId));
+    }
+
+    private SensorHistoryBatchResponse createAll(SensorEntity sensor, List<SensorHistoryRequest> requests) {
+        SensorHistoryBatchResponse response = SensorHistoryBatchResponse.builder()
+                .sensorId(sensor.getId())
+                .build();
+        int batchSize = customProperties.getHistoryBatchSize();
+        List<SensorHistoryEntity> chunk = new ArrayList<>(batchSize);
+        List<Integer> indexes = new ArrayList<>(batchSize);
+        for (int x = 0; x < size(requests); x++) {
+            String reason = validate(requests.get(x));
+            if (reason != null) {
+                response.reject(x, reason);
+                continue;
+            }
+            chunk.add(requests.get(x).toEntity(sensor));
+            indexes.add(x);
+            if (chunk.size() >= batchSize) {
+                insertChunk(response, chunk, indexes);
+            }
+        }
+        insertChunk(response, chunk, indexes);
+        response.sortResults();
+        return response;
+    }
+
+    private void insertChunk(SensorHistoryBatchResponse response, List<SensorHistoryEntity> chunk, List<Integer> indexes) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            sensorHistoryRepository.upsertAll(chunk);
+            for (int x = 0; x < chunk.size(); x++) {
+                response.accept(indexes.get(x), chunk.get(x).getId());
+            }
+        } catch (Exception ex) {
+            log.warn("failed to insert sensor history batch for sensor {}", response.getSensorId(), ex);
+            for (Integer index : indexes) {
+                response.reject(index, "Unable to store sensor history: " + ex.getMessage());
+            }
+        }
+        chunk.clear();
+        indexes.clear();
+    }
+
+    private void export(Stream<SensorHistoryRowEntity> history, Set<MetricEnum> metrics, OutputStream out)
+            throws IOException {
+        ArrowHistoryWriter writer = new ArrowHistoryWriter(out, metrics, customProperties.getHistoryExportBatchSize());
+        for (Iterator<SensorHistoryRowEntity> rows = history.iterator(); rows.hasNext(); ) {
+            writer.write(rows.next().toResponse(metrics));
+        }
+        writer.finish();
+    }
+
+    private void addGap(List<DateRange> gaps, DateRange gap, int mergeGapDays) {
+        if (!gaps.isEmpty()) {
+            DateRange last = gaps.get(gaps.size() - 1);
+            if (!last.endDate().plusDays(mergeGapDays + 1L).isBefore(gap.startDate())) {
+                gaps.set(gaps.size() - 1, new DateRange(last.startDate(), gap.endDate()));
+                return;
+            }
+        }
+        gaps.add(gap);
+    }
+
+    private String validate(SensorHistoryRequest request) {
+        return request == null ? "Missing sensor history details" : request.validate();
+    }
+
+    private int size(List<?> list) {
+        return list == null ? 0 : list.size();
     }
 
     private SensorEntity findSensorById(UUID sensorId) {
@@ -114,4 +435,9 @@ public class SensorHistoryServiceImpl implements SensorHistoryService {
         return sensor.get();
     }
 
+    private int pageSize(Integer size) {
+        int pageSize = size != null ? size : customProperties.getHistoryPageSize();
+        return Math.max(1, Math.min(pageSize, customProperties.getHistoryMaxPageSize()));
+    }
+
 }
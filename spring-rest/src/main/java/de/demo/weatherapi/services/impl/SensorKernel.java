@@ -0,0 +1,38 @@
+package de.demo.weatherapi.services.impl;
+
+/**
+ * Sensor Kernel - aggregates a run of days of the {@link SensorSeries} columns, computing the sum, minimum and maximum
+ * of every selected column in a single pass over its values. Days without a reading hold NaN and are skipped, in every
+ * column alike, so the days with a reading are counted from the first selected column.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+interface SensorKernel {
+
+    /**
+     * Add the readings of the days to the running sums, minimums and maximums, one entry per column, leaving the
+     * entries of the columns not selected untouched.
+     *
+     * @param columns  value columns, all of the same length
+     * @param selected bit mask of the columns to aggregate, bit {@code c} selecting column {@code c}
+     * @param first    first index, inclusive
+     * @param last     last index, inclusive
+     * @param sum      running sums
+     * @param min      running minimums
+     * @param max      running maximums
+     * @return number of days with a reading
+     */
+    int aggregate(double[][] columns, int selected, int first, int last, double[] sum, double[] min, double[] max);
+
+    /**
+     * Whether the Vector API module is available to the running JVM, checked without loading
+     * {@link VectorSensorKernel}, as loading it without the module fails.
+     *
+     * @return true when the vector kernel can be used
+     */
+    static boolean isVectorSupported() {
+        return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    }
+
+}
@@ -0,0 +1,440 @@
+package de.demo.weatherapi.services.impl;
+
+import de.demo.weatherapi.dtos.SensorHistoryRequest;
+import de.demo.weatherapi.dtos.SensorHistoryResponse;
+import de.demo.weatherapi.dtos.SensorResponse;
+import de.demo.weatherapi.entities.SensorAggregateEntity;
+import de.demo.weatherapi.entities.SensorHistoryEntity;
+import de.demo.weatherapi.enums.GranularityEnum;
+import de.demo.weatherapi.enums.MetricEnum;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Sensor Series - in-memory columnar store and range index of the daily history of a single sensor.
+ * <p>
+ * The readings are held in one primitive column per value, indexed by the day since the first day covered, so the
+ * epoch day of a reading is {@code base} plus its index. Days without a reading are left as NaN. The record IDs and the
+ * sunrise and sunset, as UTC epoch seconds, are held in {@code long} columns alongside, so a history record can be
+ * rebuilt from the columns alone. The days are grouped in blocks of {@link #BLOCK} days, with a running total of the block sums
+ * and counts and a segment tree of the block minimums and maximums. A range aggregate reads the partial blocks at
+ * either end day by day and the whole blocks in between in constant and logarithmic time respectively, so its cost
+ * does not depend on the length of the range. Writes recalculate only the blocks they touched. The day by day scans run
+ * on the {@link SensorKernel} the series was created with.
+ * <p>
+ * Only the record dates a request may write, from {@link SensorHistoryRequest#MIN_RECORD_DATE} to
+ * {@link SensorHistoryRequest#maxRecordDate()}, are covered, with at most {@link #MAX_HEADROOM} days to grow into, so
+ * a stray date cannot grow the columns without bound.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+final class SensorSeries {
+
+    static final int BLOCK = 32;
+    static final int MAX_HEADROOM = 366;
+    static final int MIN_DAY = (int) SensorHistoryRequest.MIN_RECORD_DATE.toEpochDay();
+
+    static final int RAINFALL = 0;
+    static final int SNOWFALL = 1;
+    static final int TEMPERATURE_MEAN = 2;
+    static final int TEMPERATURE_MIN = 3;
+    static final int TEMPERATURE_MAX = 4;
+    static final int WIND_DIRECTION = 5;
+    static final int WIND_SPEED = 6;
+    static final int COLUMNS = 7;
+    static final int ALL = (1 << COLUMNS) - 1;
+
+    private final String name;
+    private final SensorKernel kernel;
+
+    private int base;
+    private int blocks;
+    private double[][] values = new double[COLUMNS][0];
+    private long[] idMost = new long[0];
+    private long[] idLeast = new long[0];
+    private long[] sunrise = new long[0];
+    private long[] sunset = new long[0];
+    private int[] blockCounts = new int[0];
+    private double[][] blockSums = new double[COLUMNS][0];
+    private long[] countPrefix = new long[1];
+    private double[][] sumPrefix = new double[COLUMNS][1];
+    private double[][] minTree = new double[COLUMNS][0];
+    private double[][] maxTree = new double[COLUMNS][0];
+
+    SensorSeries(String name) {
+        this(name, new ScalarSensorKernel());
+    }
+
+    SensorSeries(String name, SensorKernel kernel) {
+        this.name = name;
+        this.kernel = kernel;
+    }
+
+    String name() {
+        return name;
+    }
+
+    /**
+     * Bit mask of the columns holding the metrics.
+     *
+     * @param metrics metrics to select, or null for all
+     * @return bit mask of the columns
+     */
+    static int columns(Set<MetricEnum> metrics) {
+        if (metrics == null || metrics.isEmpty()) {
+            return ALL;
+        }
+        int selected = 0;
+        for (MetricEnum metric : metrics) {
+            selected |= switch (metric) {
+                case RAINFALL -> 1 << RAINFALL;
+                case SNOWFALL -> 1 << SNOWFALL;
+                case TEMPERATURE -> 1 << TEMPERATURE_MEAN | 1 << TEMPERATURE_MIN | 1 << TEMPERATURE_MAX;
+                case WIND_DIRECTION -> 1 << WIND_DIRECTION;
+                case WIND_SPEED -> 1 << WIND_SPEED;
+            };
+        }
+        return selected;
+    }
+
+    /**
+     * Add, or replace, the readings of the history records, leaving out the records dated outside the days covered.
+     *
+     * @param history sensor history records
+     */
+    synchronized void putAll(Collection<SensorHistoryEntity> history) {
+        long maxDay = SensorHistoryRequest.maxRecordDate().toEpochDay();
+        int first = Integer.MAX_VALUE;
+        int last = Integer.MIN_VALUE;
+        for (SensorHistoryEntity entity : history) {
+            long day = entity.getRecordDate().toEpochDay();
+            if (day >= MIN_DAY && day <= maxDay) {
+                first = Math.min(first, (int) day);
+                last = Math.max(last, (int) day);
+            }
+        }
+        if (first > last) {
+            return;
+        }
+        cover(first, last);
+        BitSet changed = new BitSet(blocks);
+        for (SensorHistoryEntity entity : history) {
+            long day = entity.getRecordDate().toEpochDay();
+            if (day < MIN_DAY || day > maxDay) {
+                continue;
+            }
+            int index = (int) day - base;
+            values[RAINFALL][index] = entity.getRainfallSum();
+            values[SNOWFALL][index] = entity.getSnowfallSum();
+            values[TEMPERATURE_MEAN][index] = entity.getTemperatureMean();
+            values[TEMPERATURE_MIN][index] = entity.getTemperatureMin();
+            values[TEMPERATURE_MAX][index] = entity.getTemperatureMax();
+            values[WIND_DIRECTION][index] = entity.getWindDirection();
+            values[WIND_SPEED][index] = entity.getWindSpeedMax();
+            idMost[index] = entity.getId().getMostSignificantBits();
+            idLeast[index] = entity.getId().getLeastSignificantBits();
+            sunrise[index] = entity.getSunrise().toEpochSecond(ZoneOffset.UTC);
+            sunset[index] = entity.getSunset().toEpochSecond(ZoneOffset.UTC);
+            changed.set(index / BLOCK);
+        }
+        refresh(changed);
+    }
+
+    synchronized SensorAggregateEntity aggregate(String key, long firstDay, long lastDay) {
+        return aggregate(key, firstDay, lastDay, ALL);
+    }
+
+    /**
+     * Aggregate the readings of the selected columns between the two days, leaving the other columns of the aggregate
+     * null.
+     *
+     * @param key      key of the aggregate
+     * @param firstDay first epoch day, inclusive
+     * @param lastDay  last epoch day, inclusive
+     * @param selected bit mask of the columns to aggregate
+     * @return aggregated readings, or null when there are none in the range
+     */
+    synchronized SensorAggregateEntity aggregate(String key, long firstDay, long lastDay, int selected) {
+        long from = Math.max(firstDay - base, 0);
+        long to = Math.min(lastDay - base, (long) blocks * BLOCK - 1);
+        if (from > to) {
+            return null;
+        }
+        Accumulator acc = new Accumulator(selected);
+        int lo = (int) from;
+        int hi = (int) to;
+        int firstBlock = lo / BLOCK;
+        int lastBlock = hi / BLOCK;
+        if (lastBlock - firstBlock < 2) {
+            acc.addDays(lo, hi);
+        } else {
+            acc.addDays(lo, (firstBlock + 1) * BLOCK - 1);
+            acc.addBlocks(firstBlock + 1, lastBlock - 1);
+            acc.addDays(lastBlock * BLOCK, hi);
+        }
+        return acc.count == 0 ? null : acc.toAggregate(key);
+    }
+
+    /**
+     * Aggregate the readings between the two days by time bucket, adding one aggregate per bucket with readings, its
+     * period set to the first day of the bucket.
+     *
+     * @param key         key of the aggregates
+     * @param firstDay    first epoch day, inclusive
+     * @param lastDay     last epoch day, inclusive
+     * @param granularity size of the time buckets
+     * @param selected    bit mask of the columns to aggregate
+     * @param aggregates  aggregates to add to
+     */
+    synchronized void aggregate(String key, long firstDay, long lastDay, GranularityEnum granularity, int selected,
+                                List<SensorAggregateEntity> aggregates) {
+        long from = Math.max(firstDay, base);
+        long to = Math.min(lastDay, base + (long) blocks * BLOCK - 1);
+        if (from > to) {
+            return;
+        }
+        LocalDate start = granularity.start(granularity.bucket(from));
+        for (int bucket = granularity.bucket(from); start.toEpochDay() <= to; bucket++) {
+            LocalDate next = granularity.start(bucket + 1);
+            SensorAggregateEntity aggregate = aggregate(key,
+                    Math.max(start.toEpochDay(), from), Math.min(next.toEpochDay() - 1, to), selected);
+            if (aggregate != null) {
+                aggregate.setPeriod(start);
+                aggregates.add(aggregate);
+            }
+            start = next;
+        }
+    }
+
+    /**
+     * First epoch day the series covers, no later than the first day with a reading.
+     *
+     * @return first epoch day covered
+     */
+    synchronized long firstDay() {
+        return base;
+    }
+
+    /**
+     * Last epoch day the series covers, no earlier than the last day with a reading, or before the first day when the
+     * series is empty.
+     *
+     * @return last epoch day covered
+     */
+    synchronized long lastDay() {
+        return base + (long) blocks * BLOCK - 1;
+    }
+
+    /**
+     * Add up to the limit of history records between the two days, latest first, with only the readings of the
+     * selected columns.
+     *
+     * @param sensor   sensor the history belongs to
+     * @param firstDay first epoch day, inclusive
+     * @param lastDay  last epoch day, inclusive
+     * @param selected bit mask of the columns to read
+     * @param limit    maximum number of history records to add
+     * @param history  history records to add to
+     */
+    synchronized void history(SensorResponse sensor, long firstDay, long lastDay, int selected, int limit,
+                              List<SensorHistoryResponse> history) {
+        long from = Math.max(firstDay - base, 0);
+        long to = Math.min(lastDay - base, (long) blocks * BLOCK - 1);
+        int added = 0;
+        for (int x = (int) to; x >= from && added < limit; x--) {
+            if (Double.isNaN(values[RAINFALL][x])) {
+                continue;
+            }
+            history.add(SensorHistoryResponse.builder()
+                    .id(new UUID(idMost[x], idLeast[x]))
+                    .sensor(sensor)
+                    .recordDate(LocalDate.ofEpochDay(base + x))
+                    .rainfallSum(read(selected, RAINFALL, x))
+                    .snowfallSum(read(selected, SNOWFALL, x))
+                    .sunrise(LocalDateTime.ofEpochSecond(sunrise[x], 0, ZoneOffset.UTC))
+                    .sunset(LocalDateTime.ofEpochSecond(sunset[x], 0, ZoneOffset.UTC))
+                    .temperatureMean(read(selected, TEMPERATURE_MEAN, x))
+                    .temperatureMin(read(selected, TEMPERATURE_MIN, x))
+                    .temperatureMax(read(selected, TEMPERATURE_MAX, x))
+                    .windDirection((selected & 1 << WIND_DIRECTION) == 0 ? null : (int) values[WIND_DIRECTION][x])
+                    .windSpeedMax(read(selected, WIND_SPEED, x))
+                    .build());
+            added++;
+        }
+    }
+
+    private Double read(int selected, int column, int index) {
+        return (selected & 1 << column) == 0 ? null : values[column][index];
+    }
+
+    /**
+     * Grow the columns to cover the days, leaving room to grow further in the same direction, of half the days covered
+     * up to {@link #MAX_HEADROOM} days, and never before {@link #MIN_DAY}.
+     */
+    private void cover(int first, int last) {
+        int end = base + blocks * BLOCK;
+        if (blocks > 0 && first >= base && last < end) {
+            return;
+        }
+        int lo = first;
+        int hi = last;
+        if (blocks > 0) {
+            int headroom = Math.min(blocks * BLOCK / 2, MAX_HEADROOM);
+            lo = first < base ? Math.max(first - headroom, MIN_DAY) : base;
+            hi = last >= end ? last + headroom : end - 1;
+        }
+        int newBase = Math.floorDiv(lo, BLOCK) * BLOCK;
+        int newBlocks = Math.floorDiv(hi, BLOCK) - newBase / BLOCK + 1;
+        double[][] newValues = new double[COLUMNS][newBlocks * BLOCK];
+        for (int c = 0; c < COLUMNS; c++) {
+            Arrays.fill(newValues[c], Double.NaN);
+            if (values[c].length > 0) {
+                System.arraycopy(values[c], 0, newValues[c], base - newBase, values[c].length);
+            }
+        }
+        idMost = grow(idMost, newBase, newBlocks);
+        idLeast = grow(idLeast, newBase, newBlocks);
+        sunrise = grow(sunrise, newBase, newBlocks);
+        sunset = grow(sunset, newBase, newBlocks);
+        base = newBase;
+        blocks = newBlocks;
+        values = newValues;
+        blockCounts = new int[blocks];
+        blockSums = new double[COLUMNS][blocks];
+        countPrefix = new long[blocks + 1];
+        sumPrefix = new double[COLUMNS][blocks + 1];
+        minTree = new double[COLUMNS][2 * blocks];
+        maxTree = new double[COLUMNS][2 * blocks];
+        BitSet all = new BitSet(blocks);
+        all.set(0, blocks);
+        refresh(all);
+    }
+
+    private long[] grow(long[] column, int newBase, int newBlocks) {
+        long[] newColumn = new long[newBlocks * BLOCK];
+        System.arraycopy(column, 0, newColumn, column.length > 0 ? base - newBase : 0, column.length);
+        return newColumn;
+    }
+
+    /**
+     * Recalculate the changed blocks, the running totals from the first changed block on, and the tree nodes above
+     * the changed blocks.
+     */
+    private void refresh(BitSet changed) {
+        double[] sum = new double[COLUMNS];
+        double[] min = new double[COLUMNS];
+        double[] max = new double[COLUMNS];
+        for (int b = changed.nextSetBit(0); b >= 0; b = changed.nextSetBit(b + 1)) {
+            Arrays.fill(sum, 0);
+            Arrays.fill(min, Double.POSITIVE_INFINITY);
+            Arrays.fill(max, Double.NEGATIVE_INFINITY);
+            blockCounts[b] = kernel.aggregate(values, ALL, b * BLOCK, (b + 1) * BLOCK - 1, sum, min, max);
+            for (int c = 0; c < COLUMNS; c++) {
+                blockSums[c][b] = sum[c];
+                setLeaf(minTree[c], b, min[c], true);
+                setLeaf(maxTree[c], b, max[c], false);
+            }
+        }
+        for (int b = changed.nextSetBit(0); b >= 0 && b < blocks; b++) {
+            countPrefix[b + 1] = countPrefix[b] + blockCounts[b];
+            for (int c = 0; c < COLUMNS; c++) {
+                sumPrefix[c][b + 1] = sumPrefix[c][b] + blockSums[c][b];
+            }
+        }
+    }
+
+    private void setLeaf(double[] tree, int block, double value, boolean min) {
+        int node = block + blocks;
+        tree[node] = value;
+        for (node >>= 1; node > 0; node >>= 1) {
+            tree[node] = min
+                    ? Math.min(tree[2 * node], tree[2 * node + 1])
+                    : Math.max(tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+
+    private double queryTree(double[] tree, int firstBlock, int lastBlock, boolean min) {
+        double result = min ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+        for (int lo = firstBlock + blocks, hi = lastBlock + blocks + 1; lo < hi; lo >>= 1, hi >>= 1) {
+            if ((lo & 1) == 1) {
+                result = min ? Math.min(result, tree[lo]) : Math.max(result, tree[lo]);
+                lo++;
+            }
+            if ((hi & 1) == 1) {
+                hi--;
+                result = min ? Math.min(result, tree[hi]) : Math.max(result, tree[hi]);
+            }
+        }
+        return result;
+    }
+
+    private final class Accumulator {
+        private final int selected;
+        private long count;
+        private final double[] sum = new double[COLUMNS];
+        private final double[] min = new double[COLUMNS];
+        private final double[] max = new double[COLUMNS];
+
+        Accumulator(int selected) {
+            this.selected = selected;
+            Arrays.fill(min, Double.POSITIVE_INFINITY);
+            Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        }
+
+        void addDays(int first, int last) {
+            count += kernel.aggregate(values, selected, first, last, sum, min, max);
+        }
+
+        void addBlocks(int firstBlock, int lastBlock) {
+            count += countPrefix[lastBlock + 1] - countPrefix[firstBlock];
+            for (int c = 0; c < COLUMNS; c++) {
+                if (!isSelected(c)) {
+                    continue;
+                }
+                sum[c] += sumPrefix[c][lastBlock + 1] - sumPrefix[c][firstBlock];
+                min[c] = Math.min(min[c], queryTree(minTree[c], firstBlock, lastBlock, true));
+                max[c] = Math.max(max[c], queryTree(maxTree[c], firstBlock, lastBlock, false));
+            }
+        }
+
+        SensorAggregateEntity toAggregate(String key) {
+            return new SensorAggregateEntity(
+                    key,
+                    count,
+                    value(sum, RAINFALL),
+                    value(min, RAINFALL),
+                    value(max, RAINFALL),
+                    value(sum, SNOWFALL),
+                    value(min, SNOWFALL),
+                    value(max, SNOWFALL),
+                    value(sum, TEMPERATURE_MEAN),
+                    value(min, TEMPERATURE_MIN),
+                    value(max, TEMPERATURE_MAX),
+                    isSelected(WIND_DIRECTION) ? Math.round(sum[WIND_DIRECTION]) : null,
+                    isSelected(WIND_DIRECTION) ? (int) min[WIND_DIRECTION] : null,
+                    isSelected(WIND_DIRECTION) ? (int) max[WIND_DIRECTION] : null,
+                    value(sum, WIND_SPEED),
+                    value(min, WIND_SPEED),
+                    value(max, WIND_SPEED)
+            );
+        }
+
+        private boolean isSelected(int column) {
+            return (selected & 1 << column) != 0;
+        }
+
+        private Double value(double[] running, int column) {
+            return isSelected(column) ? running[column] : null;
+        }
+    }
+
+}
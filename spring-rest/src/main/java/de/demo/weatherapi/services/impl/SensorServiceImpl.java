@@ -1,12 +1,10 @@
 package de.demo.weatherapi.services.impl;
 
-import de.demo.weatherapi.dtos.SensorHistoryRequest;
 import de.demo.weatherapi.dtos.SensorRequest;
 import de.demo.weatherapi.dtos.SensorResponse;
 import de.demo.weatherapi.entities.SensorEntity;
 import de.demo.weatherapi.repositories.SensorRepository;
-import de.demo.weatherapi.services.LookupService;
-import de.demo.weatherapi.services.SensorHistoryService;
+import de.demo.weatherapi.services.BackfillService;
 import de.demo.weatherapi.services.SensorService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
@@ -30,12 +28,11 @@ import java.util.UUID;
 @Slf4j
 public class SensorServiceImpl implements SensorService {
 
-    final LookupService lookupService;
-    final SensorHistoryService sensorHistoryService;
+    final BackfillService backfillService;
     final SensorRepository sensorRepository;
 
     /**
-     * Create new Sensor record.
+     * Create new Sensor record, with its history loaded in the background when requested.
      *
      * @param request sensor details
      * @return confirmation of the newly created sensor
@@ -44,9 +41,7 @@ public class SensorServiceImpl implements SensorService {
     public SensorResponse create(SensorRequest request) {
         SensorEntity entity = sensorRepository.save(request.toEntity());
         if (request.loadSensorData()) {
-            for (SensorHistoryRequest history : lookupService.getWeatherHistory(request)) {
-                sensorHistoryService.create(entity.getId(), history);
-            }
+            return entity.toResponse(backfillService.submit(entity).id());
         }
         return entity.toResponse();
     }
@@ -0,0 +1,72 @@
+package de.demo.weatherapi.services.impl;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Single Flight - coalesces concurrent calls for the same key into one.
+ * <p>
+ * The first caller for a key makes the call, any caller arriving with the same key while it is in flight waits for
+ * it and gets the same result, or the same exception. Once the call completes the next caller makes a new call.
+ *
+ * @param <K> type of the key identifying identical calls
+ * @param <V> type of the call result
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Make the call, unless an identical call is already in flight, in which case wait for its result.
+     *
+     * @param key  key identifying identical calls
+     * @param call the call to make
+     * @return result of the call
+     */
+    public V execute(K key, Supplier<V> call) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            return await(existing);
+        }
+        try {
+            V value = call.get();
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error ex) {
+            future.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * Number of calls currently in flight.
+     *
+     * @return number of calls
+     */
+    public int size() {
+        return inFlight.size();
+    }
+
+    private V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (ex.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+}
@@ -0,0 +1,66 @@
+package de.demo.weatherapi.services.impl;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector Sensor Kernel - implements Sensor Kernel with the incubating Vector API, a full vector of days at a time with
+ * the days without a reading masked out, and the remaining days one at a time.
+ * <p>
+ * Requires the {@code jdk.incubator.vector} module, which is only resolved when the JVM is started with
+ * {@code --add-modules jdk.incubator.vector}; see {@link SensorKernel#isVectorSupported()}.
+ *
+ * @author Dwight Egerton
+ * @since 0.0.1
+ */
+final class VectorSensorKernel implements SensorKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public int aggregate(double[][] columns, int selected, int first, int last, double[] sum, double[] min, double[] max) {
+        int count = -1;
+        int upper = first + SPECIES.loopBound(last + 1 - first);
+        for (int c = 0; c < columns.length; c++) {
+            if ((selected & 1 << c) == 0) {
+                continue;
+            }
+            double[] column = columns[c];
+            int present = 0;
+            DoubleVector vs = DoubleVector.zero(SPECIES);
+            DoubleVector vmn = DoubleVector.broadcast(SPECIES, Double.POSITIVE_INFINITY);
+            DoubleVector vmx = DoubleVector.broadcast(SPECIES, Double.NEGATIVE_INFINITY);
+            int x = first;
+            for (; x < upper; x += SPECIES.length()) {
+                DoubleVector v = DoubleVector.fromArray(SPECIES, column, x);
+                VectorMask<Double> missing = v.test(VectorOperators.IS_NAN);
+                present += SPECIES.length() - missing.trueCount();
+                vs = vs.add(v.blend(0D, missing));
+                vmn = vmn.min(v.blend(Double.POSITIVE_INFINITY, missing));
+                vmx = vmx.max(v.blend(Double.NEGATIVE_INFINITY, missing));
+            }
+            double s = vs.reduceLanes(VectorOperators.ADD);
+            double mn = Math.min(min[c], vmn.reduceLanes(VectorOperators.MIN));
+            double mx = Math.max(max[c], vmx.reduceLanes(VectorOperators.MAX));
+            for (; x <= last; x++) {
+                double value = column[x];
+                if (!Double.isNaN(value)) {
+                    present++;
+                    s += value;
+                    mn = Math.min(mn, value);
+                    mx = Math.max(mx, value);
+                }
+            }
+            sum[c] += s;
+            min[c] = mn;
+            max[c] = mx;
+            if (count < 0) {
+                count = present;
+            }
+        }
+        return Math.max(count, 0);
+    }
+
+}
@@ -0,0 +1,67 @@
+package de.demo.weatherapi;
+
+import de.demo.weatherapi.services.SensorHistoryService;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "custom.export.poolSize=1",
+        "custom.export.queueCapacity=0"
+})
+public class WebConfigTest {
+
+    @MockBean
+    SensorHistoryService sensorHistoryService;
+
+    @LocalServerPort
+    int port;
+
+    @Test
+    void export_bounded_successful() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<String> thread = new AtomicReference<>();
+        doAnswer(i -> {
+            thread.set(Thread.currentThread().getName());
+            started.countDown();
+            release.await(30, TimeUnit.SECONDS);
+            return null;
+        }).when(sensorHistoryService).streamAll(any(), any(), any(), any());
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest req = HttpRequest.newBuilder(URI.create("http://localhost:" + port
+                        + "/api/sensors/history?startDate=2023-08-01&endDate=2023-11-30"))
+                .header(HttpHeaders.ACCEPT, "application/x-ndjson")
+                .build();
+
+        // the only export thread is busy, and none may wait
+        CompletableFuture<HttpResponse<String>> first = client.sendAsync(req, HttpResponse.BodyHandlers.ofString());
+        assertTrue(started.await(30, TimeUnit.SECONDS));
+        HttpResponse<String> second = client.send(req, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(503, second.statusCode());
+        assertEquals("1", second.headers().firstValue(HttpHeaders.RETRY_AFTER).orElse(null));
+
+        release.countDown();
+
+        assertEquals(200, first.get(30, TimeUnit.SECONDS).statusCode());
+        assertTrue(thread.get().startsWith("history-export-"));
+    }
+
+}
@@ -1,25 +1,45 @@
 package de.demo.weatherapi.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import de.demo.weatherapi.dtos.BackfillJobResponse;
 import de.demo.weatherapi.dtos.SensorAverageResponse;
+import de.demo.weatherapi.dtos.SensorHistoryBatchRequest;
+import de.demo.weatherapi.dtos.SensorHistoryBatchResponse;
+import de.demo.weatherapi.dtos.SensorHistoryColumnsResponse;
+import de.demo.weatherapi.dtos.SensorHistoryCompactResponse;
+import de.demo.weatherapi.dtos.SensorHistoryCursor;
+import de.demo.weatherapi.dtos.SensorHistoryPage;
+import de.demo.weatherapi.dtos.SensorHistoryReceiptResponse;
 import de.demo.weatherapi.dtos.SensorHistoryRequest;
 import de.demo.weatherapi.dtos.SensorHistoryResponse;
 import de.demo.weatherapi.dtos.SensorRequest;
 import de.demo.weatherapi.dtos.SensorResponse;
+import de.demo.weatherapi.enums.GranularityEnum;
+import de.demo.weatherapi.enums.MetricEnum;
+import de.demo.weatherapi.services.BackfillService;
 import de.demo.weatherapi.services.SensorAverageService;
+import de.demo.weatherapi.services.SensorHistoryQueueService;
 import de.demo.weatherapi.services.SensorHistoryService;
 import de.demo.weatherapi.services.SensorService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 
+import static de.demo.weatherapi.utils.TestUtils.createBackfillJobResponse;
 import static de.demo.weatherapi.utils.TestUtils.createSensorAverageResponse;
 import static de.demo.weatherapi.utils.TestUtils.createSensorHistoryRequest;
 import static de.demo.weatherapi.utils.TestUtils.createSensorHistoryResponse;
@@ -28,9 +48,14 @@ import static de.demo.weatherapi.utils.TestUtils.createSensorResponse;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(controllers = SensorController.class)
@@ -45,6 +70,12 @@ public class SensorControllerTest {
     @MockBean
     private SensorHistoryService sensorHistoryService;
 
+    @MockBean
+    private SensorHistoryQueueService sensorHistoryQueueService;
+
+    @MockBean
+    private BackfillService backfillService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -110,7 +141,7 @@ public class SensorControllerTest {
         LocalDate endDate = LocalDate.of(2023, 11, 30);
         SensorAverageResponse res = createSensorAverageResponse(startDate, endDate, "Test");
 
-        given(sensorAverageService.findAverage(eq(startDate), eq(endDate)))
+        given(sensorAverageService.findAverage(eq(startDate), eq(endDate), eq(null), eq(null)))
                 .willReturn(res);
         sensorController.perform(get("/api/sensors/averages?startDate=" + startDate.format(DateTimeFormatter.ISO_DATE) + "&endDate=" + endDate.format(DateTimeFormatter.ISO_DATE))
                         .contentType("application/json")
@@ -124,7 +155,7 @@ public class SensorControllerTest {
         LocalDate startDate = LocalDate.of(2023, 8, 1);
         LocalDate endDate = LocalDate.of(2023, 11, 30);
 
-        given(sensorAverageService.findAverage(eq(startDate), eq(endDate)))
+        given(sensorAverageService.findAverage(eq(startDate), eq(endDate), eq(null), eq(null)))
                 .willThrow(new IllegalArgumentException("Some Error"));
         sensorController.perform(get("/api/sensors/averages?startDate=" + startDate.format(DateTimeFormatter.ISO_DATE) + "&endDate=" + endDate.format(DateTimeFormatter.ISO_DATE))
                         .contentType("application/json")
@@ -132,6 +163,29 @@ public class SensorControllerTest {
                 .andExpect(status().isInternalServerError());
     }
 
+    @Test
+    void readAverges_granularity_returns_200() throws Exception {
+        LocalDate startDate = LocalDate.of(2023, 8, 1);
+        LocalDate endDate = LocalDate.of(2023, 11, 30);
+        SensorAverageResponse res = createSensorAverageResponse(startDate, endDate, "Test/2023-W31");
+
+        given(sensorAverageService.findAverage(eq(startDate), eq(endDate), eq(GranularityEnum.WEEK), eq(null)))
+                .willReturn(res);
+        sensorController.perform(get("/api/sensors/averages?startDate=" + startDate.format(DateTimeFormatter.ISO_DATE) + "&endDate=" + endDate.format(DateTimeFormatter.ISO_DATE) + "&granularity=WEEK")
+                        .contentType("application/json")
+                )
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(res)));
+    }
+
+    @Test
+    void readAverges_granularity_returns_400() throws Exception {
+        sensorController.perform(get("/api/sensors/averages?startDate=2023-08-01&endDate=2023-11-30&granularity=DECADE")
+                        .contentType("application/json")
+                )
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void readHistory_returns_200() throws Exception {
         LocalDate startDate = LocalDate.of(2023, 8, 1);
@@ -139,8 +193,8 @@ public class SensorControllerTest {
         SensorHistoryResponse res1 = createSensorHistoryResponse(UUID.randomUUID());
         SensorHistoryResponse res2 = createSensorHistoryResponse(UUID.randomUUID());
 
-        given(sensorHistoryService.findAll(eq(startDate), eq(endDate)))
-                .willReturn(List.of(res1, res2));
+        given(sensorHistoryService.findAll(eq(startDate), eq(endDate), eq(null), eq(null), eq(null)))
+                .willReturn(new SensorHistoryPage(List.of(res1, res2), null));
         sensorController.perform(get("/api/sensors/history?startDate=" + startDate.format(DateTimeFormatter.ISO_DATE) + "&endDate=" + endDate.format(DateTimeFormatter.ISO_DATE))
                         .contentType("application/json")
                 )
@@ -148,12 +202,154 @@ public class SensorControllerTest {
                 .andExpect(content().json(objectMapper.writeValueAsString(List.of(res1, res2))));
     }
 
+    @Test
+    void readHistory_unpaged_returns_200() throws Exception {
+        LocalDate startDate = LocalDate.of(2023, 8, 1);
+        LocalDate endDate = LocalDate.of(2023, 11, 30);
+        SensorHistoryResponse res = createSensorHistoryResponse(UUID.randomUUID());
+        SensorHistoryCursor next = new SensorHistoryCursor(startDate, res.id());
+
+        // more history than a page, from a browser on another origin
+        given(sensorHistoryService.findAll(eq(startDate), eq(endDate), eq(null), eq(null), eq(null)))
+                .willReturn(new SensorHistoryPage(List.of(res), next));
+        sensorController.perform(get("/api/sensors/history?startDate=" + startDate.format(DateTimeFormatter.ISO_DATE) + "&endDate=" + endDate.format(DateTimeFormatter.ISO_DATE))
+                        .contentType("application/json")
+                        .header(HttpHeaders.ORIGIN, "http://localhost:3000")
+                )
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.LINK, "<http://localhost/api/sensors/history?startDate=2023-08-01&endDate=2023-11-30&cursor="
+                        + next.toToken() + ">; rel=\"next\""))
+                .andExpect(header().string(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS, HttpHeaders.LINK))
+                .andExpect(content().json(objectMapper.writeValueAsString(List.of(res))));
+    }
+
+    @Test
+    void readHistory_page_returns_200() throws Exception {
+        LocalDate startDate = LocalDate.of(2023, 8, 1);
+        LocalDate endDate = LocalDate.of(2023, 11, 30);
+        SensorHistoryResponse res = createSensorHistoryResponse(UUID.randomUUID());
+        SensorHistoryCursor cursor = new SensorHistoryCursor(startDate, UUID.randomUUID());
+        SensorHistoryCursor next = new SensorHistoryCursor(startDate, res.id());
+
+        given(sensorHistoryService.findAll(eq(startDate), eq(endDate), eq(null), eq(cursor), eq(1)))
+                .willReturn(new SensorHistoryPage(List.of(res), next));
+        sensorController.perform(get("/api/sensors/history?startDate=" + startDate.format(DateTimeFormatter.ISO_DATE) + "&endDate=" + endDate.format(DateTimeFormatter.ISO_DATE)
+                                + "&size=1&cursor=" + cursor.toToken())
+                        .contentType("application/json")
+                )
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.LINK, "<http://localhost/api/sensors/history?startDate=2023-08-01&endDate=2023-11-30&size=1&cursor="
+                        + next.toToken() + ">; rel=\"next\""))
+                .andExpect(content().json(objectMapper.writeValueAsString(List.of(res))));
+    }
+
+    @Test
+    void readHistory_page_returns_400() throws Exception {
+        sensorController.perform(get("/api/sensors/history?startDate=2023-08-01&endDate=2023-11-30&cursor=not-a-cursor")
+                        .contentType("application/json")
+                )
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void readHistory_compact_returns_200() throws Exception {
+        LocalDate startDate = LocalDate.of(2023, 8, 1);
+        LocalDate endDate = LocalDate.of(2023, 11, 30);
+        UUID id1 = UUID.randomUUID();
+        UUID id2 = UUID.randomUUID();
+        SensorHistoryResponse res1 = createSensorHistoryResponse(id1);
+        SensorHistoryResponse res2 = createSensorHistoryResponse(id2);
+        SensorHistoryResponse res3 = createSensorHistoryResponse(id1);
+
+        given(sensorHistoryService.findAll(eq(startDate), eq(endDate), eq(null), eq(null), eq(null)))
+                .willReturn(new SensorHistoryPage(List.of(res1, res2, res3), null));
+        sensorController.perform(get("/api/sensors/history?startDate=" + startDate.format(DateTimeFormatter.ISO_DATE) + "&endDate=" + endDate.format(DateTimeFormatter.ISO_DATE))
+                        .accept(SensorHistoryCompactResponse.MEDIA_TYPE)
+                )
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(SensorHistoryCompactResponse.MEDIA_TYPE))
+                .andExpect(jsonPath("$.sensors.length()").value(2))
+                .andExpect(jsonPath("$.sensors[1].id").value(id2.toString()))
+                .andExpect(jsonPath("$.history.length()").value(3))
+                .andExpect(jsonPath("$.history[2].id").value(res3.id().toString()))
+                .andExpect(jsonPath("$.history[2].sensor").value(0))
+                .andExpect(jsonPath("$.history[2].windDirection").value(8));
+    }
+
+    @Test
+    void streamHistory_returns_200() throws Exception {
+        LocalDate startDate = LocalDate.of(2023, 8, 1);
+        LocalDate endDate = LocalDate.of(2023, 11, 30);
+        SensorHistoryResponse res1 = createSensorHistoryResponse(UUID.randomUUID());
+        SensorHistoryResponse res2 = createSensorHistoryResponse(UUID.randomUUID());
+
+        willAnswer(invocation -> {
+            Consumer<SensorHistoryResponse> action = invocation.getArgument(3);
+            action.accept(res1);
+            action.accept(res2);
+            return null;
+        }).given(sensorHistoryService).streamAll(eq(startDate), eq(endDate), eq(null), any());
+        MvcResult result = sensorController.perform(get("/api/sensors/history?startDate=" + startDate.format(DateTimeFormatter.ISO_DATE) + "&endDate=" + endDate.format(DateTimeFormatter.ISO_DATE))
+                        .accept(MediaType.APPLICATION_NDJSON)
+                )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        sensorController.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(objectMapper.writeValueAsString(res1) + "\n" + objectMapper.writeValueAsString(res2) + "\n"));
+    }
+
+    @Test
+    void exportHistory_returns_200() throws Exception {
+        LocalDate startDate = LocalDate.of(2023, 8, 1);
+        LocalDate endDate = LocalDate.of(2023, 11, 30);
+        byte[] stream = {1, 2, 3};
+
+        willAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(3);
+            out.write(stream);
+            return null;
+        }).given(sensorHistoryService).exportAll(eq(startDate), eq(endDate), eq(Set.of(MetricEnum.RAINFALL)), any());
+        MvcResult result = sensorController.perform(get("/api/sensors/history?startDate=" + startDate.format(DateTimeFormatter.ISO_DATE) + "&endDate=" + endDate.format(DateTimeFormatter.ISO_DATE) + "&metrics=RAINFALL")
+                        .accept(SensorController.ARROW_STREAM_VALUE)
+                )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        sensorController.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(SensorController.ARROW_STREAM_VALUE))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"sensor-history.arrows\""))
+                .andExpect(content().bytes(stream));
+    }
+
+    @Test
+    void readHistory_metrics_returns_200() throws Exception {
+        LocalDate startDate = LocalDate.of(2023, 8, 1);
+        LocalDate endDate = LocalDate.of(2023, 11, 30);
+        SensorHistoryResponse res = SensorHistoryResponse.builder()
+                .id(UUID.randomUUID())
+                .recordDate(startDate)
+                .temperatureMean(12.5D)
+                .build();
+
+        given(sensorHistoryService.findAll(eq(startDate), eq(endDate), eq(Set.of(MetricEnum.TEMPERATURE, MetricEnum.RAINFALL)), eq(null), eq(null)))
+                .willReturn(new SensorHistoryPage(List.of(res), null));
+        sensorController.perform(get("/api/sensors/history?startDate=" + startDate.format(DateTimeFormatter.ISO_DATE) + "&endDate=" + endDate.format(DateTimeFormatter.ISO_DATE)
+                                + "&metrics=TEMPERATURE,RAINFALL")
+                        .contentType("application/json")
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].temperatureMean").value(12.5D))
+                .andExpect(jsonPath("$[0].rainfallSum").doesNotExist());
+    }
+
     @Test
     void readHistory_returns_500() throws Exception {
         LocalDate startDate = LocalDate.of(2023, 8, 1);
         LocalDate endDate = LocalDate.of(2023, 11, 30);
 
-        given(sensorHistoryService.findAll(eq(startDate), eq(endDate)))
+        given(sensorHistoryService.findAll(eq(startDate), eq(endDate), eq(null), eq(null), eq(null)))
                 .willThrow(new IllegalArgumentException("Some Error"));
         sensorController.perform(get("/api/sensors/history?startDate=" + startDate.format(DateTimeFormatter.ISO_DATE) + "&endDate=" + endDate.format(DateTimeFormatter.ISO_DATE))
                         .contentType("application/json")
@@ -224,7 +420,7 @@ public class SensorControllerTest {
         LocalDate endDate = LocalDate.of(2023, 11, 30);
         SensorAverageResponse res = createSensorAverageResponse(startDate, endDate, "2023-11");
 
-        given(sensorAverageService.findAverageBySensor(eq(id), eq(startDate), eq(endDate)))
+        given(sensorAverageService.findAverageBySensor(eq(id), eq(startDate), eq(endDate), eq(GranularityEnum.MONTH), eq(null)))
                 .willReturn(res);
         sensorController.perform(get("/api/sensors/" + id + "/averages?startDate=" + startDate.format(DateTimeFormatter.ISO_DATE) + "&endDate=" + endDate.format(DateTimeFormatter.ISO_DATE))
                         .contentType("application/json")
@@ -239,7 +435,7 @@ public class SensorControllerTest {
         LocalDate startDate = LocalDate.of(2023, 8, 1);
         LocalDate endDate = LocalDate.of(2023, 11, 30);
 
-        given(sensorAverageService.findAverageBySensor(eq(id), eq(startDate), eq(endDate)))
+        given(sensorAverageService.findAverageBySensor(eq(id), eq(startDate), eq(endDate), eq(GranularityEnum.MONTH), eq(null)))
                 .willThrow(new IllegalArgumentException("Some Error"));
         sensorController.perform(get("/api/sensors/" + id + "/averages?startDate=" + startDate.format(DateTimeFormatter.ISO_DATE) + "&endDate=" + endDate.format(DateTimeFormatter.ISO_DATE))
                         .contentType("application/json")
@@ -247,6 +443,32 @@ public class SensorControllerTest {
                 .andExpect(status().isInternalServerError());
     }
 
+    @Test
+    void readSensorBackfill_returns_200() throws Exception {
+        UUID id = UUID.randomUUID();
+        BackfillJobResponse res = createBackfillJobResponse(id);
+
+        given(backfillService.findBySensor(eq(id)))
+                .willReturn(res);
+        sensorController.perform(get("/api/sensors/" + id + "/backfill")
+                        .contentType("application/json")
+                )
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(res)));
+    }
+
+    @Test
+    void readSensorBackfill_returns_500() throws Exception {
+        UUID id = UUID.randomUUID();
+
+        given(backfillService.findBySensor(eq(id)))
+                .willThrow(new IllegalArgumentException("Some Error"));
+        sensorController.perform(get("/api/sensors/" + id + "/backfill")
+                        .contentType("application/json")
+                )
+                .andExpect(status().isInternalServerError());
+    }
+
     @Test
     void readSensorHistory_returns_200() throws Exception {
         UUID id = UUID.randomUUID();
@@ -255,8 +477,8 @@ public class SensorControllerTest {
         SensorHistoryResponse res1 = createSensorHistoryResponse(UUID.randomUUID());
         SensorHistoryResponse res2 = createSensorHistoryResponse(UUID.randomUUID());
 
-        given(sensorHistoryService.findAllBySensor(eq(id), eq(startDate), eq(endDate)))
-                .willReturn(List.of(res1, res2));
+        given(sensorHistoryService.findAllBySensor(eq(id), eq(startDate), eq(endDate), eq(null), eq(null), eq(null)))
+                .willReturn(new SensorHistoryPage(List.of(res1, res2), null));
         sensorController.perform(get("/api/sensors/" + id + "/history?startDate=" + startDate.format(DateTimeFormatter.ISO_DATE) + "&endDate=" + endDate.format(DateTimeFormatter.ISO_DATE))
                         .contentType("application/json")
                 )
@@ -264,13 +486,64 @@ public class SensorControllerTest {
                 .andExpect(content().json(objectMapper.writeValueAsString(List.of(res1, res2))));
     }
 
+    @Test
+    void streamSensorHistory_returns_200() throws Exception {
+        UUID id = UUID.randomUUID();
+        LocalDate startDate = LocalDate.of(2023, 8, 1);
+        LocalDate endDate = LocalDate.of(2023, 11, 30);
+        SensorHistoryResponse res = createSensorHistoryResponse(id);
+
+        willAnswer(invocation -> {
+            Consumer<SensorHistoryResponse> action = invocation.getArgument(4);
+            action.accept(res);
+            return null;
+        }).given(sensorHistoryService).streamAllBySensor(eq(id), eq(startDate), eq(endDate), eq(Set.of(MetricEnum.TEMPERATURE)), any());
+        MvcResult result = sensorController.perform(get("/api/sensors/" + id + "/history?startDate=" + startDate.format(DateTimeFormatter.ISO_DATE) + "&endDate=" + endDate.format(DateTimeFormatter.ISO_DATE)
+                                + "&metrics=TEMPERATURE")
+                        .accept(MediaType.APPLICATION_NDJSON)
+                )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        sensorController.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(objectMapper.writeValueAsString(res) + "\n"));
+    }
+
+    @Test
+    void readSensorHistory_columns_returns_200() throws Exception {
+        UUID id = UUID.randomUUID();
+        LocalDate startDate = LocalDate.of(2023, 8, 1);
+        LocalDate endDate = LocalDate.of(2023, 11, 30);
+        SensorHistoryResponse res1 = SensorHistoryResponse.builder().id(UUID.randomUUID()).sensor(createSensorResponse(id, "Test"))
+                .recordDate(endDate).rainfallSum(1D).build();
+        SensorHistoryResponse res2 = SensorHistoryResponse.builder().id(UUID.randomUUID()).sensor(createSensorResponse(id, "Test"))
+                .recordDate(startDate).rainfallSum(2D).build();
+
+        given(sensorHistoryService.findAllBySensor(eq(id), eq(startDate), eq(endDate), eq(Set.of(MetricEnum.RAINFALL)), eq(null), eq(null)))
+                .willReturn(new SensorHistoryPage(List.of(res1, res2), null));
+        sensorController.perform(get("/api/sensors/" + id + "/history?startDate=" + startDate.format(DateTimeFormatter.ISO_DATE) + "&endDate=" + endDate.format(DateTimeFormatter.ISO_DATE)
+                                + "&metrics=RAINFALL")
+                        .accept(SensorHistoryColumnsResponse.MEDIA_TYPE)
+                )
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(SensorHistoryColumnsResponse.MEDIA_TYPE))
+                .andExpect(jsonPath("$.sensors.length()").value(1))
+                .andExpect(jsonPath("$.sensors[0].name").value("Test"))
+                .andExpect(jsonPath("$.id[1]").value(res2.id().toString()))
+                .andExpect(jsonPath("$.sensor[1]").value(0))
+                .andExpect(jsonPath("$.recordDate[1]").value("2023-08-01"))
+                .andExpect(jsonPath("$.rainfallSum[1]").value(2D))
+                .andExpect(jsonPath("$.temperatureMean").doesNotExist());
+    }
+
     @Test
     void readSensorHistory_returns_500() throws Exception {
         UUID id = UUID.randomUUID();
         LocalDate startDate = LocalDate.of(2023, 8, 1);
         LocalDate endDate = LocalDate.of(2023, 11, 30);
 
-        given(sensorHistoryService.findAllBySensor(eq(id), eq(startDate), eq(endDate)))
+        given(sensorHistoryService.findAllBySensor(eq(id), eq(startDate), eq(endDate), eq(null), eq(null), eq(null)))
                 .willThrow(new IllegalArgumentException("Some Error"));
         sensorController.perform(get("/api/sensors/" + id + "/history?startDate=" + startDate.format(DateTimeFormatter.ISO_DATE) + "&endDate=" + endDate.format(DateTimeFormatter.ISO_DATE))
                         .contentType("application/json")
@@ -294,13 +567,27 @@ public class SensorControllerTest {
                 .andExpect(content().json(objectMapper.writeValueAsString(res)));
     }
 
+    @Test
+    void addHistory_returns_400() throws Exception {
+        UUID id = UUID.randomUUID();
+        SensorHistoryRequest req = createSensorHistoryRequest();
+
+        given(sensorHistoryService.create(eq(id), any()))
+                .willThrow(new IllegalArgumentException("Record date in the future"));
+        sensorController.perform(post("/api/sensors/" + id + "/history")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(req))
+                )
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void addHistory_returns_500() throws Exception {
         UUID id = UUID.randomUUID();
         SensorRequest req = createSensorRequest();
 
         given(sensorHistoryService.create(eq(id), any()))
-                .willThrow(new IllegalArgumentException("Some Error"));
+                .willThrow(new IllegalStateException("Some Error"));
         sensorController.perform(post("/api/sensors/" + id + "/history")
                         .contentType("application/json")
                         .content(objectMapper.writeValueAsString(req))
@@ -308,4 +595,148 @@ public class SensorControllerTest {
                 .andExpect(status().isInternalServerError());
     }
 
+    @Test
+    void addHistoryBatch_returns_200() throws Exception {
+        UUID id = UUID.randomUUID();
+        List<SensorHistoryRequest> req = List.of(createSensorHistoryRequest(), createSensorHistoryRequest());
+        SensorHistoryBatchResponse res = SensorHistoryBatchResponse.builder().sensorId(id).build();
+        res.accept(0, UUID.randomUUID());
+        res.reject(1, "Missing record date");
+
+        given(sensorHistoryService.createAll(eq(id), any()))
+                .willReturn(res);
+        sensorController.perform(post("/api/sensors/" + id + "/history/batch")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(req))
+                )
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(res)));
+    }
+
+    @Test
+    void addHistoryBatch_returns_500() throws Exception {
+        UUID id = UUID.randomUUID();
+        List<SensorHistoryRequest> req = List.of(createSensorHistoryRequest());
+
+        given(sensorHistoryService.createAll(eq(id), any()))
+                .willThrow(new IllegalArgumentException("Some Error"));
+        sensorController.perform(post("/api/sensors/" + id + "/history/batch")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(req))
+                )
+                .andExpect(status().isInternalServerError());
+    }
+
+    @Test
+    void addHistoryBatchForSensors_returns_200() throws Exception {
+        UUID id = UUID.randomUUID();
+        List<SensorHistoryBatchRequest> req = List.of(new SensorHistoryBatchRequest(id, List.of(createSensorHistoryRequest())));
+        SensorHistoryBatchResponse res = SensorHistoryBatchResponse.builder().sensorId(id).build();
+        res.accept(0, UUID.randomUUID());
+
+        given(sensorHistoryService.createAll(any()))
+                .willReturn(List.of(res));
+        sensorController.perform(post("/api/sensors/history/batch")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(req))
+                )
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(List.of(res))));
+    }
+
+    @Test
+    void addHistoryBatchForSensors_returns_500() throws Exception {
+        UUID id = UUID.randomUUID();
+        List<SensorHistoryBatchRequest> req = List.of(new SensorHistoryBatchRequest(id, List.of(createSensorHistoryRequest())));
+
+        given(sensorHistoryService.createAll(any()))
+                .willThrow(new IllegalArgumentException("Some Error"));
+        sensorController.perform(post("/api/sensors/history/batch")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(req))
+                )
+                .andExpect(status().isInternalServerError());
+    }
+
+    @Test
+    void queueHistory_returns_202() throws Exception {
+        UUID id = UUID.randomUUID();
+        List<SensorHistoryRequest> req = List.of(createSensorHistoryRequest());
+        SensorHistoryReceiptResponse res = new SensorHistoryReceiptResponse(UUID.randomUUID(), id, 1, 0, 0, 0, List.of());
+
+        given(sensorHistoryQueueService.enqueue(eq(id), any()))
+                .willReturn(res);
+        sensorController.perform(post("/api/sensors/" + id + "/history/queue")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(req))
+                )
+                .andExpect(status().isAccepted())
+                .andExpect(content().json(objectMapper.writeValueAsString(res)));
+    }
+
+    @Test
+    void queueHistory_returns_429() throws Exception {
+        UUID id = UUID.randomUUID();
+        List<SensorHistoryRequest> req = List.of(createSensorHistoryRequest());
+
+        given(sensorHistoryQueueService.enqueue(eq(id), any()))
+                .willThrow(new RejectedExecutionException("Queue full"));
+        sensorController.perform(post("/api/sensors/" + id + "/history/queue")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(req))
+                )
+                .andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    void queueHistory_returns_413() throws Exception {
+        UUID id = UUID.randomUUID();
+        List<SensorHistoryRequest> req = List.of(createSensorHistoryRequest());
+
+        given(sensorHistoryQueueService.enqueue(eq(id), any()))
+                .willThrow(new IllegalArgumentException("Too many records"));
+        sensorController.perform(post("/api/sensors/" + id + "/history/queue")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(req))
+                )
+                .andExpect(status().isPayloadTooLarge());
+    }
+
+    @Test
+    void queueHistory_returns_503() throws Exception {
+        UUID id = UUID.randomUUID();
+        List<SensorHistoryRequest> req = List.of(createSensorHistoryRequest());
+
+        given(sensorHistoryQueueService.enqueue(eq(id), any()))
+                .willThrow(new IllegalStateException("Queue disabled"));
+        sensorController.perform(post("/api/sensors/" + id + "/history/queue")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(req))
+                )
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    void readHistoryReceipt_returns_200() throws Exception {
+        UUID id = UUID.randomUUID();
+        SensorHistoryReceiptResponse res = new SensorHistoryReceiptResponse(UUID.randomUUID(), id, 2, 0, 1, 1,
+                List.of(new SensorHistoryReceiptResponse.Failure(1, "constraint violation")));
+
+        given(sensorHistoryQueueService.findReceipt(eq(id), eq(res.receiptId())))
+                .willReturn(res);
+        sensorController.perform(get("/api/sensors/" + id + "/history/queue/" + res.receiptId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.written").value(1))
+                .andExpect(jsonPath("$.failures[0].index").value(1))
+                .andExpect(jsonPath("$.failures[0].reason").value("constraint violation"));
+    }
+
+    @Test
+    void readHistoryReceipt_returns_404() throws Exception {
+        UUID id = UUID.randomUUID();
+
+        sensorController.perform(get("/api/sensors/" + id + "/history/queue/" + UUID.randomUUID()))
+                .andExpect(status().isNotFound());
+    }
+
 }
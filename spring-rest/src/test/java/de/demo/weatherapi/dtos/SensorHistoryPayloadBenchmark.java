@@ -0,0 +1,92 @@
+package de.demo.weatherapi.dtos;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.demo.weatherapi.enums.CountryCodeEnum;
+import de.demo.weatherapi.enums.TimeZoneEnum;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the size and serialization time of a page of history in the default shape, with the Sensor in every record,
+ * against the compact and columnar shapes. Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+public class SensorHistoryPayloadBenchmark {
+
+    private static final int SENSORS = 20;
+    private static final int ROWS = 10_000;
+    private static final int ITERATIONS = 50;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    void serialize() throws Exception {
+        List<SensorHistoryResponse> history = createHistory();
+
+        int full = measure("full", () -> objectMapper.writeValueAsBytes(history));
+        int compact = measure("compact", () -> objectMapper.writeValueAsBytes(SensorHistoryCompactResponse.of(history)));
+        int columns = measure("columns", () -> objectMapper.writeValueAsBytes(SensorHistoryColumnsResponse.of(history)));
+
+        assertTrue(compact < full);
+        assertTrue(columns < compact);
+    }
+
+    private int measure(String name, Callable<byte[]> serializer) throws Exception {
+        for (int x = 0; x < ITERATIONS; x++) {
+            serializer.call();
+        }
+        long start = System.nanoTime();
+        int bytes = 0;
+        for (int x = 0; x < ITERATIONS; x++) {
+            bytes = serializer.call().length;
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-8s %8.2f ms/op %10d bytes%n", name, elapsed / 1e6 / ITERATIONS, bytes);
+        return bytes;
+    }
+
+    private List<SensorHistoryResponse> createHistory() {
+        List<SensorResponse> sensors = new ArrayList<>();
+        for (int x = 0; x < SENSORS; x++) {
+            sensors.add(SensorResponse.builder()
+                    .id(UUID.randomUUID())
+                    .name("Sensor " + x)
+                    .description("Sensor " + x + " region")
+                    .countryCode(CountryCodeEnum.IE)
+                    .timeZone(TimeZoneEnum.EUROPE_DUBLIN)
+                    .elevation(10D + x)
+                    .longitude(-6.2)
+                    .latitude(53.3 + x)
+                    .build());
+        }
+        List<SensorHistoryResponse> history = new ArrayList<>();
+        LocalDate date = LocalDate.of(2023, 1, 1);
+        for (int x = 0; x < ROWS; x++) {
+            LocalDate day = date.minusDays(x / SENSORS);
+            history.add(SensorHistoryResponse.builder()
+                    .id(UUID.randomUUID())
+                    .sensor(sensors.get(x % SENSORS))
+                    .recordDate(day)
+                    .rainfallSum(x % 70 / 10D)
+                    .snowfallSum(0D)
+                    .sunrise(day.atTime(6, x % 60))
+                    .sunset(day.atTime(20, x % 60))
+                    .temperatureMean(x % 300 / 10D)
+                    .temperatureMin(x % 250 / 10D)
+                    .temperatureMax(x % 350 / 10D)
+                    .windDirection(x % 360)
+                    .windSpeedMax(x % 400 / 10D)
+                    .build());
+        }
+        return history;
+    }
+
+}
@@ -0,0 +1,34 @@
+package de.demo.weatherapi.enums;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BackfillStatusEnumTest {
+
+    @Test
+    void status_toString() {
+        assertEquals("Pending", BackfillStatusEnum.PENDING.toString());
+        assertEquals("Completed", BackfillStatusEnum.COMPLETED.toString());
+    }
+
+    @Test
+    void status_fromString() {
+        assertEquals(BackfillStatusEnum.RUNNING, BackfillStatusEnum.fromString("Running"));
+        assertEquals(BackfillStatusEnum.FAILED, BackfillStatusEnum.fromString("failed"));
+    }
+
+    @Test
+    void status_fromString_notFound() {
+        assertNull(BackfillStatusEnum.fromString("BAD_CODE"));
+    }
+
+    @Test
+    void status_finished() {
+        assertFalse(BackfillStatusEnum.RUNNING.isFinished());
+        assertTrue(BackfillStatusEnum.FAILED.isFinished());
+    }
+}
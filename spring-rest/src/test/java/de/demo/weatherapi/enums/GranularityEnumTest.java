@@ -0,0 +1,46 @@
+package de.demo.weatherapi.enums;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GranularityEnumTest {
+
+    @Test
+    void granularity_bucket() {
+        for (GranularityEnum granularity : GranularityEnum.values()) {
+            for (LocalDate date = LocalDate.of(1968, 12, 1); date.isBefore(LocalDate.of(1971, 2, 1)); date = date.plusDays(1)) {
+                int bucket = granularity.bucket(date.toEpochDay());
+                LocalDate start = granularity.start(bucket);
+
+                assertFalse(start.isAfter(date));
+                assertTrue(granularity.start(bucket + 1).isAfter(date));
+                assertEquals(bucket, granularity.bucket(start.toEpochDay()));
+            }
+        }
+        assertEquals(DayOfWeek.MONDAY, GranularityEnum.WEEK.start(GranularityEnum.WEEK.bucket(0)).getDayOfWeek());
+    }
+
+    @Test
+    void granularity_label() {
+        LocalDate date = LocalDate.of(2023, 1, 2);
+        assertEquals("2023-01-02", GranularityEnum.DAY.label(date));
+        assertEquals("2023-W01", GranularityEnum.WEEK.label(date));
+        assertEquals("2022-W52", GranularityEnum.WEEK.label(LocalDate.of(2022, 12, 26)));
+        assertEquals("2023-01", GranularityEnum.MONTH.label(date));
+        assertEquals("2023", GranularityEnum.YEAR.label(date));
+    }
+
+    @Test
+    void granularity_isMonthAligned() {
+        assertFalse(GranularityEnum.DAY.isMonthAligned());
+        assertFalse(GranularityEnum.WEEK.isMonthAligned());
+        assertTrue(GranularityEnum.MONTH.isMonthAligned());
+        assertTrue(GranularityEnum.YEAR.isMonthAligned());
+    }
+}
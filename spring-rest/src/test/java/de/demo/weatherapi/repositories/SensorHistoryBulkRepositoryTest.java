@@ -0,0 +1,83 @@
+package de.demo.weatherapi.repositories;
+
+import de.demo.weatherapi.entities.SensorEntity;
+import de.demo.weatherapi.entities.SensorHistoryEntity;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static de.demo.weatherapi.utils.TestUtils.createSensorEntity;
+import static de.demo.weatherapi.utils.TestUtils.createSensorHistoryEntity;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+public class SensorHistoryBulkRepositoryTest {
+
+    private static final LocalDate FIRST_MONTH = LocalDate.of(2020, 1, 1);
+
+    @Autowired
+    SensorRepository sensorRepository;
+
+    @Autowired
+    SensorHistoryRepository sensorHistoryRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void upsertAll_concurrent_successful() throws Exception {
+        SensorEntity sensor = createSensorEntity(null);
+        sensor.setName("concurrent-" + UUID.randomUUID());
+        SensorEntity saved = sensorRepository.save(sensor);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CyclicBarrier barrier = new CyclicBarrier(2);
+
+        try {
+            // two writers at once, each writing different days of the same months
+            for (int month = 0; month < 24; month++) {
+                LocalDate monthStart = FIRST_MONTH.plusMonths(month);
+                List<CompletableFuture<Integer>> writers = new ArrayList<>();
+                for (int writer = 0; writer < 2; writer++) {
+                    List<SensorHistoryEntity> entities = new ArrayList<>();
+                    for (int day = writer; day < 28; day += 2) {
+                        SensorHistoryEntity entity = createSensorHistoryEntity(UUID.randomUUID());
+                        entity.setSensor(saved);
+                        entity.setRecordDate(monthStart.plusDays(day));
+                        entities.add(entity);
+                    }
+                    writers.add(CompletableFuture.supplyAsync(() -> {
+                        try {
+                            barrier.await();
+                        } catch (Exception ex) {
+                            throw new IllegalStateException(ex);
+                        }
+                        return sensorHistoryRepository.upsertAll(entities);
+                    }, executor));
+                }
+                for (CompletableFuture<Integer> writer : writers) {
+                    assertEquals(14, writer.get());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        List<Long> counts = jdbcTemplate.queryForList("SELECT record_count FROM sensor_history_month_entity "
+                + "WHERE sensor_id = ? ORDER BY month_start", Long.class, saved.getId());
+        assertEquals(24, counts.size());
+        for (Long count : counts) {
+            assertEquals(28, count);
+        }
+    }
+
+}
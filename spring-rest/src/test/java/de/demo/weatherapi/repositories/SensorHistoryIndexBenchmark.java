@@ -0,0 +1,171 @@
+package de.demo.weatherapi.repositories;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Loads one million synthetic sensor history rows and compares the plans and timings of the range queries before
+ * and after adding the sensor history indexes, where before only the foreign key index on sensor_id exists. The history
+ * pages are expected to be read in index order rather than sorted. The plans
+ * are of the SQL Hibernate generates for the repository queries. Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "de.demo.weatherapi.repositories.SensorHistoryIndexBenchmark$FirstStatement")
+public class SensorHistoryIndexBenchmark {
+
+    private static final int SENSORS = 1000;
+    private static final int DAYS = 1000;
+    private static final int ITERATIONS = 10;
+    private static final int PAGE = 500;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2021, 1, 1);
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    SensorHistoryRepository sensorHistoryRepository;
+
+    @Autowired
+    SensorAverageRepository sensorAverageRepository;
+
+    @Test
+    void rangeQueries() {
+        jdbcTemplate.execute("DROP INDEX idx_sensor_history_date");
+        jdbcTemplate.execute("ALTER TABLE sensor_history_entity DROP CONSTRAINT uk_sensor_history_sensor_date");
+        List<UUID> sensors = load();
+        UUID sensorId = sensors.get(SENSORS / 2);
+        LocalDate startDate = FIRST_DAY.plusDays(500);
+        LocalDate endDate = startDate.plusDays(6);
+
+        List<Query> queries = List.of(
+                new Query("findPageBySensorAndDateRange", List.of(sensorId, FIRST_DAY, endDate),
+                        () -> sensorHistoryRepository.findPageBySensorAndDateRange(sensorId, FIRST_DAY, endDate, Limit.of(PAGE))),
+                new Query("findRecordDatesBySensorAndDateRange", List.of(sensorId, startDate, endDate),
+                        () -> sensorHistoryRepository.findRecordDatesBySensorAndDateRange(sensorId, startDate, endDate)),
+                new Query("findSensorAggregateByDayInDateRange", List.of(sensorId, startDate, endDate),
+                        () -> sensorAverageRepository.findSensorAggregateByDayInDateRange(sensorId, startDate, endDate)),
+                new Query("findPageByDateRange", List.of(FIRST_DAY, endDate),
+                        () -> sensorHistoryRepository.findPageByDateRange(FIRST_DAY, endDate, Limit.of(PAGE))),
+                new Query("findPageByDateRangeAfter", List.of(FIRST_DAY, endDate, sensorId),
+                        () -> sensorHistoryRepository.findPageByDateRangeAfter(FIRST_DAY, endDate, sensorId, Limit.of(PAGE))),
+                new Query("findAggregateInDateRange", List.of(startDate, endDate),
+                        () -> sensorAverageRepository.findAggregateInDateRange(startDate, endDate))
+        );
+
+        for (Query query : queries) {
+            measure(query, "before");
+        }
+        jdbcTemplate.execute("CREATE UNIQUE INDEX uk_sensor_history_sensor_date ON sensor_history_entity "
+                + "(sensor_id, record_date DESC)");
+        jdbcTemplate.execute("CREATE INDEX idx_sensor_history_date ON sensor_history_entity (record_date DESC, id DESC)");
+        for (Query query : queries) {
+            String plan = measure(query, "after");
+            assertTrue(plan.contains("UK_SENSOR_HISTORY_SENSOR_DATE") || plan.contains("IDX_SENSOR_HISTORY_DATE"),
+                    query.name() + " does not use the sensor history indexes");
+            assertTrue(!query.name().startsWith("findPage") || plan.contains("INDEX SORTED"),
+                    query.name() + " is not read in index order");
+        }
+    }
+
+    private List<UUID> load() {
+        List<UUID> sensors = new ArrayList<>(SENSORS);
+        for (int x = 0; x < SENSORS; x++) {
+            sensors.add(UUID.randomUUID());
+        }
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO sensor_entity (id, name, description, country_code, time_zone, elevation, longitude,
+                                           latitude, modified_date_time)
+                VALUES (?, ?, 'benchmark', 'IE', 'EUROPE_DUBLIN', 10, -6.2, 53.3, CURRENT_TIMESTAMP)
+                """, sensors, 1000, (ps, id) -> {
+            ps.setObject(1, id);
+            ps.setString(2, "benchmark-" + id);
+        });
+        LocalDateTime now = LocalDateTime.now();
+        for (int day = 0; day < DAYS; day++) {
+            LocalDate date = FIRST_DAY.plusDays(day);
+            int seed = day;
+            jdbcTemplate.batchUpdate("""
+                    INSERT INTO sensor_history_entity (id, sensor_id, record_date, rainfall_sum, snowfall_sum, sunrise,
+                                                       sunset, temperature_mean, temperature_min, temperature_max,
+                                                       wind_direction, wind_speed_max, modified_date_time)
+                    VALUES (?, ?, ?, ?, 0, ?, ?, ?, ?, ?, ?, ?, ?)
+                    """, sensors, SENSORS, (ps, id) -> {
+                ps.setObject(1, UUID.randomUUID());
+                ps.setObject(2, id);
+                ps.setObject(3, date);
+                ps.setDouble(4, seed % 17 / 2D);
+                ps.setObject(5, date.atTime(7, 0));
+                ps.setObject(6, date.atTime(18, 0));
+                ps.setDouble(7, seed % 30 - 5);
+                ps.setDouble(8, seed % 30 - 10);
+                ps.setDouble(9, seed % 30);
+                ps.setInt(10, seed % 360);
+                ps.setDouble(11, seed % 40);
+                ps.setObject(12, now);
+            });
+        }
+        System.out.printf("loaded %d sensor history rows%n",
+                jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sensor_history_entity", Long.class));
+        return sensors;
+    }
+
+    private String measure(Query query, String label) {
+        for (int x = 0; x < ITERATIONS; x++) {
+            query.call().get();
+        }
+        FirstStatement.sql = null;
+        query.call().get();
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + FirstStatement.sql, String.class,
+                query.parameters().toArray());
+        long start = System.nanoTime();
+        int rows = 0;
+        for (int x = 0; x < ITERATIONS; x++) {
+            rows += query.call().get().size();
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-36s %-10s %10.2f ms/op %6d rows/op%n%s%n%n", query.name(), label,
+                elapsed / 1e6 / ITERATIONS, rows / ITERATIONS, plan);
+        return plan.toUpperCase();
+    }
+
+    private record Query(
+            String name,
+            List<Object> parameters,
+            Supplier<List<?>> call
+    ) {
+    }
+
+    /**
+     * Records the first SQL statement Hibernate prepares after being reset, to explain the plan of the query rather
+     * than of the sensor lookups that follow it.
+     */
+    public static class FirstStatement implements StatementInspector {
+
+        static volatile String sql;
+
+        @Override
+        public String inspect(String sql) {
+            if (FirstStatement.sql == null) {
+                FirstStatement.sql = sql;
+            }
+            return sql;
+        }
+
+    }
+
+}
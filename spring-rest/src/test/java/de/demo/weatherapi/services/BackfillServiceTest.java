@@ -0,0 +1,201 @@
+package de.demo.weatherapi.services;
+
+import de.demo.weatherapi.dtos.BackfillJobResponse;
+import de.demo.weatherapi.dtos.DateRange;
+import de.demo.weatherapi.dtos.SensorHistoryRequest;
+import de.demo.weatherapi.entities.BackfillJobEntity;
+import de.demo.weatherapi.entities.SensorEntity;
+import de.demo.weatherapi.enums.BackfillStatusEnum;
+import de.demo.weatherapi.repositories.BackfillJobRepository;
+import de.demo.weatherapi.repositories.SensorRepository;
+import org.hibernate.exception.GenericJDBCException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.web.client.RestClientException;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static de.demo.weatherapi.utils.TestUtils.createBackfillJobEntity;
+import static de.demo.weatherapi.utils.TestUtils.createSensorEntity;
+import static de.demo.weatherapi.utils.TestUtils.createSensorHistoryRequest;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest
+public class BackfillServiceTest {
+
+    @MockBean
+    LookupService lookupService;
+
+    @MockBean
+    SensorHistoryService sensorHistoryService;
+
+    @MockBean
+    BackfillJobRepository backfillJobRepository;
+
+    @MockBean
+    SensorRepository sensorRepository;
+
+    @Autowired
+    BackfillService backfillService;
+
+    @Test
+    void submit_successful() {
+        UUID id = UUID.randomUUID();
+        SensorEntity sensor = createSensorEntity(id);
+        DateRange gap = new DateRange(LocalDate.now().minusDays(20), LocalDate.now().minusDays(10));
+        List<SensorHistoryRequest> history = List.of(createSensorHistoryRequest(), createSensorHistoryRequest());
+
+        given(backfillJobRepository.save(any()))
+                .willAnswer(i -> i.getArgument(0));
+        given(sensorHistoryService.findGaps(eq(id), any()))
+                .willReturn(List.of(gap));
+        given(lookupService.getWeatherHistory(anyList(), eq(gap)))
+                .willReturn(List.of(history));
+        given(sensorHistoryService.backfill(eq(sensor), anyList()))
+                .willReturn(2);
+        BackfillJobResponse res = backfillService.submit(sensor);
+
+        assertNotNull(res);
+        assertEquals(id, res.sensorId());
+        verify(sensorHistoryService, timeout(1000)).backfill(eq(sensor), eq(history));
+        verify(backfillJobRepository, timeout(1000).atLeastOnce()).save(argThat((BackfillJobEntity j) ->
+                j.getStatus() == BackfillStatusEnum.COMPLETED && j.getRowsLoaded() == 2));
+    }
+
+    @Test
+    void submit_unsuccessful() {
+        UUID id = UUID.randomUUID();
+        SensorEntity sensor = createSensorEntity(id);
+
+        given(backfillJobRepository.save(any()))
+                .willAnswer(i -> i.getArgument(0));
+        given(sensorHistoryService.findGaps(eq(id), any()))
+                .willReturn(List.of(new DateRange(LocalDate.now().minusDays(20), LocalDate.now().minusDays(10))));
+        given(lookupService.getWeatherHistory(anyList(), any()))
+                .willThrow(new RestClientException("Some Error"));
+        BackfillJobResponse res = backfillService.submit(sensor);
+
+        assertNotNull(res);
+        verify(backfillJobRepository, timeout(1000).atLeastOnce()).save(argThat((BackfillJobEntity j) ->
+                j.getStatus() == BackfillStatusEnum.FAILED && "Some Error".equals(j.getMessage())));
+    }
+
+    @Test
+    void submit_without_gaps() {
+        UUID id = UUID.randomUUID();
+        SensorEntity sensor = createSensorEntity(id);
+
+        given(backfillJobRepository.save(any()))
+                .willAnswer(i -> i.getArgument(0));
+        given(sensorHistoryService.findGaps(eq(id), any()))
+                .willReturn(List.of());
+        backfillService.submit(sensor);
+
+        verify(backfillJobRepository, timeout(1000).atLeastOnce()).save(argThat((BackfillJobEntity j) ->
+                j.getStatus() == BackfillStatusEnum.COMPLETED && j.getRowsFetched() == 0));
+        verify(lookupService, never()).getWeatherHistory(anyList(), any());
+    }
+
+    @Test
+    void findBySensor_successful() {
+        UUID id = UUID.randomUUID();
+        BackfillJobEntity entity = createBackfillJobEntity(id);
+
+        given(backfillJobRepository.findLatestBySensor(eq(id)))
+                .willReturn(Optional.of(entity));
+        BackfillJobResponse res = backfillService.findBySensor(id);
+
+        assertNotNull(res);
+        assertEquals(entity.getId(), res.id());
+        assertEquals(BackfillStatusEnum.PENDING, res.status());
+    }
+
+    @Test
+    void findBySensor_unsuccessful() {
+        UUID id = UUID.randomUUID();
+
+        given(backfillJobRepository.findLatestBySensor(eq(id)))
+                .willThrow(new GenericJDBCException("Failed", new SQLException()));
+        BackfillJobResponse res;
+        try {
+            res = backfillService.findBySensor(id);
+        } catch (Exception ex) {
+            res = null;
+        }
+
+        assertNull(res);
+    }
+
+    @Test
+    void resume_successful() {
+        UUID id = UUID.randomUUID();
+        BackfillJobEntity entity = createBackfillJobEntity(id);
+
+        given(backfillJobRepository.findAllByStatusIn(anyList()))
+                .willReturn(List.of(entity));
+        given(backfillJobRepository.save(any()))
+                .willAnswer(i -> i.getArgument(0));
+        given(sensorHistoryService.findGaps(eq(id), any()))
+                .willReturn(List.of(new DateRange(LocalDate.now().minusDays(20), LocalDate.now().minusDays(10))));
+        given(lookupService.getWeatherHistory(anyList(), any()))
+                .willReturn(List.of(List.of(createSensorHistoryRequest())));
+        backfillService.resume();
+
+        verify(sensorHistoryService, timeout(1000)).backfill(eq(entity.getSensor()), anyList());
+    }
+
+    @Test
+    void refresh_successful() {
+        SensorEntity complete = createSensorEntity(UUID.randomUUID());
+        SensorEntity missing = createSensorEntity(UUID.randomUUID());
+        SensorEntity stale = createSensorEntity(UUID.randomUUID());
+        SensorEntity running = createSensorEntity(UUID.randomUUID());
+        BackfillJobEntity job = createBackfillJobEntity(running.getId());
+        job.setSensor(running);
+
+        DateRange gap = new DateRange(LocalDate.now().minusDays(20), LocalDate.now().minusDays(10));
+
+        given(sensorRepository.findAll())
+                .willReturn(List.of(complete, missing, stale, running));
+        given(backfillJobRepository.findAllByStatusIn(anyList()))
+                .willReturn(List.of(job));
+        given(backfillJobRepository.save(any()))
+                .willAnswer(i -> i.getArgument(0));
+        given(sensorHistoryService.findGaps(eq(complete.getId()), any()))
+                .willReturn(List.of());
+        given(sensorHistoryService.findGaps(eq(missing.getId()), any()))
+                .willReturn(List.of(gap));
+        given(sensorHistoryService.findGaps(eq(stale.getId()), any()))
+                .willReturn(List.of(gap));
+        given(lookupService.getWeatherHistory(anyList(), eq(gap)))
+                .willReturn(List.of(List.of(createSensorHistoryRequest()), List.of(createSensorHistoryRequest())));
+        backfillService.refresh();
+
+        // both sensors missing the same days are fetched with a single lookup
+        verify(lookupService, timeout(1000)).getWeatherHistory(
+                eq(List.of(missing.toRequest(), stale.toRequest())), eq(gap));
+        verify(backfillJobRepository, timeout(1000).atLeastOnce()).save(argThat((BackfillJobEntity j) ->
+                j.getSensor() == missing && j.getStatus() == BackfillStatusEnum.COMPLETED));
+        verify(backfillJobRepository, timeout(1000).atLeastOnce()).save(argThat((BackfillJobEntity j) ->
+                j.getSensor() == stale && j.getStatus() == BackfillStatusEnum.COMPLETED));
+        verify(backfillJobRepository, never()).save(argThat((BackfillJobEntity j) ->
+                j.getSensor() == complete || j.getSensor() == running));
+    }
+
+}
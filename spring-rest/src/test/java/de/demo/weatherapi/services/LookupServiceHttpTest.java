@@ -0,0 +1,150 @@
+package de.demo.weatherapi.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import de.demo.weatherapi.dtos.SensorHistoryRequest;
+import de.demo.weatherapi.dtos.SensorRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import static de.demo.weatherapi.utils.TestUtils.createSensorRequest;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "custom.http.readTimeoutMillis=500")
+public class LookupServiceHttpTest {
+
+    private static final HttpServer server = createServer();
+    private static final AtomicLong delayMillis = new AtomicLong();
+    private static final AtomicReference<String> acceptEncoding = new AtomicReference<>();
+    private static final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    LookupService lookupService;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("custom.weatherApiUrl",
+                () -> "http://localhost:" + server.getAddress().getPort() + "/v1/archive");
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.stop(0);
+    }
+
+    @BeforeEach
+    void reset() {
+        delayMillis.set(0);
+        clientPorts.clear();
+    }
+
+    @Test
+    void getWeather_successful() {
+        SensorRequest req = createSensorRequest();
+
+        List<SensorHistoryRequest> res = lookupService.getWeatherHistory(req);
+        lookupService.getWeatherHistory(req);
+
+        assertEquals(2, res.size());
+        assertEquals(1D, res.get(0).rainfallSum());
+        assertTrue(acceptEncoding.get().contains("gzip"));
+        // both requests were sent over the same pooled connection
+        assertEquals(1, clientPorts.size());
+    }
+
+    @Test
+    void getWeather_unsuccessful() {
+        SensorRequest req = createSensorRequest();
+
+        delayMillis.set(1500);
+
+        assertThrows(ResourceAccessException.class, () -> lookupService.getWeatherHistory(req));
+    }
+
+    @Test
+    void metrics_successful() {
+        lookupService.getWeatherHistory(createSensorRequest());
+
+        Timer requests = meterRegistry.find("http.client.requests").timer();
+        assertNotNull(requests);
+        assertTrue(requests.count() > 0);
+        assertEquals(50D, meterRegistry.get("httpcomponents.httpclient.pool.total.max").gauge().value());
+        assertNotNull(meterRegistry.find("httpcomponents.httpclient.pool.total.connections").gauge());
+    }
+
+    private static HttpServer createServer() {
+        try {
+            byte[] body = gzip(new ObjectMapper().writeValueAsBytes(Map.of(
+                    "daily", Map.of(
+                            "time", List.of("2023-11-01", "2023-11-02"),
+                            "rain_sum", List.of(1D, 2D),
+                            "snowfall_sum", List.of(3D, 4D),
+                            "sunrise", List.of("2023-11-01T06:21", "2023-11-02T06:19"),
+                            "sunset", List.of("2023-11-01T21:32", "2023-11-02T21:35"),
+                            "temperature_2m_mean", List.of(5D, 6D),
+                            "temperature_2m_min", List.of(7D, 8D),
+                            "temperature_2m_max", List.of(9D, 10D),
+                            "wind_direction_10m_dominant", List.of(11, 12),
+                            "wind_speed_10m_max", List.of(13D, 14D)
+                    ))));
+            HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+            server.createContext("/v1/archive", exchange -> {
+                try {
+                    Thread.sleep(delayMillis.get());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                acceptEncoding.set(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+                clientPorts.add(exchange.getRemoteAddress().getPort());
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            server.setExecutor(Executors.newCachedThreadPool());
+            server.start();
+            return server;
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(content);
+        }
+        return bytes.toByteArray();
+    }
+
+}
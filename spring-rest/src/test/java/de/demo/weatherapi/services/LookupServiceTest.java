@@ -1,10 +1,14 @@
 package de.demo.weatherapi.services;
 
+import de.demo.weatherapi.dtos.DateRange;
 import de.demo.weatherapi.dtos.LocationRequest;
 import de.demo.weatherapi.dtos.LocationResponse;
 import de.demo.weatherapi.dtos.SensorHistoryRequest;
 import de.demo.weatherapi.dtos.SensorRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatcher;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
@@ -12,10 +16,15 @@ import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
 
 import java.net.URI;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -23,9 +32,14 @@ import static de.demo.weatherapi.utils.TestUtils.createLocationRequest;
 import static de.demo.weatherapi.utils.TestUtils.createSensorRequest;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @SpringBootTest
@@ -37,6 +51,12 @@ public class LookupServiceTest {
     @Autowired
     LookupService lookupService;
 
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
     @Test
     void getLocation_successful() {
         LocationRequest req = createLocationRequest();
@@ -64,6 +84,40 @@ public class LookupServiceTest {
         assertEquals(3D, res.get(0).latitude());
     }
 
+    @Test
+    void getLocationCached_successful() {
+        Map<String, ?> restResp = Map.of(
+                "results", List.of(
+                        Map.of(
+                                "name", "Galway",
+                                "admin1", "Connacht",
+                                "country_code", "IE",
+                                "timezone", "Europe/Dublin",
+                                "elevation", 10D,
+                                "longitude", -9.04D,
+                                "latitude", 53.27D
+                        )));
+
+        when(restTemplate.exchange(
+                any(URI.class), eq(HttpMethod.GET), isNull(), eq(new ParameterizedTypeReference<Map<String, ?>>() {
+                }))
+        ).thenReturn(new ResponseEntity<>(restResp, HttpStatus.OK));
+        List<LocationResponse> res = lookupService.getLocationInfo(new LocationRequest("Galw"));
+
+        // same name, differing in case and spacing
+        assertEquals(res, lookupService.getLocationInfo(new LocationRequest(" GALW ")));
+        verify(restTemplate, times(1)).exchange(
+                any(URI.class), eq(HttpMethod.GET), isNull(), eq(new ParameterizedTypeReference<Map<String, ?>>() {
+                }));
+        // longer name, looked up as the upstream search is fuzzy
+        assertEquals(res, lookupService.getLocationInfo(new LocationRequest("Galway")));
+        verify(restTemplate, times(2)).exchange(
+                any(URI.class), eq(HttpMethod.GET), isNull(), eq(new ParameterizedTypeReference<Map<String, ?>>() {
+                }));
+        assertTrue(meterRegistry.get("cache.gets").tags("cache", "locations", "result", "hit").functionCounter()
+                .count() >= 1);
+    }
+
     @Test
     void getWeather_successful() {
         SensorRequest req = createSensorRequest();
@@ -81,10 +135,7 @@ public class LookupServiceTest {
                         "wind_speed_10m_max", List.of(13D, 14D)
                 ));
 
-        when(restTemplate.exchange(
-                any(URI.class), eq(HttpMethod.GET), isNull(), eq(new ParameterizedTypeReference<Map<String, ?>>() {
-                }))
-        ).thenReturn(new ResponseEntity<>(restResp, HttpStatus.OK));
+        givenWeatherResponse(uri -> true, restResp);
         List<SensorHistoryRequest> res = lookupService.getWeatherHistory(req);
 
         assertNotNull(res);
@@ -95,4 +146,73 @@ public class LookupServiceTest {
         assertEquals(12, res.get(1).windDirection());
     }
 
+    @Test
+    void getWeatherForPeriod_successful() {
+        SensorRequest req = createSensorRequest();
+        DateRange period = new DateRange(LocalDate.of(2023, 11, 1), LocalDate.of(2023, 11, 2));
+
+        givenWeatherResponse((URI uri) -> uri.getQuery().contains("start_date=2023-11-01")
+                && uri.getQuery().contains("end_date=2023-11-02"), Map.of());
+        List<SensorHistoryRequest> res = lookupService.getWeatherHistory(req, period);
+
+        assertNotNull(res);
+        assertEquals(0, res.size());
+    }
+
+    @Test
+    void getWeatherForSensors_successful() {
+        SensorRequest req = createSensorRequest();
+        DateRange period = new DateRange(LocalDate.of(2023, 11, 1), LocalDate.of(2023, 11, 1));
+        List<Map<String, ?>> restResp = List.of(
+                Map.of("daily", Map.of(
+                        "time", List.of("2023-11-01"),
+                        "rain_sum", List.of(1D),
+                        "snowfall_sum", List.of(3D),
+                        "sunrise", List.of("2023-11-01T06:21"),
+                        "sunset", List.of("2023-11-01T21:32"),
+                        "temperature_2m_mean", List.of(5D),
+                        "temperature_2m_min", List.of(7D),
+                        "temperature_2m_max", List.of(9D),
+                        "wind_direction_10m_dominant", List.of(11),
+                        "wind_speed_10m_max", List.of(13D)
+                )),
+                Map.of());
+
+        givenWeatherResponse((URI uri) -> uri.getQuery().contains("latitude=3.0,3.0"), restResp);
+        List<List<SensorHistoryRequest>> res = lookupService.getWeatherHistory(List.of(req, req), period);
+
+        assertNotNull(res);
+        assertEquals(2, res.size());
+        assertEquals(1, res.get(0).size());
+        assertEquals(1D, res.get(0).get(0).rainfallSum());
+        assertEquals(0, res.get(1).size());
+    }
+
+    @Test
+    void getWeatherWithMissingValues_successful() {
+        SensorRequest req = createSensorRequest();
+        Map<String, Object> daily = new HashMap<>();
+        daily.put("time", List.of("2023-11-01"));
+        daily.put("rain_sum", Collections.singletonList(null));
+        daily.put("sunrise", List.of("2023-11-01T06:21:30"));
+        daily.put("wind_direction_10m_dominant", List.of(11));
+        daily.put("hourly_units", Map.of("time", "iso8601"));
+
+        givenWeatherResponse(uri -> true, Map.of("latitude", 3D, "daily", daily));
+        List<SensorHistoryRequest> res = lookupService.getWeatherHistory(req);
+
+        assertEquals(1, res.size());
+        assertEquals(LocalDate.of(2023, 11, 1), res.get(0).recordDate());
+        assertNull(res.get(0).rainfallSum());
+        assertNull(res.get(0).snowfallSum());
+        assertEquals(LocalDateTime.of(2023, 11, 1, 6, 21, 30), res.get(0).sunrise());
+        assertEquals(11, res.get(0).windDirection());
+    }
+
+    private void givenWeatherResponse(ArgumentMatcher<URI> uri, Object body) {
+        when(restTemplate.execute(argThat(uri), eq(HttpMethod.GET), isNull(), any()))
+                .thenAnswer(i -> i.<ResponseExtractor<?>>getArgument(3).extractData(
+                        new MockClientHttpResponse(objectMapper.writeValueAsBytes(body), HttpStatus.OK)));
+    }
+
 }
@@ -0,0 +1,135 @@
+package de.demo.weatherapi.services;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.demo.weatherapi.dtos.SensorHistoryRequest;
+import de.demo.weatherapi.services.impl.OpenMetroHistoryParser;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the streaming archive parser with decoding the response into generic maps first. Run with
+ * {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+public class OpenMetroHistoryParserBenchmark {
+
+    private static final int LOCATIONS = 20;
+    private static final int DAYS = 3650;
+    private static final int ITERATIONS = 20;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void parse() throws Exception {
+        byte[] body = objectMapper.writeValueAsBytes(createResponse());
+
+        List<List<SensorHistoryRequest>> expected = parseMaps(body);
+        assertEquals(expected, OpenMetroHistoryParser.parse(new ByteArrayInputStream(body)));
+
+        measure("maps", () -> parseMaps(body));
+        measure("streaming", () -> OpenMetroHistoryParser.parse(new ByteArrayInputStream(body)));
+    }
+
+    private void measure(String name, Callable<List<List<SensorHistoryRequest>>> parser) throws Exception {
+        for (int x = 0; x < ITERATIONS; x++) {
+            parser.call();
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocated = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        int rows = 0;
+        for (int x = 0; x < ITERATIONS; x++) {
+            rows += parser.call().stream().mapToInt(List::size).sum();
+        }
+        long elapsed = System.nanoTime() - start;
+        allocated = threads.getCurrentThreadAllocatedBytes() - allocated;
+        System.out.printf("%-10s %8.2f ms/op %10d bytes/op %8d rows/op%n", name,
+                elapsed / 1e6 / ITERATIONS, allocated / ITERATIONS, rows / ITERATIONS);
+    }
+
+    /**
+     * The previous decoding, to a generic map of boxed lists that is then walked to build the rows.
+     */
+    @SuppressWarnings("unchecked")
+    private List<List<SensorHistoryRequest>> parseMaps(byte[] body) throws Exception {
+        List<Map<String, ?>> response = objectMapper.readValue(body, new TypeReference<>() {
+        });
+        List<List<SensorHistoryRequest>> locations = new ArrayList<>();
+        for (Map<String, ?> location : response) {
+            Map<String, ?> daily = (Map<String, ?>) location.get("daily");
+            List<String> dates = (List<String>) daily.get("time");
+            List<Double> rainfallSum = (List<Double>) daily.get("rain_sum");
+            List<Double> snowfallSum = (List<Double>) daily.get("snowfall_sum");
+            List<String> sunrise = (List<String>) daily.get("sunrise");
+            List<String> sunset = (List<String>) daily.get("sunset");
+            List<Double> temperatureMean = (List<Double>) daily.get("temperature_2m_mean");
+            List<Double> temperatureMin = (List<Double>) daily.get("temperature_2m_min");
+            List<Double> temperatureMax = (List<Double>) daily.get("temperature_2m_max");
+            List<Integer> windDirection = (List<Integer>) daily.get("wind_direction_10m_dominant");
+            List<Double> windSpeedMax = (List<Double>) daily.get("wind_speed_10m_max");
+            List<SensorHistoryRequest> history = new ArrayList<>();
+            for (int x = 0; x < dates.size(); x++) {
+                history.add(SensorHistoryRequest.builder()
+                        .recordDate(LocalDate.parse(dates.get(x)))
+                        .rainfallSum(rainfallSum.get(x))
+                        .snowfallSum(snowfallSum.get(x))
+                        .sunrise(LocalDateTime.parse(sunrise.get(x)))
+                        .sunset(LocalDateTime.parse(sunset.get(x)))
+                        .temperatureMean(temperatureMean.get(x))
+                        .temperatureMin(temperatureMin.get(x))
+                        .temperatureMax(temperatureMax.get(x))
+                        .windDirection(windDirection.get(x))
+                        .windSpeedMax(windSpeedMax.get(x))
+                        .build());
+            }
+            locations.add(history);
+        }
+        return locations;
+    }
+
+    private List<Map<String, ?>> createResponse() {
+        List<Map<String, ?>> response = new ArrayList<>();
+        for (int location = 0; location < LOCATIONS; location++) {
+            Map<String, List<?>> daily = new LinkedHashMap<>();
+            List<String> time = new ArrayList<>();
+            List<String> sunrise = new ArrayList<>();
+            List<String> sunset = new ArrayList<>();
+            List<Double> values = new ArrayList<>();
+            List<Integer> directions = new ArrayList<>();
+            LocalDate date = LocalDate.of(2014, 1, 1);
+            for (int x = 0; x < DAYS; x++, date = date.plusDays(1)) {
+                time.add(date.toString());
+                sunrise.add(date.atTime(6, x % 60).toString());
+                sunset.add(date.atTime(20, x % 60).toString());
+                values.add(Math.round(location + x * 0.37 % 30 * 10) / 10D);
+                directions.add(x % 360);
+            }
+            daily.put("time", time);
+            daily.put("temperature_2m_max", values);
+            daily.put("temperature_2m_min", values);
+            daily.put("temperature_2m_mean", values);
+            daily.put("sunrise", sunrise);
+            daily.put("sunset", sunset);
+            daily.put("rain_sum", values);
+            daily.put("snowfall_sum", values);
+            daily.put("wind_speed_10m_max", values);
+            daily.put("wind_direction_10m_dominant", directions);
+            response.add(Map.of("latitude", 53.3 + location, "longitude", -6.2, "daily", daily));
+        }
+        return response;
+    }
+
+}
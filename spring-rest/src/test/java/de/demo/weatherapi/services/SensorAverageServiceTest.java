@@ -1,9 +1,12 @@
 package de.demo.weatherapi.services;
 
 import de.demo.weatherapi.dtos.SensorAverageResponse;
-import de.demo.weatherapi.entities.SensorAverageEntity;
+import de.demo.weatherapi.entities.SensorAggregateEntity;
+import de.demo.weatherapi.enums.GranularityEnum;
+import de.demo.weatherapi.enums.MetricEnum;
 import de.demo.weatherapi.repositories.SensorAverageRepository;
 import de.demo.weatherapi.repositories.SensorRepository;
+import de.demo.weatherapi.services.impl.SensorHistoryIndex;
 import org.hibernate.exception.GenericJDBCException;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,17 +16,19 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.List;
-import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
-import static de.demo.weatherapi.utils.TestUtils.createSensorAverageEntity;
-import static de.demo.weatherapi.utils.TestUtils.createSensorEntity;
+import static de.demo.weatherapi.utils.TestUtils.createSensorAggregateEntity;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 @SpringBootTest
 public class SensorAverageServiceTest {
@@ -34,6 +39,9 @@ public class SensorAverageServiceTest {
     @MockBean
     SensorAverageRepository sensorAverageRepository;
 
+    @MockBean
+    SensorHistoryIndex sensorHistoryIndex;
+
     @Autowired
     SensorAverageService sensorAverageService;
 
@@ -42,33 +50,111 @@ public class SensorAverageServiceTest {
     void findAverage_successful() {
         LocalDate startDate = LocalDate.now();
         LocalDate endDate = LocalDate.now();
-        SensorAverageEntity entity = createSensorAverageEntity(UUID.randomUUID().toString());
+        SensorAggregateEntity entity1 = createSensorAggregateEntity("sensor1");
+        SensorAggregateEntity entity2 = createSensorAggregateEntity("sensor2");
 
-        given(sensorRepository.findById(any()))
-                .willReturn(Optional.of(createSensorEntity(UUID.randomUUID())));
-        given(sensorAverageRepository.findAverageInDateRange(eq(startDate), eq(endDate)))
-                .willReturn(List.of(entity));
-        SensorAverageResponse res = sensorAverageService.findAverage(startDate, endDate);
+        given(sensorAverageRepository.findAggregateInDateRange(eq(startDate), eq(endDate)))
+                .willReturn(List.of(entity1, entity2));
+        SensorAverageResponse res = sensorAverageService.findAverage(startDate, endDate, null, null);
 
         assertNotNull(res);
         assertEquals(startDate, res.getStartDate());
         assertEquals(endDate, res.getEndDate());
+        assertEquals(2, res.getData().size());
+        assertEquals(5, res.getData().get("sensor1").size());
+        verify(sensorAverageRepository, never()).findMonthAggregateInDateRange(any(), any());
+        verifyNoInteractions(sensorRepository);
+    }
+
+    @Test
+    void findAverage_months_successful() {
+        LocalDate startDate = LocalDate.of(2023, 1, 15);
+        LocalDate endDate = LocalDate.of(2023, 4, 10);
+
+        given(sensorAverageRepository.findAggregateInDateRange(eq(startDate), eq(LocalDate.of(2023, 1, 31))))
+                .willReturn(List.of(createSensorAggregateEntity("sensor1")));
+        given(sensorAverageRepository.findMonthAggregateInDateRange(eq(LocalDate.of(2023, 2, 1)), eq(LocalDate.of(2023, 3, 1))))
+                .willReturn(List.of(createSensorAggregateEntity("sensor1"), createSensorAggregateEntity("sensor2")));
+        given(sensorAverageRepository.findAggregateInDateRange(eq(LocalDate.of(2023, 4, 1)), eq(endDate)))
+                .willReturn(List.of(new SensorAggregateEntity("sensor1", 2L,
+                        8D, 0D, 6D, 8D, 5D, 6D, 14D, 1D, 20D, 20L, 11, 12, 26D, 14D, 15D)));
+        SensorAverageResponse res = sensorAverageService.findAverage(startDate, endDate, null, null);
+
+        assertNotNull(res);
+        assertEquals(2, res.getData().size());
+        SensorAverageResponse expected = SensorAverageResponse.builder().build();
+        expected.addData("sensor1", MetricEnum.RAINFALL, 2D, 0D, 6D);
+        expected.addData("sensor1", MetricEnum.SNOWFALL, 4D, 5D, 6D);
+        expected.addData("sensor1", MetricEnum.TEMPERATURE, 7D, 1D, 20D);
+        expected.addData("sensor1", MetricEnum.WIND_DIRECTION, 10, 11, 12);
+        expected.addData("sensor1", MetricEnum.WIND_SPEED, 13D, 14D, 15D);
+        expected.addData("sensor2", MetricEnum.RAINFALL, 1D, 2D, 3D);
+        expected.addData("sensor2", MetricEnum.SNOWFALL, 4D, 5D, 6D);
+        expected.addData("sensor2", MetricEnum.TEMPERATURE, 7D, 8D, 9D);
+        expected.addData("sensor2", MetricEnum.WIND_DIRECTION, 10, 11, 12);
+        expected.addData("sensor2", MetricEnum.WIND_SPEED, 13D, 14D, 15D);
+        assertEquals(expected.getData(), res.getData());
+    }
+
+    @Test
+    void findAverage_granularity_successful() {
+        LocalDate startDate = LocalDate.of(2023, 1, 15);
+        LocalDate endDate = LocalDate.of(2023, 2, 2);
+
+        given(sensorAverageRepository.findAggregateByDayInDateRange(eq(startDate), eq(endDate)))
+                .willReturn(List.of(createSensorAggregateEntity("sensor1", LocalDate.of(2023, 1, 15)),
+                        createSensorAggregateEntity("sensor1", LocalDate.of(2023, 1, 31)),
+                        createSensorAggregateEntity("sensor2", LocalDate.of(2023, 2, 1))));
+        SensorAverageResponse res = sensorAverageService.findAverage(startDate, endDate, GranularityEnum.DAY, null);
+
+        assertNotNull(res);
+        assertEquals(List.of("sensor1/2023-01-15", "sensor1/2023-01-31", "sensor2/2023-02-01"),
+                List.copyOf(res.getData().keySet()));
+        verify(sensorAverageRepository, never()).findAggregateInDateRange(any(), any());
+    }
+
+    @Test
+    void findAverage_index_successful() {
+        LocalDate startDate = LocalDate.of(2023, 1, 15);
+        LocalDate endDate = LocalDate.of(2023, 4, 10);
+
+        given(sensorHistoryIndex.isReady()).willReturn(true);
+        given(sensorHistoryIndex.aggregate(eq(startDate), eq(endDate), eq(null), eq(null)))
+                .willReturn(List.of(createSensorAggregateEntity("sensor1"), createSensorAggregateEntity("sensor2")));
+        SensorAverageResponse res = sensorAverageService.findAverage(startDate, endDate, null, null);
+
+        assertNotNull(res);
+        assertEquals(2, res.getData().size());
+        assertEquals(5, res.getData().get("sensor2").size());
+        verifyNoInteractions(sensorAverageRepository);
+    }
+
+    @Test
+    void findAverage_metrics_successful() {
+        LocalDate startDate = LocalDate.of(2023, 1, 15);
+        LocalDate endDate = LocalDate.of(2023, 4, 10);
+        Set<MetricEnum> metrics = Set.of(MetricEnum.RAINFALL, MetricEnum.WIND_SPEED);
+
+        given(sensorHistoryIndex.isReady()).willReturn(true);
+        given(sensorHistoryIndex.aggregate(eq(startDate), eq(endDate), eq(null), eq(metrics)))
+                .willReturn(List.of(createSensorAggregateEntity("sensor1")));
+        SensorAverageResponse res = sensorAverageService.findAverage(startDate, endDate, null, metrics);
+
+        assertNotNull(res);
         assertEquals(1, res.getData().size());
+        assertEquals(2, res.getData().get("sensor1").size());
     }
 
     @Test
     void findAverage_unsuccessful() {
         LocalDate startDate = LocalDate.now();
         LocalDate endDate = LocalDate.now();
-        SensorAverageEntity entity = createSensorAverageEntity(UUID.randomUUID().toString());
 
-        given(sensorRepository.findById(any()))
-                .willReturn(Optional.empty());
-        given(sensorAverageRepository.findAverageInDateRange(eq(startDate), eq(endDate)))
-                .willReturn(List.of(entity));
+        given(sensorAverageRepository.findAggregateInDateRange(eq(startDate), eq(endDate)))
+                .willThrow(new GenericJDBCException("Failed", new SQLException()));
         SensorAverageResponse res;
         try {
-            res = sensorAverageService.findAverage(startDate, endDate);
+            res = sensorAverageService.findAverage(startDate, endDate, null, null);
         } catch (Exception ex) {
             res = null;
         }
@@ -79,19 +165,65 @@ public class SensorAverageServiceTest {
     @Test
     void findAverageBySensor_successful() {
         UUID id = UUID.randomUUID();
-        LocalDate startDate = LocalDate.now();
-        LocalDate endDate = LocalDate.now();
-        SensorAverageEntity entity1 = createSensorAverageEntity("2023-09");
-        SensorAverageEntity entity2 = createSensorAverageEntity("2023-10");
+        LocalDate startDate = LocalDate.of(2023, 9, 1);
+        LocalDate endDate = LocalDate.of(2023, 10, 20);
 
-        given(sensorAverageRepository.findSensorAverageInDateRange(eq(id), eq(startDate), eq(endDate)))
-                .willReturn(List.of(entity1, entity2));
-        SensorAverageResponse res = sensorAverageService.findAverageBySensor(id, startDate, endDate);
+        given(sensorAverageRepository.findSensorAggregateByMonthInDateRange(eq(id), eq(startDate), eq(startDate)))
+                .willReturn(List.of(createSensorAggregateEntity("sensor1", startDate)));
+        given(sensorAverageRepository.findSensorAggregateByDayInDateRange(eq(id), eq(LocalDate.of(2023, 10, 1)), eq(endDate)))
+                .willReturn(List.of(createSensorAggregateEntity("sensor1", LocalDate.of(2023, 10, 3)),
+                        createSensorAggregateEntity("sensor1", LocalDate.of(2023, 10, 4))));
+        SensorAverageResponse res = sensorAverageService.findAverageBySensor(id, startDate, endDate, null, null);
 
         assertNotNull(res);
         assertEquals(startDate, res.getStartDate());
         assertEquals(endDate, res.getEndDate());
+        assertEquals(List.of("2023-09", "2023-10"), List.copyOf(res.getData().keySet()));
+    }
+
+    @Test
+    void findAverageBySensor_granularity_successful() {
+        UUID id = UUID.randomUUID();
+        LocalDate startDate = LocalDate.of(2023, 9, 1);
+        LocalDate endDate = LocalDate.of(2023, 10, 20);
+
+        // week buckets never read the monthly rollups
+        given(sensorAverageRepository.findSensorAggregateByDayInDateRange(eq(id), eq(startDate), eq(endDate)))
+                .willReturn(List.of(createSensorAggregateEntity("sensor1", LocalDate.of(2023, 9, 1)),
+                        createSensorAggregateEntity("sensor1", LocalDate.of(2023, 9, 3)),
+                        createSensorAggregateEntity("sensor1", LocalDate.of(2023, 9, 4))));
+        SensorAverageResponse res = sensorAverageService.findAverageBySensor(id, startDate, endDate, GranularityEnum.WEEK, null);
+
+        assertNotNull(res);
+        assertEquals(List.of("2023-W35", "2023-W36"), List.copyOf(res.getData().keySet()));
+        verify(sensorAverageRepository, never()).findSensorAggregateByMonthInDateRange(any(), any(), any());
+
+        // year buckets combine the monthly rollups with the partial months
+        given(sensorAverageRepository.findSensorAggregateByMonthInDateRange(eq(id), eq(startDate), eq(startDate)))
+                .willReturn(List.of(createSensorAggregateEntity("sensor1", startDate)));
+        given(sensorAverageRepository.findSensorAggregateByDayInDateRange(eq(id), eq(LocalDate.of(2023, 10, 1)), eq(endDate)))
+                .willReturn(List.of(createSensorAggregateEntity("sensor1", LocalDate.of(2023, 10, 3))));
+        res = sensorAverageService.findAverageBySensor(id, startDate, endDate, GranularityEnum.YEAR, null);
+
+        assertNotNull(res);
+        assertEquals(List.of("2023"), List.copyOf(res.getData().keySet()));
+    }
+
+    @Test
+    void findAverageBySensor_index_successful() {
+        UUID id = UUID.randomUUID();
+        LocalDate startDate = LocalDate.of(2023, 9, 1);
+        LocalDate endDate = LocalDate.of(2023, 10, 20);
+
+        given(sensorHistoryIndex.isReady()).willReturn(true);
+        given(sensorHistoryIndex.aggregateBySensor(eq(id), eq(startDate), eq(endDate), eq(GranularityEnum.MONTH), eq(null)))
+                .willReturn(List.of(createSensorAggregateEntity("sensor1", startDate),
+                        createSensorAggregateEntity("sensor1", LocalDate.of(2023, 10, 1))));
+        SensorAverageResponse res = sensorAverageService.findAverageBySensor(id, startDate, endDate, null, null);
+
+        assertNotNull(res);
         assertEquals(2, res.getData().size());
+        verifyNoInteractions(sensorAverageRepository);
     }
 
     @Test
@@ -100,11 +232,11 @@ public class SensorAverageServiceTest {
         LocalDate startDate = LocalDate.now();
         LocalDate endDate = LocalDate.now();
 
-        given(sensorAverageRepository.findSensorAverageInDateRange(eq(id), eq(startDate), eq(endDate)))
+        given(sensorAverageRepository.findSensorAggregateByDayInDateRange(eq(id), eq(startDate), eq(endDate)))
                 .willThrow(new GenericJDBCException("Failed", new SQLException()));
         SensorAverageResponse res;
         try {
-            res = sensorAverageService.findAverageBySensor(id, startDate, endDate);
+            res = sensorAverageService.findAverageBySensor(id, startDate, endDate, null, null);
         } catch (Exception ex) {
             res = null;
         }
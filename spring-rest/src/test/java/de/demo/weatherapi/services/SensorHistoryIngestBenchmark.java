@@ -0,0 +1,152 @@
+package de.demo.weatherapi.services;
+
+import de.demo.weatherapi.dtos.SensorHistoryBatchResponse;
+import de.demo.weatherapi.dtos.SensorHistoryRequest;
+import de.demo.weatherapi.dtos.SensorRequest;
+import de.demo.weatherapi.entities.SensorEntity;
+import de.demo.weatherapi.enums.CountryCodeEnum;
+import de.demo.weatherapi.enums.TimeZoneEnum;
+import de.demo.weatherapi.repositories.SensorHistoryRepository;
+import de.demo.weatherapi.repositories.SensorRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the ingestion throughput of one HTTP request per reading, as before the batch endpoint, against posting the
+ * readings in batches. The per reading path is measured both as it was, a sensor lookup and a JPA save per reading,
+ * and as it is now, a single row upsert. Each sensor is given {@value DAYS} days of readings. Run with
+ * {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class SensorHistoryIngestBenchmark {
+
+    private static final int DAYS = 1_000;
+    private static final int SINGLE_SENSORS = 2;
+    private static final int BATCH_SENSORS = 50;
+    private static final int BATCH_SIZE = 1_000;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2020, 1, 1);
+    private static final List<SensorHistoryRequest> REQUESTS = createRequests();
+
+    @Autowired
+    TestRestTemplate restTemplate;
+
+    @Autowired
+    SensorService sensorService;
+
+    @Autowired
+    SensorRepository sensorRepository;
+
+    @Autowired
+    SensorHistoryRepository sensorHistoryRepository;
+
+    @Test
+    void ingest() {
+        postSingle(createSensor(), REQUESTS.subList(0, 500));
+        saveSingle(createSensor(), REQUESTS.subList(0, 500));
+        postBatches(createSensor(), REQUESTS);
+
+        double saved = measure("save per row", SINGLE_SENSORS, this::saveSingle);
+        double posted = measure("post per row", SINGLE_SENSORS, this::postSingle);
+        double batched = measure("post batches", BATCH_SENSORS, this::postBatches);
+
+        System.out.printf("batches / save per row %.1fx, batches / post per row %.1fx%n", batched / saved,
+                batched / posted);
+        assertTrue(batched >= 10 * saved, "batch ingestion is not 10x the per row throughput");
+    }
+
+    private double measure(String name, int sensors, BiConsumer<UUID, List<SensorHistoryRequest>> ingest) {
+        List<UUID> sensorIds = new ArrayList<>(sensors);
+        for (int x = 0; x < sensors; x++) {
+            sensorIds.add(createSensor());
+        }
+        long start = System.nanoTime();
+        for (UUID sensorId : sensorIds) {
+            ingest.accept(sensorId, REQUESTS);
+        }
+        long elapsed = System.nanoTime() - start;
+        for (UUID sensorId : sensorIds) {
+            assertEquals(DAYS, sensorHistoryRepository.findAllBySensor(sensorId).size());
+        }
+        int rows = sensors * DAYS;
+        double throughput = rows / (elapsed / 1e9);
+        System.out.printf("%-14s %8d rows %10.2f ms %10.0f rows/s%n", name, rows, elapsed / 1e6, throughput);
+        return throughput;
+    }
+
+    /**
+     * One request per reading, through the single reading endpoint.
+     */
+    private void postSingle(UUID sensorId, List<SensorHistoryRequest> requests) {
+        for (SensorHistoryRequest request : requests) {
+            assertEquals(200, restTemplate.postForEntity("/api/sensors/" + sensorId + "/history", request,
+                    String.class).getStatusCode().value());
+        }
+    }
+
+    /**
+     * One request per reading, looking up the sensor and saving the reading through JPA, as the single reading endpoint
+     * used to. The request itself is left out, so this overstates the old throughput.
+     */
+    private void saveSingle(UUID sensorId, List<SensorHistoryRequest> requests) {
+        for (SensorHistoryRequest request : requests) {
+            SensorEntity sensor = sensorRepository.findById(sensorId).orElseThrow();
+            sensorHistoryRepository.save(request.toEntity(sensor));
+        }
+    }
+
+    private void postBatches(UUID sensorId, List<SensorHistoryRequest> requests) {
+        for (int x = 0; x < requests.size(); x += BATCH_SIZE) {
+            SensorHistoryBatchResponse response = restTemplate.postForObject(
+                    "/api/sensors/" + sensorId + "/history/batch",
+                    requests.subList(x, Math.min(x + BATCH_SIZE, requests.size())), SensorHistoryBatchResponse.class);
+            assertEquals(0, response.getRejected());
+        }
+    }
+
+    private UUID createSensor() {
+        return sensorService.create(SensorRequest.builder()
+                .name("benchmark-" + UUID.randomUUID())
+                .description("benchmark")
+                .countryCode(CountryCodeEnum.IE)
+                .timeZone(TimeZoneEnum.EUROPE_DUBLIN)
+                .elevation(10D)
+                .longitude(-6.2D)
+                .latitude(53.3D)
+                .loadSensorData(false)
+                .build()).id();
+    }
+
+    private static List<SensorHistoryRequest> createRequests() {
+        List<SensorHistoryRequest> requests = new ArrayList<>(DAYS);
+        for (int x = 0; x < DAYS; x++) {
+            LocalDate recordDate = FIRST_DAY.plusDays(x);
+            requests.add(SensorHistoryRequest.builder()
+                    .recordDate(recordDate)
+                    .rainfallSum(x % 17 / 2D)
+                    .snowfallSum(0D)
+                    .sunrise(recordDate.atTime(7, 0))
+                    .sunset(recordDate.atTime(18, 0))
+                    .temperatureMean(x % 30 - 5D)
+                    .temperatureMin(x % 30 - 10D)
+                    .temperatureMax(x % 30 * 1D)
+                    .windDirection(x % 360)
+                    .windSpeedMax(x % 40 * 1D)
+                    .build());
+        }
+        return requests;
+    }
+
+}
@@ -0,0 +1,149 @@
+package de.demo.weatherapi.services;
+
+import de.demo.weatherapi.dtos.SensorHistoryReceiptResponse;
+import de.demo.weatherapi.dtos.SensorHistoryRequest;
+import de.demo.weatherapi.entities.SensorHistoryEntity;
+import de.demo.weatherapi.repositories.SensorHistoryRepository;
+import de.demo.weatherapi.repositories.SensorRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static de.demo.weatherapi.utils.TestUtils.createSensorEntity;
+import static de.demo.weatherapi.utils.TestUtils.createSensorHistoryRequest;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(properties = {"custom.ingest.enabled=true", "custom.ingest.queueCapacity=3"})
+public class SensorHistoryQueueServiceTest {
+
+    @MockBean
+    SensorRepository sensorRepository;
+
+    @MockBean
+    SensorHistoryRepository sensorHistoryRepository;
+
+    @Autowired
+    SensorHistoryQueueService sensorHistoryQueueService;
+
+    @Test
+    void enqueue_successful() {
+        UUID id = UUID.randomUUID();
+        SensorHistoryRequest req1 = createSensorHistoryRequest();
+        SensorHistoryRequest req2 = SensorHistoryRequest.builder().build();
+
+        given(sensorRepository.findById(eq(id)))
+                .willReturn(Optional.of(createSensorEntity(id)));
+        SensorHistoryReceiptResponse res = sensorHistoryQueueService.enqueue(id, List.of(req1, req2));
+        sensorHistoryQueueService.flush();
+
+        assertNotNull(res);
+        assertNotNull(res.receiptId());
+        assertEquals(1, res.queued());
+        assertEquals(1, res.rejected());
+        verify(sensorHistoryRepository, timeout(1000)).upsertAll(anyList());
+    }
+
+    @Test
+    void enqueue_unsuccessful() {
+        UUID id = UUID.randomUUID();
+        SensorHistoryRequest req = createSensorHistoryRequest();
+
+        // unknown sensor
+        given(sensorRepository.findById(eq(id)))
+                .willReturn(Optional.empty());
+        SensorHistoryReceiptResponse res1;
+        try {
+            res1 = sensorHistoryQueueService.enqueue(id, List.of(req));
+        } catch (Exception ex) {
+            res1 = null;
+        }
+
+        assertNull(res1);
+
+        // more records than the queue can ever hold
+        given(sensorRepository.findById(eq(id)))
+                .willReturn(Optional.of(createSensorEntity(id)));
+        assertThrows(IllegalArgumentException.class,
+                () -> sensorHistoryQueueService.enqueue(id, List.of(req, req, req, req)));
+    }
+
+    @Test
+    void commit_failed_retries_per_record() throws InterruptedException {
+        UUID id = UUID.randomUUID();
+        SensorHistoryRequest req1 = createSensorHistoryRequest();
+        SensorHistoryRequest req2 = SensorHistoryRequest.builder()
+                .recordDate(LocalDate.now().minusDays(1))
+                .rainfallSum(1D)
+                .snowfallSum(2D)
+                .sunrise(LocalDate.now().minusDays(1).atTime(8, 30))
+                .sunset(LocalDate.now().minusDays(1).atTime(17, 15))
+                .temperatureMin(5D)
+                .temperatureMax(6D)
+                .temperatureMean(7D)
+                .windDirection(8)
+                .windSpeedMax(9D)
+                .build();
+
+        given(sensorRepository.findById(eq(id)))
+                .willReturn(Optional.of(createSensorEntity(id)));
+        // any write including the second record fails
+        given(sensorHistoryRepository.upsertAll(anyList())).willAnswer(invocation -> {
+            List<SensorHistoryEntity> entities = invocation.getArgument(0);
+            if (entities.stream().anyMatch(e -> e.getRecordDate().equals(req2.recordDate()))) {
+                throw new DataIntegrityViolationException("constraint violation");
+            }
+            return entities.size();
+        });
+        SensorHistoryReceiptResponse receipt = sensorHistoryQueueService.enqueue(id, List.of(req1, req2));
+        sensorHistoryQueueService.flush();
+
+        SensorHistoryReceiptResponse res = awaitReceipt(id, receipt.receiptId(), 2);
+        assertEquals(2, res.queued());
+        assertEquals(1, res.written());
+        assertEquals(1, res.failed());
+        assertEquals(1, res.failures().get(0).index());
+        assertTrue(res.failures().get(0).reason().contains("constraint violation"));
+        assertNull(sensorHistoryQueueService.findReceipt(UUID.randomUUID(), receipt.receiptId()));
+
+        // a lone failing record fails once
+        SensorHistoryReceiptResponse single = sensorHistoryQueueService.enqueue(id, List.of(req2));
+        sensorHistoryQueueService.flush();
+
+        res = awaitReceipt(id, single.receiptId(), 1);
+        assertEquals(0, res.written());
+        assertEquals(1, res.failed());
+        assertEquals(0, res.failures().get(0).index());
+    }
+
+    /**
+     * Wait for the queued records to be written or failed, as the writer thread may have taken them before the flush.
+     */
+    private SensorHistoryReceiptResponse awaitReceipt(UUID sensorId, UUID receiptId, int queued)
+            throws InterruptedException {
+        SensorHistoryReceiptResponse res = sensorHistoryQueueService.findReceipt(sensorId, receiptId);
+        for (int x = 0; x < 50 && res.written() + res.failed() < queued; x++) {
+            Thread.sleep(100);
+            res = sensorHistoryQueueService.findReceipt(sensorId, receiptId);
+        }
+        // and for any further, wrongly counted outcome
+        Thread.sleep(300);
+        return sensorHistoryQueueService.findReceipt(sensorId, receiptId);
+    }
+
+}
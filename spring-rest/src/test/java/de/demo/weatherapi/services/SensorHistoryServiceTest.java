@@ -1,36 +1,57 @@
 package de.demo.weatherapi.services;
 
+import de.demo.weatherapi.dtos.DateRange;
+import de.demo.weatherapi.dtos.SensorHistoryBatchRequest;
+import de.demo.weatherapi.dtos.SensorHistoryBatchResponse;
+import de.demo.weatherapi.dtos.SensorHistoryCursor;
+import de.demo.weatherapi.dtos.SensorHistoryPage;
 import de.demo.weatherapi.dtos.SensorHistoryRequest;
 import de.demo.weatherapi.dtos.SensorHistoryResponse;
 import de.demo.weatherapi.entities.SensorEntity;
 import de.demo.weatherapi.entities.SensorHistoryEntity;
+import de.demo.weatherapi.entities.SensorHistoryRowEntity;
+import de.demo.weatherapi.enums.MetricEnum;
+import de.demo.weatherapi.repositories.SensorHistoryMonthRepository;
 import de.demo.weatherapi.repositories.SensorHistoryRepository;
 import de.demo.weatherapi.repositories.SensorRepository;
+import de.demo.weatherapi.services.impl.ArrowHistoryWriter;
+import de.demo.weatherapi.services.impl.SensorHistoryIndex;
 import org.hibernate.exception.GenericJDBCException;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Limit;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static de.demo.weatherapi.utils.TestUtils.createSensorEntity;
 import static de.demo.weatherapi.utils.TestUtils.createSensorHistoryEntity;
 import static de.demo.weatherapi.utils.TestUtils.createSensorHistoryRequest;
 import static de.demo.weatherapi.utils.TestUtils.createSensorHistoryResponse;
+import static de.demo.weatherapi.utils.TestUtils.createSensorHistoryRowEntity;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 @SpringBootTest
 public class SensorHistoryServiceTest {
@@ -41,6 +62,12 @@ public class SensorHistoryServiceTest {
     @MockBean
     SensorHistoryRepository sensorHistoryRepository;
 
+    @MockBean
+    SensorHistoryMonthRepository sensorHistoryMonthRepository;
+
+    @MockBean
+    SensorHistoryIndex sensorHistoryIndex;
+
     @Autowired
     SensorHistoryService sensorHistoryService;
 
@@ -48,20 +75,24 @@ public class SensorHistoryServiceTest {
     void createHistory_successful() {
         UUID id = UUID.randomUUID();
         SensorHistoryRequest req = createSensorHistoryRequest();
-        SensorEntity entity1 = createSensorEntity(id);
-        SensorHistoryEntity entity2 = createSensorHistoryEntity(id);
+        SensorEntity entity = createSensorEntity(id);
 
         given(sensorRepository.findById(eq(id)))
-                .willReturn(Optional.of(entity1));
-        given(sensorHistoryRepository.save(any()))
-                .willReturn(entity2);
+                .willReturn(Optional.of(entity));
+        given(sensorHistoryRepository.upsertAll(anyList()))
+                .willReturn(1);
         SensorHistoryResponse res = sensorHistoryService.create(id, req);
 
         assertNotNull(res);
         assertEquals(id, res.sensor().id());
+        assertEquals(SensorHistoryEntity.createId(id, req.recordDate()), res.id());
         assertEquals(req.rainfallSum(), res.rainfallSum());
         assertEquals(req.sunrise(), res.sunrise());
         assertEquals(req.windSpeedMax(), res.windSpeedMax());
+
+        // replaying the same day maps to the same record
+        assertEquals(res.id(), sensorHistoryService.create(id, req).id());
+        verify(sensorHistoryRepository, times(2)).upsertAll(anyList());
     }
 
     @Test
@@ -80,6 +111,199 @@ public class SensorHistoryServiceTest {
         }
 
         assertNull(res);
+
+        // record date in the future
+        SensorHistoryRequest future = SensorHistoryRequest.builder()
+                .recordDate(SensorHistoryRequest.maxRecordDate().plusDays(1))
+                .sunrise(req.sunrise())
+                .sunset(req.sunset())
+                .build();
+        given(sensorRepository.findById(eq(id)))
+                .willReturn(Optional.of(entity));
+
+        assertThrows(IllegalArgumentException.class, () -> sensorHistoryService.create(id, future));
+        verify(sensorHistoryRepository, times(0)).upsertAll(anyList());
+    }
+
+    @Test
+    void createHistoryBatch_successful() {
+        UUID id = UUID.randomUUID();
+        SensorHistoryRequest req1 = createSensorHistoryRequest();
+        SensorHistoryRequest req2 = SensorHistoryRequest.builder().rainfallSum(1D).build();
+        SensorHistoryRequest req3 = createSensorHistoryRequest();
+
+        given(sensorRepository.findById(eq(id)))
+                .willReturn(Optional.of(createSensorEntity(id)));
+        given(sensorHistoryRepository.upsertAll(anyList()))
+                .willReturn(2);
+        SensorHistoryBatchResponse res = sensorHistoryService.createAll(id, List.of(req1, req2, req3));
+
+        assertNotNull(res);
+        assertEquals(id, res.getSensorId());
+        assertEquals(2, res.getAccepted());
+        assertEquals(1, res.getRejected());
+        assertEquals(3, res.getResults().size());
+        verify(sensorRepository, times(1)).findById(eq(id));
+        verify(sensorHistoryRepository, times(1)).upsertAll(anyList());
+    }
+
+    @Test
+    void createHistoryBatch_unsuccessful() {
+        UUID id = UUID.randomUUID();
+        SensorHistoryRequest req = createSensorHistoryRequest();
+
+        // unknown sensor
+        given(sensorRepository.findById(eq(id)))
+                .willReturn(Optional.empty());
+        SensorHistoryBatchResponse res1;
+        try {
+            res1 = sensorHistoryService.createAll(id, List.of(req));
+        } catch (Exception ex) {
+            res1 = null;
+        }
+
+        assertNull(res1);
+
+        // failed insert
+        given(sensorRepository.findById(eq(id)))
+                .willReturn(Optional.of(createSensorEntity(id)));
+        given(sensorHistoryRepository.upsertAll(anyList()))
+                .willThrow(new GenericJDBCException("Failed", new SQLException()));
+        SensorHistoryBatchResponse res2 = sensorHistoryService.createAll(id, List.of(req, req));
+
+        assertNotNull(res2);
+        assertEquals(0, res2.getAccepted());
+        assertEquals(2, res2.getRejected());
+    }
+
+    @Test
+    void createHistoryBatch_recordDate_unsuccessful() {
+        UUID id = UUID.randomUUID();
+        SensorHistoryRequest req = createSensorHistoryRequest();
+        SensorHistoryRequest req1 = SensorHistoryRequest.builder()
+                .recordDate(SensorHistoryRequest.MIN_RECORD_DATE.minusDays(1))
+                .sunrise(req.sunrise())
+                .sunset(req.sunset())
+                .build();
+        SensorHistoryRequest req2 = SensorHistoryRequest.builder()
+                .recordDate(SensorHistoryRequest.maxRecordDate().plusDays(1))
+                .sunrise(req.sunrise())
+                .sunset(req.sunset())
+                .build();
+
+        given(sensorRepository.findById(eq(id)))
+                .willReturn(Optional.of(createSensorEntity(id)));
+        given(sensorHistoryRepository.upsertAll(anyList()))
+                .willReturn(1);
+        SensorHistoryBatchResponse res = sensorHistoryService.createAll(id, List.of(req1, req, req2));
+
+        assertNotNull(res);
+        assertEquals(1, res.getAccepted());
+        assertEquals(2, res.getRejected());
+        assertEquals("Record date before 1940-01-01", req1.validate());
+        assertEquals("Record date in the future", req2.validate());
+        assertNull(req.validate());
+    }
+
+    @Test
+    void createHistoryBatchForSensors_successful() {
+        UUID id1 = UUID.randomUUID();
+        UUID id2 = UUID.randomUUID();
+        SensorHistoryRequest req = createSensorHistoryRequest();
+
+        given(sensorRepository.findAllById(any()))
+                .willReturn(List.of(createSensorEntity(id1)));
+        given(sensorHistoryRepository.upsertAll(anyList()))
+                .willReturn(2);
+        List<SensorHistoryBatchResponse> res = sensorHistoryService.createAll(List.of(
+                new SensorHistoryBatchRequest(id1, List.of(req, req)),
+                new SensorHistoryBatchRequest(id2, List.of(req))
+        ));
+
+        assertNotNull(res);
+        assertEquals(2, res.size());
+        assertEquals(2, res.get(0).getAccepted());
+        assertEquals(1, res.get(1).getRejected());
+        verify(sensorRepository, times(1)).findAllById(any());
+    }
+
+    @Test
+    void backfill_successful() {
+        UUID id = UUID.randomUUID();
+        SensorEntity entity = createSensorEntity(id);
+        SensorHistoryRequest req1 = createSensorHistoryRequest();
+        SensorHistoryRequest req2 = SensorHistoryRequest.builder().build();
+
+        given(sensorHistoryRepository.upsertAll(anyList()))
+                .willReturn(1);
+        int res = sensorHistoryService.backfill(entity, List.of(req1, req2));
+
+        assertEquals(1, res);
+        verify(sensorRepository, times(0)).findById(any());
+        verify(sensorHistoryRepository, times(1)).upsertAll(anyList());
+    }
+
+    @Test
+    void backfill_unsuccessful() {
+        UUID id = UUID.randomUUID();
+        SensorEntity entity = createSensorEntity(id);
+        SensorHistoryRequest req = createSensorHistoryRequest();
+
+        given(sensorHistoryRepository.upsertAll(anyList()))
+                .willThrow(new GenericJDBCException("Failed", new SQLException()));
+        Integer res;
+        try {
+            res = sensorHistoryService.backfill(entity, List.of(req));
+        } catch (Exception ex) {
+            res = null;
+        }
+
+        assertNull(res);
+    }
+
+    @Test
+    void findGaps_successful() {
+        UUID id = UUID.randomUUID();
+        LocalDate startDate = LocalDate.of(2023, 1, 1);
+        DateRange period = new DateRange(startDate, startDate.plusDays(59));
+
+        // stored: 1st - 10th, 13th and 30th, the three gaps in between are only a single stored day apart
+        given(sensorHistoryRepository.findRecordDatesBySensorAndDateRange(eq(id), eq(period.startDate()), eq(period.endDate())))
+                .willReturn(List.of(startDate, startDate.plusDays(1), startDate.plusDays(2), startDate.plusDays(3),
+                        startDate.plusDays(4), startDate.plusDays(5), startDate.plusDays(6), startDate.plusDays(7),
+                        startDate.plusDays(8), startDate.plusDays(9), startDate.plusDays(12), startDate.plusDays(29)));
+        List<DateRange> res = sensorHistoryService.findGaps(id, period);
+
+        assertEquals(List.of(
+                new DateRange(startDate.plusDays(10), startDate.plusDays(59))
+        ), res);
+
+        // stored: 21st - 30th, more days than custom.backfill.mergeGapDays, so the gaps are fetched separately
+        given(sensorHistoryRepository.findRecordDatesBySensorAndDateRange(eq(id), eq(period.startDate()), eq(period.endDate())))
+                .willReturn(startDate.plusDays(20).datesUntil(startDate.plusDays(30)).toList());
+        res = sensorHistoryService.findGaps(id, period);
+
+        assertEquals(List.of(
+                new DateRange(startDate, startDate.plusDays(19)),
+                new DateRange(startDate.plusDays(30), startDate.plusDays(59))
+        ), res);
+    }
+
+    @Test
+    void findGaps_unsuccessful() {
+        UUID id = UUID.randomUUID();
+        DateRange period = new DateRange(LocalDate.now().minusDays(10), LocalDate.now());
+
+        given(sensorHistoryRepository.findRecordDatesBySensorAndDateRange(eq(id), any(), any()))
+                .willThrow(new GenericJDBCException("Failed", new SQLException()));
+        List<DateRange> res;
+        try {
+            res = sensorHistoryService.findGaps(id, period);
+        } catch (Exception ex) {
+            res = null;
+        }
+
+        assertNull(res);
     }
 
     @Test
@@ -115,54 +339,107 @@ public class SensorHistoryServiceTest {
     void findAll_successful() {
         LocalDate startDate = LocalDate.now();
         LocalDate endDate = LocalDate.now();
-        SensorHistoryEntity entity1 = createSensorHistoryEntity(UUID.randomUUID());
-        SensorHistoryEntity entity2 = createSensorHistoryEntity(UUID.randomUUID());
+        SensorHistoryRowEntity entity1 = createSensorHistoryRowEntity(UUID.randomUUID());
+        SensorHistoryRowEntity entity2 = createSensorHistoryRowEntity(UUID.randomUUID());
 
         // find all results
-        given(sensorHistoryRepository.findAll())
+        given(sensorHistoryRepository.findPageByDateRange(eq(LocalDate.of(1, 1, 1)), eq(LocalDate.of(9999, 12, 31)), eq(Limit.of(501))))
                 .willReturn(List.of(entity1, entity2));
-        List<SensorHistoryResponse> res1 = sensorHistoryService.findAll(null, null);
+        SensorHistoryPage res1 = sensorHistoryService.findAll(null, null, null, null, null);
 
         assertNotNull(res1);
-        assertEquals(2, res1.size());
+        assertEquals(2, res1.data().size());
+        assertNull(res1.next());
 
         // with date range
-        given(sensorHistoryRepository.findAllByDateRange(eq(startDate), eq(endDate)))
+        given(sensorHistoryRepository.findPageByDateRange(eq(startDate), eq(endDate), eq(Limit.of(501))))
                 .willReturn(List.of(entity1));
-        List<SensorHistoryResponse> res2 = sensorHistoryService.findAll(startDate, endDate);
+        SensorHistoryPage res2 = sensorHistoryService.findAll(startDate, endDate, null, null, null);
 
         assertNotNull(res2);
-        assertEquals(1, res2.size());
+        assertEquals(1, res2.data().size());
     }
 
     @Test
-    void findAll_unsuccessful() {
+    void findAll_page_successful() {
+        LocalDate startDate = LocalDate.of(2023, 1, 1);
+        LocalDate endDate = LocalDate.of(2023, 1, 31);
+        SensorHistoryRowEntity entity1 = createSensorHistoryRowEntity(UUID.randomUUID());
+        SensorHistoryRowEntity entity2 = createSensorHistoryRowEntity(UUID.randomUUID());
+        SensorHistoryRowEntity entity3 = createSensorHistoryRowEntity(UUID.randomUUID());
+        entity1.setRecordDate(endDate);
+        entity2.setRecordDate(endDate);
+        entity3.setRecordDate(startDate);
+
+        // first page, one more record read than returned
+        given(sensorHistoryRepository.findPageByDateRange(eq(startDate), eq(endDate), eq(Limit.of(3))))
+                .willReturn(List.of(entity1, entity2, entity3));
+        SensorHistoryPage res1 = sensorHistoryService.findAll(startDate, endDate, null, null, 2);
+
+        assertEquals(2, res1.data().size());
+        assertEquals(new SensorHistoryCursor(entity2.getRecordDate(), entity2.getId()), res1.next());
+
+        // following page, bounded by the cursor
+        given(sensorHistoryRepository.findPageByDateRangeAfter(eq(startDate), eq(entity2.getRecordDate()), eq(entity2.getId()), eq(Limit.of(3))))
+                .willReturn(List.of(entity3));
+        SensorHistoryPage res2 = sensorHistoryService.findAll(startDate, endDate, null, res1.next(), 2);
+
+        assertEquals(1, res2.data().size());
+        assertNull(res2.next());
+
+        // page size capped
+        sensorHistoryService.findAll(startDate, endDate, null, null, 1_000_000);
+
+        verify(sensorHistoryRepository, times(1)).findPageByDateRange(eq(startDate), eq(endDate), eq(Limit.of(5001)));
+    }
+
+    @Test
+    void findAll_metrics_successful() {
         LocalDate startDate = LocalDate.now();
         LocalDate endDate = LocalDate.now();
+        SensorHistoryRowEntity entity = createSensorHistoryRowEntity(UUID.randomUUID());
 
-        // find all results
-        given(sensorHistoryRepository.findAll())
-                .willThrow(new GenericJDBCException("Failed", new SQLException()));
-        List<SensorHistoryResponse> res1;
-        try {
-            res1 = sensorHistoryService.findAll(null, null);
-        } catch (Exception ex) {
-            res1 = null;
-        }
+        given(sensorHistoryRepository.findPageByDateRange(eq(startDate), eq(endDate), any()))
+                .willReturn(List.of(entity));
+        List<SensorHistoryResponse> res = sensorHistoryService.findAll(startDate, endDate, Set.of(MetricEnum.TEMPERATURE), null, null).data();
 
-        assertNull(res1);
+        assertEquals(1, res.size());
+        assertEquals(entity.getTemperatureMean(), res.get(0).temperatureMean());
+        assertEquals(entity.getTemperatureMax(), res.get(0).temperatureMax());
+        assertNull(res.get(0).rainfallSum());
+        assertNull(res.get(0).windDirection());
+    }
 
-        // with date range
-        given(sensorHistoryRepository.findAllByDateRange(eq(startDate), eq(endDate)))
+    @Test
+    void findAll_index_successful() {
+        LocalDate startDate = LocalDate.now();
+        LocalDate endDate = LocalDate.now();
+
+        given(sensorHistoryIndex.isReady()).willReturn(true);
+        given(sensorHistoryIndex.findAll(eq(startDate), eq(endDate), eq(null), eq(null), eq(501)))
+                .willReturn(List.of(createSensorHistoryResponse(UUID.randomUUID()), createSensorHistoryResponse(UUID.randomUUID())));
+        SensorHistoryPage res = sensorHistoryService.findAll(startDate, endDate, null, null, null);
+
+        assertNotNull(res);
+        assertEquals(2, res.data().size());
+        verifyNoInteractions(sensorHistoryRepository);
+    }
+
+    @Test
+    void findAll_unsuccessful() {
+        LocalDate startDate = LocalDate.now();
+        LocalDate endDate = LocalDate.now();
+
+        given(sensorHistoryRepository.findPageByDateRange(eq(startDate), eq(endDate), any()))
                 .willThrow(new GenericJDBCException("Failed", new SQLException()));
-        List<SensorHistoryResponse> res2;
+        SensorHistoryPage res;
         try {
-            res2 = sensorHistoryService.findAll(startDate, endDate);
+            res = sensorHistoryService.findAll(startDate, endDate, null, null, null);
         } catch (Exception ex) {
-            res2 = null;
+            res = null;
         }
 
-        assertNull(res2);
+        assertNull(res);
     }
 
     @Test
@@ -170,24 +447,119 @@ public class SensorHistoryServiceTest {
         UUID id = UUID.randomUUID();
         LocalDate startDate = LocalDate.now();
         LocalDate endDate = LocalDate.now();
-        SensorHistoryEntity entity1 = createSensorHistoryEntity(UUID.randomUUID());
-        SensorHistoryEntity entity2 = createSensorHistoryEntity(UUID.randomUUID());
+        SensorHistoryRowEntity entity1 = createSensorHistoryRowEntity(UUID.randomUUID());
+        SensorHistoryRowEntity entity2 = createSensorHistoryRowEntity(UUID.randomUUID());
 
         // find all results
-        given(sensorHistoryRepository.findAllBySensor(eq(id)))
+        given(sensorHistoryRepository.findPageBySensorAndDateRange(eq(id), eq(LocalDate.of(1, 1, 1)), eq(LocalDate.of(9999, 12, 31)), eq(Limit.of(501))))
                 .willReturn(List.of(entity1, entity2));
-        List<SensorHistoryResponse> res1 = sensorHistoryService.findAllBySensor(id, null, null);
+        SensorHistoryPage res1 = sensorHistoryService.findAllBySensor(id, null, null, null, null, null);
 
         assertNotNull(res1);
-        assertEquals(2, res1.size());
+        assertEquals(2, res1.data().size());
 
         // with date range
-        given(sensorHistoryRepository.findAllBySensorAndDateRange(eq(id), eq(startDate), eq(endDate)))
+        given(sensorHistoryRepository.findPageBySensorAndDateRange(eq(id), eq(startDate), eq(endDate), eq(Limit.of(501))))
                 .willReturn(List.of(entity1));
-        List<SensorHistoryResponse> res2 = sensorHistoryService.findAllBySensor(id, startDate, endDate);
+        SensorHistoryPage res2 = sensorHistoryService.findAllBySensor(id, startDate, endDate, null, null, null);
 
         assertNotNull(res2);
-        assertEquals(1, res2.size());
+        assertEquals(1, res2.data().size());
+
+        // following page, bounded by the cursor
+        SensorHistoryCursor cursor = new SensorHistoryCursor(startDate, entity1.getId());
+        given(sensorHistoryRepository.findPageBySensorAndDateRangeAfter(eq(id), eq(startDate), eq(startDate), eq(entity1.getId()), eq(Limit.of(501))))
+                .willReturn(List.of(entity2));
+        SensorHistoryPage res3 = sensorHistoryService.findAllBySensor(id, startDate, endDate, null, cursor, null);
+
+        assertEquals(1, res3.data().size());
+        assertNull(res3.next());
+    }
+
+    @Test
+    void streamAll_successful() {
+        LocalDate startDate = LocalDate.of(2023, 1, 1);
+        LocalDate endDate = LocalDate.of(2023, 1, 31);
+        SensorHistoryRowEntity entity1 = createSensorHistoryRowEntity(UUID.randomUUID());
+        SensorHistoryRowEntity entity2 = createSensorHistoryRowEntity(UUID.randomUUID());
+
+        given(sensorHistoryRepository.streamByDateRange(eq(startDate), eq(endDate)))
+                .willReturn(Stream.of(entity1, entity2));
+        List<SensorHistoryResponse> res = new ArrayList<>();
+        sensorHistoryService.streamAll(startDate, endDate, Set.of(MetricEnum.RAINFALL), res::add);
+
+        assertEquals(2, res.size());
+        assertEquals(entity1.getId(), res.get(0).id());
+        assertEquals(entity1.getRainfallSum(), res.get(0).rainfallSum());
+        assertNull(res.get(0).temperatureMean());
+    }
+
+    @Test
+    void streamAllBySensor_successful() {
+        UUID id = UUID.randomUUID();
+        SensorHistoryRowEntity entity = createSensorHistoryRowEntity(UUID.randomUUID());
+
+        given(sensorHistoryRepository.streamBySensorAndDateRange(eq(id), eq(LocalDate.of(1, 1, 1)), eq(LocalDate.of(9999, 12, 31))))
+                .willReturn(Stream.of(entity));
+        List<SensorHistoryResponse> res = new ArrayList<>();
+        sensorHistoryService.streamAllBySensor(id, null, null, null, res::add);
+
+        assertEquals(1, res.size());
+        assertEquals(entity.getId(), res.get(0).id());
+        verifyNoInteractions(sensorHistoryIndex);
+    }
+
+    @Test
+    void exportAll_successful() throws IOException {
+        LocalDate startDate = LocalDate.of(2023, 1, 1);
+        LocalDate endDate = LocalDate.of(2023, 1, 31);
+        SensorHistoryRowEntity entity1 = createSensorHistoryRowEntity(UUID.randomUUID());
+        SensorHistoryRowEntity entity2 = createSensorHistoryRowEntity(UUID.randomUUID());
+
+        given(sensorHistoryRepository.streamByDateRange(eq(startDate), eq(endDate)))
+                .willReturn(Stream.of(entity1, entity2));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        sensorHistoryService.exportAll(startDate, endDate, Set.of(MetricEnum.RAINFALL), out);
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        ArrowHistoryWriter writer = new ArrowHistoryWriter(expected, Set.of(MetricEnum.RAINFALL), 10000);
+        writer.write(entity1.toResponse(Set.of(MetricEnum.RAINFALL)));
+        writer.write(entity2.toResponse(Set.of(MetricEnum.RAINFALL)));
+        writer.finish();
+        assertArrayEquals(expected.toByteArray(), out.toByteArray());
+    }
+
+    @Test
+    void exportAllBySensor_successful() throws IOException {
+        UUID id = UUID.randomUUID();
+        SensorHistoryRowEntity entity = createSensorHistoryRowEntity(UUID.randomUUID());
+
+        given(sensorHistoryRepository.streamBySensorAndDateRange(eq(id), eq(LocalDate.of(1, 1, 1)), eq(LocalDate.of(9999, 12, 31))))
+                .willReturn(Stream.of(entity));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        sensorHistoryService.exportAllBySensor(id, null, null, null, out);
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        ArrowHistoryWriter writer = new ArrowHistoryWriter(expected, null, 10000);
+        writer.write(entity.toResponse(null));
+        writer.finish();
+        assertArrayEquals(expected.toByteArray(), out.toByteArray());
+        verifyNoInteractions(sensorHistoryIndex);
+    }
+
+    @Test
+    void findAllBySensor_index_successful() {
+        UUID id = UUID.randomUUID();
+
+        given(sensorHistoryIndex.isReady()).willReturn(true);
+        given(sensorHistoryIndex.findAllBySensor(eq(id), eq(null), eq(null), eq(null), eq(null), eq(2)))
+                .willReturn(List.of(createSensorHistoryResponse(id), createSensorHistoryResponse(UUID.randomUUID())));
+        SensorHistoryPage res = sensorHistoryService.findAllBySensor(id, null, null, null, null, 1);
+
+        assertNotNull(res);
+        assertEquals(1, res.data().size());
+        assertEquals(res.data().get(0).id(), res.next().id());
+        verifyNoInteractions(sensorHistoryRepository);
     }
 
     @Test
@@ -196,29 +568,16 @@ public class SensorHistoryServiceTest {
         LocalDate startDate = LocalDate.now();
         LocalDate endDate = LocalDate.now();
 
-        // find all results
-        given(sensorHistoryRepository.findAllBySensor(eq(id)))
+        given(sensorHistoryRepository.findPageBySensorAndDateRange(eq(id), eq(startDate), eq(endDate), any()))
                 .willThrow(new GenericJDBCException("Failed", new SQLException()));
-        List<SensorHistoryResponse> res1;
+        SensorHistoryPage res;
         try {
-            res1 = sensorHistoryService.findAllBySensor(id, null, null);
+            res = sensorHistoryService.findAllBySensor(id, startDate, endDate, null, null, null);
         } catch (Exception ex) {
-            res1 = null;
-        }
-
-        assertNull(res1);
-
-        // with date range
-        given(sensorHistoryRepository.findAllBySensorAndDateRange(eq(id), eq(startDate), eq(endDate)))
-                .willThrow(new GenericJDBCException("Failed", new SQLException()));
-        List<SensorHistoryResponse> res2;
-        try {
-            res2 = sensorHistoryService.findAllBySensor(id, startDate, endDate);
-        } catch (Exception ex) {
-            res2 = null;
+            res = null;
         }
 
-        assertNull(res2);
+        assertNull(res);
     }
 
     @Test
@@ -227,6 +586,7 @@ public class SensorHistoryServiceTest {
 
         sensorHistoryService.deleteForSensor(id);
 
+        verify(sensorHistoryMonthRepository, times(1)).deleteBySensor(eq(id));
         verify(sensorHistoryRepository, times(1)).deleteBySensor(eq(id));
     }
 
@@ -1,6 +1,6 @@
 package de.demo.weatherapi.services;
 
-import de.demo.weatherapi.dtos.SensorHistoryRequest;
+import de.demo.weatherapi.dtos.BackfillJobResponse;
 import de.demo.weatherapi.dtos.SensorRequest;
 import de.demo.weatherapi.dtos.SensorResponse;
 import de.demo.weatherapi.entities.SensorEntity;
@@ -17,8 +17,8 @@ import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
+import static de.demo.weatherapi.utils.TestUtils.createBackfillJobResponse;
 import static de.demo.weatherapi.utils.TestUtils.createSensorEntity;
-import static de.demo.weatherapi.utils.TestUtils.createSensorHistoryRequest;
 import static de.demo.weatherapi.utils.TestUtils.createSensorRequest;
 import static de.demo.weatherapi.utils.TestUtils.createSensorResponse;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -35,10 +35,8 @@ import static org.mockito.Mockito.verify;
 public class SensorServiceTest {
 
     @MockBean
-    LookupService lookupService;
+    BackfillService backfillService;
 
-    @MockBean
-    SensorHistoryService sensorHistoryService;
     @MockBean
     SensorRepository sensorRepository;
 
@@ -50,10 +48,10 @@ public class SensorServiceTest {
         UUID id = UUID.randomUUID();
         SensorRequest req = createSensorRequest();
         SensorEntity entity = createSensorEntity(id);
-        SensorHistoryRequest hist = createSensorHistoryRequest();
+        BackfillJobResponse job = createBackfillJobResponse(id);
 
-        given(lookupService.getWeatherHistory(any()))
-                .willReturn(List.of(hist));
+        given(backfillService.submit(any()))
+                .willReturn(job);
         given(sensorRepository.save(any()))
                 .willReturn(entity);
         SensorResponse res = sensorService.create(req);
@@ -63,7 +61,8 @@ public class SensorServiceTest {
         assertEquals(req.name(), res.name());
         assertEquals(req.countryCode(), res.countryCode());
         assertEquals(req.longitude(), res.longitude());
-        verify(sensorHistoryService, times(1)).create(eq(id), any());
+        assertEquals(job.id(), res.backfillJobId());
+        verify(backfillService, times(1)).submit(eq(entity));
     }
 
     @Test
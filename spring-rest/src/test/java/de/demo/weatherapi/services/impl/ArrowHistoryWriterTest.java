@@ -0,0 +1,167 @@
+package de.demo.weatherapi.services.impl;
+
+import de.demo.weatherapi.dtos.SensorHistoryResponse;
+import de.demo.weatherapi.dtos.SensorResponse;
+import de.demo.weatherapi.enums.MetricEnum;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.FixedSizeBinaryVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.TimeStampMilliVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ArrowHistoryWriterTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2023, 1, 1);
+
+    private final Random random = new Random(42);
+
+    @Test
+    void write_batches_successful() throws IOException {
+        List<SensorHistoryResponse> history = new ArrayList<>();
+        for (int x = 0; x < 250; x++) {
+            history.add(createResponse(x));
+        }
+
+        List<SensorHistoryResponse> res = new ArrayList<>();
+        int batches = read(write(history, null, 64), res, List.of("id", "sensorId", "sensorName", "recordDate",
+                "sunrise", "sunset", "rainfallSum", "snowfallSum", "temperatureMean", "temperatureMin",
+                "temperatureMax", "windDirection", "windSpeedMax"));
+
+        assertEquals(4, batches);
+        assertEquals(history, res);
+    }
+
+    @Test
+    void write_metrics_successful() throws IOException {
+        List<SensorHistoryResponse> history = new ArrayList<>();
+        for (int x = 0; x < 10; x++) {
+            history.add(createResponse(x));
+        }
+
+        List<SensorHistoryResponse> res = new ArrayList<>();
+        read(write(history, Set.of(MetricEnum.TEMPERATURE, MetricEnum.WIND_DIRECTION), 100), res, List.of("id",
+                "sensorId", "sensorName", "recordDate", "sunrise", "sunset", "temperatureMean", "temperatureMin",
+                "temperatureMax", "windDirection"));
+
+        assertEquals(10, res.size());
+        for (int x = 0; x < 10; x++) {
+            assertEquals(history.get(x).temperatureMean(), res.get(x).temperatureMean());
+            assertEquals(history.get(x).windDirection(), res.get(x).windDirection());
+            assertNull(res.get(x).rainfallSum());
+        }
+    }
+
+    @Test
+    void write_empty_successful() throws IOException {
+        List<SensorHistoryResponse> res = new ArrayList<>();
+        int batches = read(write(List.of(), Set.of(MetricEnum.RAINFALL), 100), res, List.of("id", "sensorId",
+                "sensorName", "recordDate", "sunrise", "sunset", "rainfallSum"));
+
+        assertEquals(0, batches);
+        assertEquals(List.of(), res);
+    }
+
+    private byte[] write(List<SensorHistoryResponse> history, Set<MetricEnum> metrics, int batchSize)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ArrowHistoryWriter writer = new ArrowHistoryWriter(out, metrics, batchSize);
+        for (SensorHistoryResponse response : history) {
+            writer.write(response);
+        }
+        writer.finish();
+        return out.toByteArray();
+    }
+
+    /**
+     * Read the stream back with the Arrow reader, checking its schema, and return the number of record batches.
+     */
+    private int read(byte[] stream, List<SensorHistoryResponse> res, List<String> fields) throws IOException {
+        int batches = 0;
+        try (BufferAllocator allocator = new RootAllocator();
+             ArrowStreamReader reader = new ArrowStreamReader(new ByteArrayInputStream(stream), allocator)) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            assertEquals(fields, root.getSchema().getFields().stream().map(Field::getName).toList());
+            while (reader.loadNextBatch()) {
+                batches++;
+                for (int x = 0; x < root.getRowCount(); x++) {
+                    res.add(SensorHistoryResponse.builder()
+                            .id(uuid(((FixedSizeBinaryVector) root.getVector("id")).get(x)))
+                            .sensor(SensorResponse.builder()
+                                    .id(uuid(((FixedSizeBinaryVector) root.getVector("sensorId")).get(x)))
+                                    .name(((VarCharVector) root.getVector("sensorName")).getObject(x).toString())
+                                    .build())
+                            .recordDate(LocalDate.ofEpochDay(((DateDayVector) root.getVector("recordDate")).get(x)))
+                            .sunrise(((TimeStampMilliVector) root.getVector("sunrise")).getObject(x))
+                            .sunset(((TimeStampMilliVector) root.getVector("sunset")).getObject(x))
+                            .rainfallSum(getDouble(root, "rainfallSum", x))
+                            .snowfallSum(getDouble(root, "snowfallSum", x))
+                            .temperatureMean(getDouble(root, "temperatureMean", x))
+                            .temperatureMin(getDouble(root, "temperatureMin", x))
+                            .temperatureMax(getDouble(root, "temperatureMax", x))
+                            .windDirection(root.getVector("windDirection") == null ? null
+                                    : ((IntVector) root.getVector("windDirection")).getObject(x))
+                            .windSpeedMax(getDouble(root, "windSpeedMax", x))
+                            .build());
+                }
+            }
+            assertFalse(reader.loadNextBatch());
+        }
+        return batches;
+    }
+
+    private SensorHistoryResponse createResponse(int x) {
+        LocalDate recordDate = FIRST_DAY.plusDays(x);
+        return SensorHistoryResponse.builder()
+                .id(UUID.randomUUID())
+                .sensor(SensorResponse.builder()
+                        .id(UUID.randomUUID())
+                        // multibyte names, to check the string offsets
+                        .name("Sensör " + x)
+                        .build())
+                .recordDate(recordDate)
+                .sunrise(recordDate.atTime(8, random.nextInt(60), random.nextInt(60)))
+                .sunset(recordDate.atTime(17, random.nextInt(60), random.nextInt(60)))
+                // nulls, to check the validity bitmaps
+                .rainfallSum(x % 3 == 0 ? null : random.nextInt(100) / 10D)
+                .snowfallSum(random.nextInt(100) / 10D)
+                .temperatureMean(random.nextInt(300) / 10D)
+                .temperatureMin(random.nextInt(100) / 10D)
+                .temperatureMax(random.nextInt(400) / 10D)
+                .windDirection(x % 7 == 0 ? null : random.nextInt(360))
+                .windSpeedMax(random.nextInt(50) / 1D)
+                .build();
+    }
+
+    private static Double getDouble(VectorSchemaRoot root, String name, int x) {
+        Float8Vector vector = (Float8Vector) root.getVector(name);
+        return vector == null ? null : vector.getObject(x);
+    }
+
+    private static UUID uuid(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+}
@@ -0,0 +1,85 @@
+package de.demo.weatherapi.services.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.demo.weatherapi.CustomProperties;
+import de.demo.weatherapi.dtos.LocationResponse;
+import de.demo.weatherapi.enums.CountryCodeEnum;
+import de.demo.weatherapi.enums.TimeZoneEnum;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class LocationCacheTest {
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void persist_successful() {
+        CustomProperties properties = createProperties(folder.resolve("locations.json"), 60);
+        List<LocationResponse> locations = List.of(createLocationResponse());
+
+        LocationCache cache = createCache(properties);
+        cache.put("Cork", locations);
+        cache.stop();
+        LocationCache restored = createCache(properties);
+
+        assertEquals(locations, restored.get("cork"));
+    }
+
+    @Test
+    void persist_unsuccessful() {
+        CustomProperties properties = createProperties(folder.resolve("locations.json"), 0);
+
+        LocationCache cache = createCache(properties);
+        cache.put("Cork", List.of(createLocationResponse()));
+        cache.stop();
+        LocationCache restored = createCache(properties);
+
+        // expired entries are not restored
+        assertNull(restored.get("cork"));
+    }
+
+    @Test
+    void get_exact_name_only() {
+        LocationCache cache = createCache(createProperties(folder.resolve("locations.json"), 60));
+        cache.put("Cor", List.of(createLocationResponse()));
+
+        assertEquals(List.of(createLocationResponse()), cache.get(" COR "));
+        // the upstream search is fuzzy, so a shorter name does not answer a longer one
+        assertNull(cache.get("Cork"));
+    }
+
+    private LocationCache createCache(CustomProperties properties) {
+        LocationCache cache = new LocationCache(properties, new SimpleMeterRegistry(), new ObjectMapper());
+        cache.start();
+        return cache;
+    }
+
+    private CustomProperties createProperties(Path file, long ttlSeconds) {
+        CustomProperties properties = new CustomProperties();
+        properties.getLocationCache().setMaxSize(10L);
+        properties.getLocationCache().setTtlSeconds(ttlSeconds);
+        properties.getLocationCache().setFile(file.toString());
+        return properties;
+    }
+
+    private LocationResponse createLocationResponse() {
+        return LocationResponse.builder()
+                .name("Cork")
+                .region("Munster")
+                .countryCode(CountryCodeEnum.IE)
+                .timeZone(TimeZoneEnum.EUROPE_DUBLIN)
+                .elevation(25D)
+                .longitude(-8.47D)
+                .latitude(51.9D)
+                .build();
+    }
+
+}
@@ -0,0 +1,90 @@
+package de.demo.weatherapi.services.impl;
+
+import de.demo.weatherapi.entities.SensorHistoryEntity;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+
+import static de.demo.weatherapi.utils.TestUtils.createSensorHistoryEntity;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Aggregates a year of history across 2000 in-memory sensor series on fork-join pools of 1, 2, 4 and 8 threads,
+ * against a sequential baseline. Pools larger than the available cores only show the overhead of the extra threads.
+ * Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+public class SensorAggregateScalingBenchmark {
+
+    private static final int SENSORS = 2000;
+    private static final int DAYS = 730;
+    private static final int ITERATIONS = 200;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2022, 1, 1);
+
+    @Test
+    void scaling() {
+        SensorSeries[] series = load();
+        // a range that is not block aligned, so every sensor scans its partial blocks day by day
+        long firstDay = FIRST_DAY.plusDays(190).toEpochDay();
+        long lastDay = FIRST_DAY.plusDays(555).toEpochDay();
+        System.out.printf("%d sensors, %d available processors%n", SENSORS, Runtime.getRuntime().availableProcessors());
+
+        double sequential = measure("sequential", () -> {
+            int count = 0;
+            for (SensorSeries sensorSeries : series) {
+                if (sensorSeries.aggregate(sensorSeries.name(), firstDay, lastDay) != null) {
+                    count++;
+                }
+            }
+            return count;
+        });
+        for (int parallelism : new int[]{1, 2, 4, 8}) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            double elapsed = measure("parallelism " + parallelism,
+                    () -> pool.invoke(new SensorAggregateTask(series, firstDay, lastDay, null, SensorSeries.ALL)).size());
+            System.out.printf("%-16s speedup %5.2fx%n", "", sequential / elapsed);
+            pool.shutdown();
+        }
+    }
+
+    private SensorSeries[] load() {
+        SensorSeries[] series = new SensorSeries[SENSORS];
+        for (int x = 0; x < SENSORS; x++) {
+            series[x] = new SensorSeries("benchmark-" + x);
+            List<SensorHistoryEntity> history = new ArrayList<>(DAYS);
+            for (int day = 0; day < DAYS; day++) {
+                SensorHistoryEntity entity = createSensorHistoryEntity(UUID.randomUUID());
+                entity.setRecordDate(FIRST_DAY.plusDays(day));
+                entity.setRainfallSum(day % 17 / 2D);
+                entity.setTemperatureMean(day % 30 - 5D);
+                entity.setWindDirection(day % 360);
+                history.add(entity);
+            }
+            series[x].putAll(history);
+        }
+        return series;
+    }
+
+    private double measure(String label, Run run) {
+        for (int x = 0; x < ITERATIONS; x++) {
+            assertEquals(SENSORS, run.aggregate());
+        }
+        long start = System.nanoTime();
+        for (int x = 0; x < ITERATIONS; x++) {
+            run.aggregate();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e6 / ITERATIONS;
+        System.out.printf("%-16s %8.3f ms/op%n", label, elapsed);
+        return elapsed;
+    }
+
+    private interface Run {
+        int aggregate();
+    }
+
+}
@@ -0,0 +1,67 @@
+package de.demo.weatherapi.services.impl;
+
+import de.demo.weatherapi.entities.SensorAggregateEntity;
+import de.demo.weatherapi.entities.SensorHistoryEntity;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+
+import static de.demo.weatherapi.utils.TestUtils.createSensorHistoryEntity;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SensorAggregateTaskTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2023, 1, 1);
+
+    @Test
+    void aggregate_successful() {
+        int sensors = SensorAggregateTask.LEAF * 5 + 3;
+        SensorSeries[] series = new SensorSeries[sensors];
+        for (int x = 0; x < sensors; x++) {
+            series[x] = new SensorSeries("sensor" + x);
+            // every third sensor has no history in the range
+            LocalDate first = x % 3 == 0 ? FIRST_DAY.plusDays(400) : FIRST_DAY;
+            List<SensorHistoryEntity> history = new ArrayList<>();
+            for (int day = 0; day < 100; day++) {
+                SensorHistoryEntity entity = createSensorHistoryEntity(UUID.randomUUID());
+                entity.setRecordDate(first.plusDays(day));
+                entity.setRainfallSum((double) x);
+                history.add(entity);
+            }
+            series[x].putAll(history);
+        }
+        long firstDay = FIRST_DAY.toEpochDay();
+        long lastDay = FIRST_DAY.plusDays(200).toEpochDay();
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        List<SensorAggregateEntity> res = pool.invoke(new SensorAggregateTask(series, firstDay, lastDay, null, SensorSeries.ALL));
+        pool.shutdown();
+
+        List<SensorAggregateEntity> expected = new ArrayList<>();
+        for (SensorSeries sensorSeries : series) {
+            SensorAggregateEntity aggregate = sensorSeries.aggregate(sensorSeries.name(), firstDay, lastDay);
+            if (aggregate != null) {
+                expected.add(aggregate);
+            }
+        }
+        assertEquals(sensors - (sensors + 2) / 3, res.size());
+        res.sort(Comparator.comparing(SensorAggregateEntity::getKey));
+        expected.sort(Comparator.comparing(SensorAggregateEntity::getKey));
+        assertEquals(expected, res);
+    }
+
+    @Test
+    void aggregate_unsuccessful() {
+        List<SensorAggregateEntity> res = new SensorAggregateTask(new SensorSeries[0],
+                FIRST_DAY.toEpochDay(), FIRST_DAY.toEpochDay(), null, SensorSeries.ALL).invoke();
+
+        assertTrue(res.isEmpty());
+    }
+
+}
@@ -0,0 +1,117 @@
+package de.demo.weatherapi.services.impl;
+
+import de.demo.weatherapi.CustomProperties;
+import de.demo.weatherapi.dtos.SensorHistoryCursor;
+import de.demo.weatherapi.dtos.SensorHistoryResponse;
+import de.demo.weatherapi.entities.SensorEntity;
+import de.demo.weatherapi.entities.SensorHistoryEntity;
+import de.demo.weatherapi.repositories.SensorHistoryRepository;
+import de.demo.weatherapi.repositories.SensorRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.UUID;
+
+import static de.demo.weatherapi.utils.TestUtils.createSensorEntity;
+import static de.demo.weatherapi.utils.TestUtils.createSensorHistoryEntity;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class SensorHistoryIndexTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2023, 1, 1);
+
+    private final Random random = new Random(42);
+    private final SensorRepository sensorRepository = mock(SensorRepository.class);
+    private final SensorHistoryRepository sensorHistoryRepository = mock(SensorHistoryRepository.class);
+    private final List<SensorEntity> sensors = new ArrayList<>();
+    private final List<SensorHistoryResponse> stored = new ArrayList<>();
+    private SensorHistoryIndex index;
+
+    @BeforeEach
+    void load() {
+        for (int x = 0; x < 12; x++) {
+            SensorEntity sensor = createSensorEntity(UUID.randomUUID());
+            List<SensorHistoryEntity> history = new ArrayList<>();
+            // sensors with overlapping histories of different lengths, with gaps
+            for (int day = 0; day < 30 + x * 10; day++) {
+                if (random.nextInt(4) > 0) {
+                    SensorHistoryEntity entity = createSensorHistoryEntity(UUID.randomUUID());
+                    entity.setSensor(sensor);
+                    entity.setRecordDate(FIRST_DAY.plusDays(x * 5 + day));
+                    history.add(entity);
+                    stored.add(entity.toResponse());
+                }
+            }
+            sensors.add(sensor);
+            given(sensorRepository.findById(eq(sensor.getId()))).willReturn(Optional.of(sensor));
+            given(sensorHistoryRepository.findAllBySensor(eq(sensor.getId()))).willReturn(history);
+        }
+        given(sensorRepository.findAll()).willReturn(sensors);
+        stored.sort(SensorHistoryCursor.ORDER);
+
+        CustomProperties customProperties = new CustomProperties();
+        customProperties.getMemory().setEnabled(true);
+        customProperties.getMemory().setParallelism(1);
+        index = new SensorHistoryIndex(customProperties, sensorRepository, sensorHistoryRepository);
+        index.start();
+        index.load();
+    }
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        index.stop();
+    }
+
+    @Test
+    void findAll_pages_successful() {
+        LocalDate startDate = FIRST_DAY.plusDays(20);
+        LocalDate endDate = FIRST_DAY.plusDays(120);
+        List<SensorHistoryResponse> expected = stored.stream()
+                .filter(h -> !h.recordDate().isBefore(startDate) && !h.recordDate().isAfter(endDate))
+                .toList();
+
+        for (int size : new int[]{1, 7, 50, 5000}) {
+            List<SensorHistoryResponse> res = new ArrayList<>();
+            SensorHistoryCursor cursor = null;
+            do {
+                List<SensorHistoryResponse> page = index.findAll(startDate, endDate, null, cursor, size);
+                assertTrue(page.size() <= size);
+                res.addAll(page);
+                // passed on as the token, as the consumer would
+                cursor = page.size() < size ? null
+                        : SensorHistoryCursor.valueOf(SensorHistoryCursor.of(page.get(page.size() - 1)).toToken());
+            } while (cursor != null);
+
+            assertEquals(expected, res, "page size " + size);
+        }
+    }
+
+    @Test
+    void findAllBySensor_pages_successful() {
+        SensorEntity sensor = sensors.get(5);
+        List<SensorHistoryResponse> expected = stored.stream()
+                .filter(h -> h.sensor().id().equals(sensor.getId()))
+                .toList();
+
+        List<SensorHistoryResponse> res = new ArrayList<>();
+        SensorHistoryCursor cursor = null;
+        do {
+            List<SensorHistoryResponse> page = index.findAllBySensor(sensor.getId(), null, null, null, cursor, 4);
+            res.addAll(page);
+            cursor = page.size() < 4 ? null : SensorHistoryCursor.of(page.get(page.size() - 1));
+        } while (cursor != null);
+
+        assertEquals(expected, res);
+    }
+
+}
@@ -0,0 +1,114 @@
+package de.demo.weatherapi.services.impl;
+
+import de.demo.weatherapi.dtos.SensorHistoryResponse;
+import de.demo.weatherapi.entities.SensorAggregateEntity;
+import de.demo.weatherapi.entities.SensorEntity;
+import de.demo.weatherapi.entities.SensorHistoryEntity;
+import de.demo.weatherapi.enums.GranularityEnum;
+import de.demo.weatherapi.events.SensorHistoryWrittenEvent;
+import de.demo.weatherapi.repositories.SensorHistoryRepository;
+import de.demo.weatherapi.repositories.SensorRepository;
+import de.demo.weatherapi.services.SensorHistoryService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static de.demo.weatherapi.utils.TestUtils.createSensorEntity;
+import static de.demo.weatherapi.utils.TestUtils.createSensorHistoryEntity;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "custom.memory.enabled=true")
+public class SensorHistoryIndexWriteTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2023, 1, 1);
+
+    @Autowired
+    SensorRepository sensorRepository;
+
+    @Autowired
+    SensorHistoryRepository sensorHistoryRepository;
+
+    @Autowired
+    SensorHistoryService sensorHistoryService;
+
+    @Autowired
+    SensorHistoryIndex sensorHistoryIndex;
+
+    private SensorEntity sensor;
+
+    @BeforeEach
+    void createSensor() {
+        SensorEntity entity = createSensorEntity(null);
+        entity.setName("index-" + UUID.randomUUID());
+        sensor = sensorRepository.save(entity);
+    }
+
+    @Test
+    void write_successful() {
+        sensorHistoryRepository.upsertAll(List.of(createEntity(FIRST_DAY, 10D), createEntity(FIRST_DAY.plusDays(1), 20D)));
+
+        List<SensorHistoryResponse> history = sensorHistoryIndex.findAllBySensor(sensor.getId(), FIRST_DAY,
+                FIRST_DAY.plusDays(1), null, null, 10);
+        SensorAggregateEntity aggregate = sensorHistoryIndex.aggregate(FIRST_DAY, FIRST_DAY.plusDays(1), null, null)
+                .stream()
+                .filter(a -> a.getKey().equals(sensor.getName()))
+                .findFirst()
+                .orElseThrow();
+
+        assertTrue(sensorHistoryIndex.isReady());
+        assertEquals(2, history.size());
+        assertEquals(20D, history.get(0).temperatureMean());
+        assertEquals(10D, history.get(1).temperatureMean());
+        assertEquals(2, aggregate.getRecordCount());
+        assertEquals(30D, aggregate.getTemperatureTotal());
+    }
+
+    @Test
+    void write_outOfOrder_successful() {
+        SensorHistoryEntity first = createEntity(FIRST_DAY, 10D);
+        sensorHistoryRepository.upsertAll(List.of(first));
+        sensorHistoryRepository.upsertAll(List.of(createEntity(FIRST_DAY, 20D)));
+
+        // the listener of the first write runs after that of the second
+        sensorHistoryIndex.onWritten(new SensorHistoryWrittenEvent(List.of(first)));
+
+        List<SensorHistoryResponse> history = sensorHistoryIndex.findAllBySensor(sensor.getId(), FIRST_DAY, FIRST_DAY,
+                null, null, 10);
+        List<SensorAggregateEntity> aggregates = sensorHistoryIndex.aggregateBySensor(sensor.getId(), FIRST_DAY,
+                FIRST_DAY, GranularityEnum.DAY, null);
+
+        assertEquals(1, history.size());
+        assertEquals(20D, history.get(0).temperatureMean());
+        assertEquals(1, aggregates.size());
+        assertEquals(20D, aggregates.get(0).getTemperatureTotal());
+    }
+
+    @Test
+    void delete_successful() {
+        sensorHistoryRepository.upsertAll(List.of(createEntity(FIRST_DAY, 10D)));
+
+        sensorHistoryService.deleteForSensor(sensor.getId());
+
+        assertEquals(0, sensorHistoryIndex.findAllBySensor(sensor.getId(), FIRST_DAY, FIRST_DAY, null, null, 10).size());
+        assertEquals(0, sensorHistoryIndex.aggregateBySensor(sensor.getId(), FIRST_DAY, FIRST_DAY, GranularityEnum.DAY,
+                null).size());
+    }
+
+    private SensorHistoryEntity createEntity(LocalDate recordDate, double temperatureMean) {
+        SensorHistoryEntity entity = createSensorHistoryEntity(null);
+        entity.setId(SensorHistoryEntity.createId(sensor.getId(), recordDate));
+        entity.setSensor(sensor);
+        entity.setRecordDate(recordDate);
+        entity.setSunrise(recordDate.atTime(8, 0));
+        entity.setSunset(recordDate.atTime(17, 0));
+        entity.setTemperatureMean(temperatureMean);
+        return entity;
+    }
+
+}
@@ -0,0 +1,84 @@
+package de.demo.weatherapi.services.impl;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH comparison of the scalar and vector kernels over the seven value columns of a sensor series, with one in ten
+ * days missing, for a block and for a year or more of days. Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SensorKernelBenchmark {
+
+    @Param({"32", "365", "3650"})
+    int days;
+
+    private final SensorKernel scalar = new ScalarSensorKernel();
+    private final SensorKernel vector = new VectorSensorKernel();
+    private final double[] sum = new double[SensorSeries.COLUMNS];
+    private final double[] min = new double[SensorSeries.COLUMNS];
+    private final double[] max = new double[SensorSeries.COLUMNS];
+    private double[][] columns;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        columns = new double[SensorSeries.COLUMNS][days];
+        for (int x = 0; x < days; x++) {
+            boolean missing = random.nextInt(10) == 0;
+            for (int c = 0; c < SensorSeries.COLUMNS; c++) {
+                columns[c][x] = missing ? Double.NaN : random.nextInt(1000) / 10D;
+            }
+        }
+    }
+
+    @Benchmark
+    public int scalar() {
+        return aggregate(scalar);
+    }
+
+    @Benchmark
+    public int vector() {
+        return aggregate(vector);
+    }
+
+    @Test
+    void kernels() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SensorKernelBenchmark.class.getName())
+                .forks(1)
+                .jvmArgsAppend("--add-modules", "jdk.incubator.vector")
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(1))
+                .build()).run();
+    }
+
+    private int aggregate(SensorKernel kernel) {
+        Arrays.fill(sum, 0);
+        Arrays.fill(min, Double.POSITIVE_INFINITY);
+        Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        return kernel.aggregate(columns, SensorSeries.ALL, 0, days - 1, sum, min, max);
+    }
+
+}
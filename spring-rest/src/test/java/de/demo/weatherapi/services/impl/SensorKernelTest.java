@@ -0,0 +1,70 @@
+package de.demo.weatherapi.services.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SensorKernelTest {
+
+    private final Random random = new Random(42);
+
+    @Test
+    void aggregate_successful() {
+        assertTrue(SensorKernel.isVectorSupported());
+        SensorKernel scalar = new ScalarSensorKernel();
+        SensorKernel vector = new VectorSensorKernel();
+        double[][] columns = new double[SensorSeries.COLUMNS][300];
+        for (int x = 0; x < 300; x++) {
+            boolean missing = random.nextInt(4) == 0;
+            for (int c = 0; c < SensorSeries.COLUMNS; c++) {
+                columns[c][x] = missing ? Double.NaN : random.nextInt(1000) / 10D - 30;
+            }
+        }
+
+        // ranges shorter than, aligned with, and not aligned with the vector length
+        for (int x = 0; x < 200; x++) {
+            int first = random.nextInt(300);
+            int last = first + random.nextInt(Math.min(300 - first, x < 50 ? 5 : 300 - first));
+            double[][] expected = aggregate(scalar, columns, first, last);
+            double[][] res = aggregate(vector, columns, first, last);
+
+            assertEquals(expected[3][0], res[3][0]);
+            assertArrayEquals(expected[0], res[0], 1e-6);
+            assertArrayEquals(expected[1], res[1]);
+            assertArrayEquals(expected[2], res[2]);
+        }
+    }
+
+    @Test
+    void aggregate_unsuccessful() {
+        double[][] columns = new double[SensorSeries.COLUMNS][64];
+        for (double[] column : columns) {
+            Arrays.fill(column, Double.NaN);
+        }
+
+        for (SensorKernel kernel : new SensorKernel[]{new ScalarSensorKernel(), new VectorSensorKernel()}) {
+            double[][] res = aggregate(kernel, columns, 0, 63);
+
+            assertEquals(0, res[3][0]);
+            assertEquals(0, res[0][0]);
+            assertEquals(Double.POSITIVE_INFINITY, res[1][0]);
+            assertEquals(Double.NEGATIVE_INFINITY, res[2][0]);
+        }
+    }
+
+    private double[][] aggregate(SensorKernel kernel, double[][] columns, int first, int last) {
+        double[] sum = new double[SensorSeries.COLUMNS];
+        double[] min = new double[SensorSeries.COLUMNS];
+        double[] max = new double[SensorSeries.COLUMNS];
+        Arrays.fill(min, Double.POSITIVE_INFINITY);
+        Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        int count = kernel.aggregate(columns, SensorSeries.ALL, first, last, sum, min, max);
+        return new double[][]{sum, min, max, {count}};
+    }
+
+}
@@ -0,0 +1,246 @@
+package de.demo.weatherapi.services.impl;
+
+import de.demo.weatherapi.dtos.SensorHistoryRequest;
+import de.demo.weatherapi.dtos.SensorHistoryResponse;
+import de.demo.weatherapi.entities.SensorAggregateEntity;
+import de.demo.weatherapi.entities.SensorEntity;
+import de.demo.weatherapi.entities.SensorHistoryEntity;
+import de.demo.weatherapi.enums.GranularityEnum;
+import de.demo.weatherapi.enums.MetricEnum;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import static de.demo.weatherapi.utils.TestUtils.createSensorEntity;
+import static de.demo.weatherapi.utils.TestUtils.createSensorHistoryEntity;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SensorSeriesTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2023, 1, 1);
+
+    private final Random random = new Random(42);
+
+    @Test
+    void aggregate_successful() {
+        SensorSeries series = new SensorSeries("test");
+        Map<LocalDate, SensorHistoryEntity> stored = new HashMap<>();
+        // written out of order, growing the series in both directions, with gaps and replaced days
+        for (int offset : new int[]{400, 0, 700, -300, 100}) {
+            List<SensorHistoryEntity> batch = new ArrayList<>();
+            for (int x = 0; x < 200; x++) {
+                if (random.nextInt(5) > 0) {
+                    SensorHistoryEntity entity = createEntity(FIRST_DAY.plusDays(offset + x));
+                    batch.add(entity);
+                    stored.put(entity.getRecordDate(), entity);
+                }
+            }
+            series.putAll(batch);
+        }
+
+        for (int x = 0; x < 500; x++) {
+            LocalDate startDate = FIRST_DAY.plusDays(random.nextInt(1200) - 400);
+            LocalDate endDate = startDate.plusDays(random.nextInt(400));
+            SensorAggregateEntity expected = aggregate(stored, startDate, endDate);
+            SensorAggregateEntity res = series.aggregate("test", startDate.toEpochDay(), endDate.toEpochDay());
+
+            if (expected == null) {
+                assertNull(res);
+            } else {
+                assertAggregate(expected, res);
+            }
+        }
+    }
+
+    @Test
+    void aggregate_granularity_successful() {
+        SensorSeries series = new SensorSeries("test");
+        Map<LocalDate, SensorHistoryEntity> stored = new HashMap<>();
+        List<SensorHistoryEntity> batch = new ArrayList<>();
+        for (int x = 0; x < 500; x++) {
+            if (random.nextInt(5) > 0) {
+                SensorHistoryEntity entity = createEntity(FIRST_DAY.plusDays(x));
+                batch.add(entity);
+                stored.put(entity.getRecordDate(), entity);
+            }
+        }
+        series.putAll(batch);
+        LocalDate startDate = FIRST_DAY.minusDays(20);
+        LocalDate endDate = FIRST_DAY.plusDays(430);
+
+        for (GranularityEnum granularity : GranularityEnum.values()) {
+            List<SensorAggregateEntity> res = new ArrayList<>();
+            series.aggregate("test", startDate.toEpochDay(), endDate.toEpochDay(), granularity, SensorSeries.ALL, res);
+
+            List<SensorAggregateEntity> expected = new ArrayList<>();
+            for (LocalDate start = granularity.start(granularity.bucket(FIRST_DAY.toEpochDay()));
+                 !start.isAfter(endDate); start = granularity.start(granularity.bucket(start.toEpochDay()) + 1)) {
+                LocalDate end = granularity.start(granularity.bucket(start.toEpochDay()) + 1).minusDays(1);
+                SensorAggregateEntity aggregate = aggregate(stored, start, end.isAfter(endDate) ? endDate : end);
+                if (aggregate != null) {
+                    aggregate.setPeriod(start);
+                    expected.add(aggregate);
+                }
+            }
+            assertEquals(expected.size(), res.size(), granularity.name());
+            for (int x = 0; x < expected.size(); x++) {
+                assertEquals(expected.get(x).getPeriod(), res.get(x).getPeriod());
+                assertAggregate(expected.get(x), res.get(x));
+            }
+        }
+    }
+
+    @Test
+    void history_successful() {
+        SensorSeries series = new SensorSeries("test");
+        SensorEntity sensorEntity = createSensorEntity(UUID.randomUUID());
+        List<SensorHistoryEntity> stored = new ArrayList<>();
+        for (int offset : new int[]{40, 0, -70}) {
+            List<SensorHistoryEntity> batch = new ArrayList<>();
+            for (int x = 0; x < 20; x++) {
+                SensorHistoryEntity entity = createEntity(FIRST_DAY.plusDays(offset + x));
+                entity.setSensor(sensorEntity);
+                batch.add(entity);
+            }
+            series.putAll(batch);
+            stored.addAll(batch);
+        }
+
+        List<SensorHistoryResponse> res = new ArrayList<>();
+        series.history(sensorEntity.toResponse(), FIRST_DAY.plusDays(-60).toEpochDay(), FIRST_DAY.plusDays(45).toEpochDay(), SensorSeries.ALL, Integer.MAX_VALUE, res);
+
+        List<SensorHistoryResponse> expected = stored.stream()
+                .filter(h -> !h.getRecordDate().isBefore(FIRST_DAY.plusDays(-60))
+                        && !h.getRecordDate().isAfter(FIRST_DAY.plusDays(45)))
+                .sorted(Comparator.comparing(SensorHistoryEntity::getRecordDate).reversed())
+                .map(SensorHistoryEntity::toResponse)
+                .toList();
+        assertEquals(expected, res);
+    }
+
+    @Test
+    void aggregate_metrics_successful() {
+        SensorSeries series = new SensorSeries("test");
+        Map<LocalDate, SensorHistoryEntity> stored = new HashMap<>();
+        List<SensorHistoryEntity> batch = new ArrayList<>();
+        for (int x = 0; x < 300; x++) {
+            SensorHistoryEntity entity = createEntity(FIRST_DAY.plusDays(x));
+            batch.add(entity);
+            stored.put(entity.getRecordDate(), entity);
+        }
+        series.putAll(batch);
+        LocalDate startDate = FIRST_DAY.plusDays(10);
+        LocalDate endDate = FIRST_DAY.plusDays(250);
+
+        SensorAggregateEntity expected = aggregate(stored, startDate, endDate);
+        SensorAggregateEntity res = series.aggregate("test", startDate.toEpochDay(), endDate.toEpochDay(),
+                SensorSeries.columns(Set.of(MetricEnum.TEMPERATURE)));
+
+        assertEquals(expected.getRecordCount(), res.getRecordCount());
+        assertEquals(expected.getTemperatureTotal(), res.getTemperatureTotal(), 1e-6);
+        assertEquals(expected.getTemperatureMin(), res.getTemperatureMin());
+        assertEquals(expected.getTemperatureMax(), res.getTemperatureMax());
+        assertNull(res.getRainfallTotal());
+        assertNull(res.getSnowfallMin());
+        assertNull(res.getWindDirectionTotal());
+        assertNull(res.getWindSpeedMax());
+        assertNull(res.toAverage().getRainfallMean());
+        assertNull(res.toAverage().getWindDirectionMean());
+    }
+
+    @Test
+    void putAll_bounded_successful() {
+        SensorSeries series = new SensorSeries("test");
+        LocalDate minDate = SensorHistoryRequest.MIN_RECORD_DATE;
+        LocalDate maxDate = SensorHistoryRequest.maxRecordDate();
+        series.putAll(List.of(createEntity(FIRST_DAY)));
+
+        // dates a request cannot write are left out
+        series.putAll(List.of(createEntity(minDate.minusDays(1)), createEntity(maxDate.plusDays(1)),
+                createEntity(LocalDate.of(9999, 12, 31))));
+
+        assertEquals(1, series.aggregate("test", minDate.minusDays(1).toEpochDay(),
+                LocalDate.of(9999, 12, 31).toEpochDay()).getRecordCount());
+        assertEquals(FIRST_DAY.toEpochDay() / SensorSeries.BLOCK * SensorSeries.BLOCK, series.firstDay());
+
+        // growing to either bound leaves no more than the headroom beyond them
+        series.putAll(List.of(createEntity(minDate), createEntity(maxDate)));
+
+        assertEquals(3, series.aggregate("test", minDate.toEpochDay(), maxDate.toEpochDay()).getRecordCount());
+        assertEquals(Math.floorDiv(minDate.toEpochDay(), SensorSeries.BLOCK) * SensorSeries.BLOCK, series.firstDay());
+        assertTrue(series.lastDay() <= maxDate.toEpochDay() + SensorSeries.MAX_HEADROOM + SensorSeries.BLOCK);
+    }
+
+    @Test
+    void aggregate_unsuccessful() {
+        SensorSeries series = new SensorSeries("test");
+
+        assertNull(series.aggregate("test", FIRST_DAY.toEpochDay(), FIRST_DAY.plusDays(10).toEpochDay()));
+
+        series.putAll(List.of(createEntity(FIRST_DAY)));
+
+        assertNull(series.aggregate("test", FIRST_DAY.plusDays(1).toEpochDay(), FIRST_DAY.plusDays(10).toEpochDay()));
+        assertNull(series.aggregate("test", FIRST_DAY.toEpochDay(), FIRST_DAY.minusDays(1).toEpochDay()));
+    }
+
+    private void assertAggregate(SensorAggregateEntity expected, SensorAggregateEntity res) {
+        assertEquals(expected.getRecordCount(), res.getRecordCount());
+        assertEquals(expected.getRainfallTotal(), res.getRainfallTotal(), 1e-6);
+        assertEquals(expected.getRainfallMin(), res.getRainfallMin());
+        assertEquals(expected.getRainfallMax(), res.getRainfallMax());
+        assertEquals(expected.getSnowfallTotal(), res.getSnowfallTotal(), 1e-6);
+        assertEquals(expected.getSnowfallMin(), res.getSnowfallMin());
+        assertEquals(expected.getSnowfallMax(), res.getSnowfallMax());
+        assertEquals(expected.getTemperatureTotal(), res.getTemperatureTotal(), 1e-6);
+        assertEquals(expected.getTemperatureMin(), res.getTemperatureMin());
+        assertEquals(expected.getTemperatureMax(), res.getTemperatureMax());
+        assertEquals(expected.getWindDirectionTotal(), res.getWindDirectionTotal());
+        assertEquals(expected.getWindDirectionMin(), res.getWindDirectionMin());
+        assertEquals(expected.getWindDirectionMax(), res.getWindDirectionMax());
+        assertEquals(expected.getWindSpeedTotal(), res.getWindSpeedTotal(), 1e-6);
+        assertEquals(expected.getWindSpeedMin(), res.getWindSpeedMin());
+        assertEquals(expected.getWindSpeedMax(), res.getWindSpeedMax());
+    }
+
+    private SensorHistoryEntity createEntity(LocalDate recordDate) {
+        SensorHistoryEntity entity = createSensorHistoryEntity(UUID.randomUUID());
+        entity.setRecordDate(recordDate);
+        entity.setRainfallSum(random.nextInt(500) / 10D);
+        entity.setSnowfallSum(random.nextInt(100) / 10D);
+        entity.setTemperatureMean(random.nextInt(600) / 10D - 20);
+        entity.setTemperatureMin(entity.getTemperatureMean() - random.nextInt(100) / 10D);
+        entity.setTemperatureMax(entity.getTemperatureMean() + random.nextInt(100) / 10D);
+        entity.setWindDirection(random.nextInt(360));
+        entity.setWindSpeedMax(random.nextInt(800) / 10D);
+        return entity;
+    }
+
+    private SensorAggregateEntity aggregate(Map<LocalDate, SensorHistoryEntity> stored, LocalDate startDate, LocalDate endDate) {
+        SensorAggregateEntity aggregate = null;
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            SensorHistoryEntity h = stored.get(date);
+            if (h == null) {
+                continue;
+            }
+            SensorAggregateEntity day = new SensorAggregateEntity("test", 1L,
+                    h.getRainfallSum(), h.getRainfallSum(), h.getRainfallSum(),
+                    h.getSnowfallSum(), h.getSnowfallSum(), h.getSnowfallSum(),
+                    h.getTemperatureMean(), h.getTemperatureMin(), h.getTemperatureMax(),
+                    (long) h.getWindDirection(), h.getWindDirection(), h.getWindDirection(),
+                    h.getWindSpeedMax(), h.getWindSpeedMax(), h.getWindSpeedMax());
+            aggregate = aggregate == null ? day : aggregate.combine(day);
+        }
+        return aggregate;
+    }
+
+}
@@ -0,0 +1,90 @@
+package de.demo.weatherapi.services.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SingleFlightTest {
+
+    private final SingleFlight<String, List<String>> singleFlight = new SingleFlight<>();
+
+    @Test
+    void execute_successful() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<List<String>> first = executor.submit(() -> singleFlight.execute("key", () -> {
+                calls.incrementAndGet();
+                started.countDown();
+                await(release);
+                return List.of("value");
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            List<Future<List<String>>> waiters = List.of(
+                    executor.submit(() -> singleFlight.execute("key", () -> List.of("other"))),
+                    executor.submit(() -> singleFlight.execute("key", () -> List.of("other"))));
+            // give the waiters time to join the call in flight
+            Thread.sleep(100);
+            release.countDown();
+
+            List<String> res = first.get(5, TimeUnit.SECONDS);
+            for (Future<List<String>> waiter : waiters) {
+                assertSame(res, waiter.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, calls.get());
+            assertEquals(0, singleFlight.size());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // once complete, the next call is made again
+        assertEquals(List.of("next"), singleFlight.execute("key", () -> List.of("next")));
+    }
+
+    @Test
+    void execute_unsuccessful() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<List<String>> first = executor.submit(() -> singleFlight.execute("key", () -> {
+                started.countDown();
+                await(release);
+                throw new IllegalStateException("Some Error");
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<List<String>> waiter = executor.submit(() -> singleFlight.execute("key", List::of));
+            Thread.sleep(100);
+            release.countDown();
+
+            Exception ex = assertThrows(Exception.class, () -> waiter.get(5, TimeUnit.SECONDS));
+            assertTrue(ex.getCause() instanceof IllegalStateException);
+            assertThrows(Exception.class, () -> first.get(5, TimeUnit.SECONDS));
+            assertEquals(0, singleFlight.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
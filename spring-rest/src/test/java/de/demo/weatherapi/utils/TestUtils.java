@@ -1,5 +1,6 @@
 package de.demo.weatherapi.utils;
 
+import de.demo.weatherapi.dtos.BackfillJobResponse;
 import de.demo.weatherapi.dtos.LocationRequest;
 import de.demo.weatherapi.dtos.LocationResponse;
 import de.demo.weatherapi.dtos.SensorAverageResponse;
@@ -7,9 +8,12 @@ import de.demo.weatherapi.dtos.SensorHistoryRequest;
 import de.demo.weatherapi.dtos.SensorHistoryResponse;
 import de.demo.weatherapi.dtos.SensorRequest;
 import de.demo.weatherapi.dtos.SensorResponse;
-import de.demo.weatherapi.entities.SensorAverageEntity;
+import de.demo.weatherapi.entities.BackfillJobEntity;
+import de.demo.weatherapi.entities.SensorAggregateEntity;
 import de.demo.weatherapi.entities.SensorEntity;
 import de.demo.weatherapi.entities.SensorHistoryEntity;
+import de.demo.weatherapi.entities.SensorHistoryRowEntity;
+import de.demo.weatherapi.enums.BackfillStatusEnum;
 import de.demo.weatherapi.enums.CountryCodeEnum;
 import de.demo.weatherapi.enums.MetricEnum;
 import de.demo.weatherapi.enums.TimeZoneEnum;
@@ -84,17 +88,23 @@ public class TestUtils {
                 .build();
     }
 
-    public static SensorAverageEntity createSensorAverageEntity(String key) {
-        return new SensorAverageEntity(
-                key,
-                1D, 2D, 3D,
-                4D, 5D, 6D,
-                7D, 8D, 9D,
-                10, 11, 12,
-                13D, 14D, 15D
+    public static SensorAggregateEntity createSensorAggregateEntity(String key) {
+        return new SensorAggregateEntity(
+                key, 2L,
+                2D, 2D, 3D,
+                8D, 5D, 6D,
+                14D, 8D, 9D,
+                20L, 11, 12,
+                26D, 14D, 15D
         );
     }
 
+    public static SensorAggregateEntity createSensorAggregateEntity(String key, LocalDate period) {
+        SensorAggregateEntity entity = createSensorAggregateEntity(key);
+        entity.setPeriod(period);
+        return entity;
+    }
+
     public static SensorHistoryEntity createSensorHistoryEntity(UUID id) {
         return new SensorHistoryEntity(
                 UUID.randomUUID(),
@@ -113,6 +123,30 @@ public class TestUtils {
         );
     }
 
+    public static SensorHistoryRowEntity createSensorHistoryRowEntity(UUID id) {
+        return new SensorHistoryRowEntity(
+                UUID.randomUUID(),
+                id,
+                "Test",
+                "Test region",
+                CountryCodeEnum.IE,
+                TimeZoneEnum.EUROPE_DUBLIN,
+                1D,
+                2D,
+                3D,
+                LocalDate.now(),
+                1D,
+                2D,
+                LocalDateTime.of(LocalDate.now(), LocalTime.of(8, 30, 45)),
+                LocalDateTime.of(LocalDate.now(), LocalTime.of(17, 15, 25)),
+                5D,
+                6D,
+                7D,
+                8,
+                9D
+        );
+    }
+
     public static SensorHistoryRequest createSensorHistoryRequest() {
         return SensorHistoryRequest.builder()
                 .recordDate(LocalDate.now())
@@ -157,4 +191,24 @@ public class TestUtils {
         return res;
     }
 
+    public static BackfillJobEntity createBackfillJobEntity(UUID id) {
+        return BackfillJobEntity.builder()
+                .id(UUID.randomUUID())
+                .sensor(createSensorEntity(id))
+                .build();
+    }
+
+    public static BackfillJobResponse createBackfillJobResponse(UUID id) {
+        return BackfillJobResponse.builder()
+                .id(UUID.randomUUID())
+                .sensorId(id)
+                .status(BackfillStatusEnum.COMPLETED)
+                .rowsFetched(2)
+                .rowsLoaded(2)
+                .failures(0)
+                .createdDateTime(LocalDateTime.now())
+                .modifiedDateTime(LocalDateTime.now())
+                .build();
+    }
+
 }